@@ -0,0 +1,181 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.benchmarks;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.http.json.JsonHttpContent;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonObjectParser;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.brennheit.mcashapi.json.ResourceContent;
+import net.brennheit.mcashapi.json.ResourceObjectParser;
+import net.brennheit.mcashapi.resource.CreatePaymentRequest;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.resource.ReportInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing request bodies and parsing responses, served by an in-process
+ * mock transport so no network is involved. The legacy variants use a new
+ * {@link JsonObjectParser} per request and {@link JsonHttpContent}, as the
+ * client did before resources got their own codecs. Both are set up on a
+ * {@link JacksonFactory}, as in the client.
+ *
+ * @author fiLLLip
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    static final String OUTCOME_JSON = "{\"currency\":\"NOK\",\"amount\":\"1234.50\",\"additional_amount\":\"0.00\","
+            + "\"auth_amount\":\"1234.50\",\"auth_additional_amount\":\"0.00\","
+            + "\"captures\":[{\"amount\":\"1234.50\",\"id\":\"c-1\",\"additional_amount\":\"0.00\"}],"
+            + "\"status\":\"ok\",\"status_code\":2000,\"customer\":\"cust-1\","
+            + "\"date_modified\":\"2014-06-17 13:45:09\",\"date_expires\":\"2014-06-17 13:50:09\","
+            + "\"credit\":false,\"interchange_fee\":\"0.00\",\"transaction_fee\":\"1.23\","
+            + "\"report_id\":\"report-42\",\"report_uri\":\"https://api.mca.sh/merchant/v1/ledger/ledger-1/report/report-42/\","
+            + "\"ledger\":\"ledger-1\",\"attachment_uri\":null,\"pos_id\":\"pos-1\",\"pos_tid\":\"pos-tid-1\",\"tid\":\"1b2c3d4e5f\"}";
+
+    static final String REPORT_JSON = "{\"transaction_log_uris\":[\"https://api.mca.sh/log/1/\",\"https://api.mca.sh/log/2/\"],"
+            + "\"scope_log_uris\":[\"https://api.mca.sh/scope/1/\"],"
+            + "\"previous_report_uri\":\"https://api.mca.sh/merchant/v1/ledger/ledger-1/report/report-41/\","
+            + "\"settlement_uri\":null,\"status\":\"closed\",\"time_closed\":\"2014-06-17 23:59:59\","
+            + "\"report_summary\":{\"gross\":\"10000.00\",\"transaction_fee\":\"12.30\",\"scope_fee\":\"0.00\","
+            + "\"fees\":[],\"interchange\":\"0.00\",\"currency\":\"NOK\",\"net\":\"9987.70\"},"
+            + "\"callback_uri\":null,\"payment_request_count\":120,\"payment_auth_count\":118,"
+            + "\"payment_capture_count\":117,\"payment_expire_count\":1,\"payment_fail_count\":1,"
+            + "\"payment_abort_count\":0,\"permission_request_count\":0,\"permission_answered_count\":0,"
+            + "\"permission_fail_count\":0}";
+
+    private final JsonFactory jsonFactory = new JacksonFactory();
+    private final ResourceObjectParser objectParser = new ResourceObjectParser(jsonFactory);
+    private final CreatePaymentRequest createPaymentRequest = new CreatePaymentRequest();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    private HttpRequestFactory requestFactory;
+    private HttpRequestFactory legacyRequestFactory;
+    private final GenericUrl outcomeUrl = new GenericUrl("http://localhost/payment_request/1b2c3d4e5f/outcome/");
+    private final GenericUrl reportUrl = new GenericUrl("http://localhost/ledger/ledger-1/report/report-42/");
+
+    @Setup
+    public void setUp() {
+        createPaymentRequest.ledger = "ledger-1";
+        createPaymentRequest.customer = "cust-1";
+        createPaymentRequest.currency = "NOK";
+        createPaymentRequest.amount = "1234.50";
+        createPaymentRequest.additional_amount = "0.00";
+        createPaymentRequest.additional_edit = false;
+        createPaymentRequest.allow_credit = false;
+        createPaymentRequest.pos_id = "pos-1";
+        createPaymentRequest.pos_tid = "pos-tid-1";
+        createPaymentRequest.text = "Coffee and a bun";
+        createPaymentRequest.action = "auth";
+        createPaymentRequest.expires_in = 300;
+        HttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+                        response.setContentType("application/json");
+                        response.setContent(url.contains("/report/") ? REPORT_JSON : OUTCOME_JSON);
+                        return response;
+                    }
+                };
+            }
+        };
+        requestFactory = transport.createRequestFactory(request -> request.setParser(objectParser));
+        legacyRequestFactory = transport.createRequestFactory(
+                request -> request.setParser(new JsonObjectParser(jsonFactory)));
+    }
+
+    @Benchmark
+    public int serializeCreatePaymentRequest() throws IOException {
+        out.reset();
+        HttpContent content = new ResourceContent(jsonFactory, createPaymentRequest);
+        content.writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializeCreatePaymentRequestLegacy() throws IOException {
+        out.reset();
+        JsonHttpContent content = new JsonHttpContent(jsonFactory, createPaymentRequest);
+        content.writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public PaymentRequestOutcome parsePaymentRequestOutcome() throws IOException {
+        return execute(requestFactory, outcomeUrl).parseAs(PaymentRequestOutcome.class);
+    }
+
+    @Benchmark
+    public PaymentRequestOutcome parsePaymentRequestOutcomeLegacy() throws IOException {
+        return execute(legacyRequestFactory, outcomeUrl).parseAs(PaymentRequestOutcome.class);
+    }
+
+    @Benchmark
+    public ReportInfo parseReportInfo() throws IOException {
+        return execute(requestFactory, reportUrl).parseAs(ReportInfo.class);
+    }
+
+    @Benchmark
+    public ReportInfo parseReportInfoLegacy() throws IOException {
+        return execute(legacyRequestFactory, reportUrl).parseAs(ReportInfo.class);
+    }
+
+    private static HttpResponse execute(HttpRequestFactory factory, GenericUrl url) throws IOException {
+        HttpRequest request = factory.buildGetRequest(url);
+        return request.execute();
+    }
+}
@@ -0,0 +1,98 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.benchmarks;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex and GregorianCalendar based DateTime parsing and formatting the
+ * client used before, kept as a baseline for {@link DateTimeBenchmark}.
+ *
+ * @author fiLLLip
+ */
+final class LegacyDateTime {
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private static final Pattern MCASH_DATETIME_PATTERN = Pattern.compile(
+            "^(\\d{4})-(\\d{2})-(\\d{2})"
+            + "( (\\d{2}):(\\d{2}):(\\d{2}))?");
+
+    private LegacyDateTime() {
+    }
+
+    static long parse(String str) {
+        Matcher matcher = MCASH_DATETIME_PATTERN.matcher(str);
+        if (!matcher.matches() || matcher.group(4) == null) {
+            throw new NumberFormatException("Invalid date/time format: " + str);
+        }
+        Calendar dateTime = new GregorianCalendar(GMT);
+        dateTime.set(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)) - 1,
+                Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(5)),
+                Integer.parseInt(matcher.group(6)), Integer.parseInt(matcher.group(7)));
+        return dateTime.getTimeInMillis();
+    }
+
+    static String format(long value) {
+        StringBuilder sb = new StringBuilder();
+        Calendar dateTime = new GregorianCalendar(GMT);
+        dateTime.setTimeInMillis(value);
+        appendInt(sb, dateTime.get(Calendar.YEAR), 4);
+        sb.append('-');
+        appendInt(sb, dateTime.get(Calendar.MONTH) + 1, 2);
+        sb.append('-');
+        appendInt(sb, dateTime.get(Calendar.DAY_OF_MONTH), 2);
+        sb.append(' ');
+        appendInt(sb, dateTime.get(Calendar.HOUR_OF_DAY), 2);
+        sb.append(':');
+        appendInt(sb, dateTime.get(Calendar.MINUTE), 2);
+        sb.append(':');
+        appendInt(sb, dateTime.get(Calendar.SECOND), 2);
+        return sb.toString();
+    }
+
+    private static void appendInt(StringBuilder sb, int num, int numDigits) {
+        if (num < 0) {
+            sb.append('-');
+            num = -num;
+        }
+        int x = num;
+        while (x > 0) {
+            x /= 10;
+            numDigits--;
+        }
+        for (int i = 0; i < numDigits; i++) {
+            sb.append('0');
+        }
+        if (num != 0) {
+            sb.append(num);
+        }
+    }
+}
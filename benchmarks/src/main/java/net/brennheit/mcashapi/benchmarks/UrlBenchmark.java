@@ -0,0 +1,92 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.benchmarks;
+
+import com.google.api.client.http.GenericUrl;
+import java.util.concurrent.TimeUnit;
+import net.brennheit.mcashapi.MCashUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building request URLs, compared with formatting and parsing the whole URL
+ * string as the factories used to.
+ * <p>
+ * Allocation is the point of the templates, so run it with the GC profiler
+ * and compare {@code gc.alloc.rate.norm}:
+ * {@code java -jar target/benchmarks.jar UrlBenchmark -prof gc}
+ *
+ * @author fiLLLip
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+
+    private final String tid = "1b2c3d4e5f";
+    private final String ledger = "ledger-1";
+    private final String reportId = "report-42";
+
+    @Benchmark
+    public MCashUrl paymentRequestOutcome() {
+        return MCashUrl.PaymentRequestOutcome(tid);
+    }
+
+    @Benchmark
+    public String paymentRequestOutcomeBuild() {
+        return MCashUrl.PaymentRequestOutcome(tid).build();
+    }
+
+    @Benchmark
+    public GenericUrl legacyPaymentRequestOutcome() {
+        return new GenericUrl(MCashUrl.getBaseUri() + String.format("/payment_request/%s/outcome/", tid));
+    }
+
+    @Benchmark
+    public String legacyPaymentRequestOutcomeBuild() {
+        return new GenericUrl(MCashUrl.getBaseUri() + String.format("/payment_request/%s/outcome/", tid)).build();
+    }
+
+    @Benchmark
+    public MCashUrl shortlinkLastScan() {
+        return MCashUrl.ShortlinkLastScan(tid, 60);
+    }
+
+    @Benchmark
+    public MCashUrl report() {
+        return MCashUrl.Report(ledger, reportId);
+    }
+}
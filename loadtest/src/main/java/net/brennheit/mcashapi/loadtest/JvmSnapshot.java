@@ -0,0 +1,137 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Thread, allocation and GC counters of the JVM at one instant. Threads of the
+ * simulator are counted apart from the rest, so the client side can be judged
+ * on its own.
+ *
+ * @author fiLLLip
+ */
+class JvmSnapshot {
+
+    static final String SIMULATOR_THREAD_PREFIX = "mcash-simulator-";
+
+    private final long nanos;
+    private final int threads;
+    private final int simulatorThreads;
+    private final long clientAllocatedBytes;
+    private final long simulatorAllocatedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+
+    private JvmSnapshot(long nanos, int threads, int simulatorThreads, long clientAllocatedBytes, long simulatorAllocatedBytes, long gcCount, long gcMillis) {
+        this.nanos = nanos;
+        this.threads = threads;
+        this.simulatorThreads = simulatorThreads;
+        this.clientAllocatedBytes = clientAllocatedBytes;
+        this.simulatorAllocatedBytes = simulatorAllocatedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    /**
+     * Allocation is summed over live threads, so bytes allocated by threads
+     * that die between two snapshots are missed. Reports -1 if the JVM cannot
+     * measure per-thread allocation.
+     */
+    static JvmSnapshot take() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long[] ids = threadBean.getAllThreadIds();
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids);
+        long[] allocated = null;
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                allocated = sunThreadBean.getThreadAllocatedBytes(ids);
+            }
+        }
+        int threads = 0;
+        int simulatorThreads = 0;
+        long clientBytes = allocated == null ? -1 : 0;
+        long simulatorBytes = allocated == null ? -1 : 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null) {
+                continue;
+            }
+            boolean simulator = infos[i].getThreadName().startsWith(SIMULATOR_THREAD_PREFIX);
+            threads++;
+            if (simulator) {
+                simulatorThreads++;
+            }
+            if (allocated != null && allocated[i] > 0) {
+                if (simulator) {
+                    simulatorBytes += allocated[i];
+                } else {
+                    clientBytes += allocated[i];
+                }
+            }
+        }
+        long gcCount = 0;
+        long gcMillis = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        return new JvmSnapshot(System.nanoTime(), threads, simulatorThreads, clientBytes, simulatorBytes, gcCount, gcMillis);
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    int getSimulatorThreads() {
+        return simulatorThreads;
+    }
+
+    long getClientAllocatedBytes() {
+        return clientAllocatedBytes;
+    }
+
+    long getSimulatorAllocatedBytes() {
+        return simulatorAllocatedBytes;
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    long getGcMillis() {
+        return gcMillis;
+    }
+}
@@ -0,0 +1,279 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import net.brennheit.mcashapi.MCashClient;
+import net.brennheit.mcashapi.callback.CallbackServer;
+import net.brennheit.mcashapi.listener.IListenForPaymentUpdated;
+import net.brennheit.mcashapi.metrics.InMemoryMetrics;
+import net.brennheit.mcashapi.metrics.LatencyHistogram;
+import net.brennheit.mcashapi.poller.FixedPollingStrategy;
+import net.brennheit.mcashapi.poller.PollingEngine;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.resource.ResourceId;
+import net.brennheit.mcashapi.simulator.MCashSimulator;
+import net.brennheit.mcashapi.simulator.SimulatedPayment;
+import net.brennheit.mcashapi.transport.MCashTransport;
+
+/**
+ * Drives checkout lanes against an in-process {@link MCashSimulator}: payment
+ * requests are created at a fixed rate, tracked with
+ * {@link MCashClient#startPaymentFinishedListener(String, IListenForPaymentUpdated)}
+ * and captured by the client once the simulated customer authorizes them.
+ *
+ * The rate is kept regardless of how fast earlier payments complete, and
+ * latencies are measured from the scheduled start, so a saturated client
+ * shows up as growing latency instead of a silently lower rate.
+ *
+ * @author fiLLLip
+ */
+public class LoadTest {
+
+    private final LoadTestConfig config;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs warmup, measurement and drain, then stops all lanes.
+     *
+     * @return
+     * @throws IOException if the simulator or callback server cannot start
+     * @throws InterruptedException
+     */
+    public LoadTestReport run() throws IOException, InterruptedException {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Recorder recorder = new Recorder();
+        MCashClient[] lanes = new MCashClient[config.getLanes()];
+        try (MCashSimulator simulator = new MCashSimulator(config.getSimulator());
+                MCashTransport transport = MCashTransport.create(config.getTransport());
+                PollingEngine pollingEngine = new PollingEngine(config.getPollingThreads());
+                CallbackServer callbackServer = config.isCallbacks()
+                        ? new CallbackServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, CallbackServer.DEFAULT_THREADS)
+                        : null) {
+            simulator.start();
+            if (callbackServer != null) {
+                callbackServer.start();
+            }
+            ExecutorService workers = Executors.newFixedThreadPool(config.getWorkers(), new WorkerThreadFactory());
+            try {
+                return generate(simulator, startLanes(lanes, simulator, transport, pollingEngine, callbackServer, metrics), workers, recorder, metrics);
+            } finally {
+                // stop polling before the simulator and transport go away
+                workers.shutdownNow();
+                for (MCashClient lane : lanes) {
+                    if (lane != null) {
+                        lane.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private MCashClient[] startLanes(MCashClient[] lanes, MCashSimulator simulator, MCashTransport transport, PollingEngine pollingEngine, CallbackServer callbackServer, InMemoryMetrics metrics) {
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = MCashClient.builder()
+                    .baseUrl(simulator.getBaseUrl())
+                    .merchantId("loadtest")
+                    .userId("lane-" + i)
+                    .authKey("loadtest")
+                    .posId("lane-" + i)
+                    .ledger("loadtest")
+                    .transport(transport)
+                    .pollingEngine(pollingEngine)
+                    .metrics(metrics)
+                    .build();
+            lanes[i].setPaymentPollingStrategy(new FixedPollingStrategy(config.getPollMillis()));
+            lanes[i].setMaxTrackedPayments(Integer.MAX_VALUE);
+            if (callbackServer != null) {
+                lanes[i].enableCallbacks(callbackServer, config.getCallbackFallbackMillis());
+            }
+        }
+        return lanes;
+    }
+
+    private LoadTestReport generate(MCashSimulator simulator, MCashClient[] lanes, ExecutorService workers, Recorder recorder, InMemoryMetrics metrics) throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRate());
+        long startNanos = System.nanoTime();
+        recorder.measureFrom = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        recorder.measureUntil = recorder.measureFrom + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        JvmSnapshot start = null;
+        for (long i = 0;; i++) {
+            long scheduled = startNanos + i * intervalNanos;
+            if (scheduled - recorder.measureUntil >= 0) {
+                break;
+            }
+            if (start == null && scheduled - recorder.measureFrom >= 0) {
+                start = JvmSnapshot.take();
+                threadBean.resetPeakThreadCount();
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            recorder.behind(-wait);
+            recorder.outstanding.incrementAndGet();
+            workers.execute(new Checkout(simulator, lanes[(int) (i % lanes.length)], recorder, "lt-" + i, scheduled));
+        }
+        if (start == null) {
+            start = JvmSnapshot.take();
+        }
+        JvmSnapshot end = JvmSnapshot.take();
+        int peakThreads = threadBean.getPeakThreadCount();
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getDrainSeconds());
+        while (recorder.outstanding.get() > 0 && drainUntil - System.nanoTime() > 0) {
+            Thread.sleep(10);
+        }
+        return new LoadTestReport(config, recorder, peakThreads, start, end, metrics);
+    }
+
+    /**
+     * Counters and histograms shared by all lanes.
+     */
+    static class Recorder {
+
+        volatile long measureFrom;
+        volatile long measureUntil;
+        volatile long maxBehindNanos;
+        final AtomicLong created = new AtomicLong();
+        final AtomicLong createFailed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong completedInWindow = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong outstanding = new AtomicLong();
+        final LatencyHistogram createLatency = new LatencyHistogram();
+        final LatencyHistogram notifyLatency = new LatencyHistogram();
+        final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+        boolean isMeasured(long scheduledNanos) {
+            return scheduledNanos - measureFrom >= 0 && scheduledNanos - measureUntil < 0;
+        }
+
+        void behind(long nanos) {
+            // only written by the generating thread
+            if (nanos > maxBehindNanos) {
+                maxBehindNanos = nanos;
+            }
+        }
+    }
+
+    private static class Checkout implements Runnable, IListenForPaymentUpdated {
+
+        private final MCashSimulator simulator;
+        private final MCashClient lane;
+        private final Recorder recorder;
+        private final String posTicketId;
+        private final long scheduledNanos;
+
+        Checkout(MCashSimulator simulator, MCashClient lane, Recorder recorder, String posTicketId, long scheduledNanos) {
+            this.simulator = simulator;
+            this.lane = lane;
+            this.recorder = recorder;
+            this.posTicketId = posTicketId;
+            this.scheduledNanos = scheduledNanos;
+        }
+
+        @Override
+        public void run() {
+            ResourceId resourceId = lane.createPaymentRequest(posTicketId, "loadtest", 100.0, "NOK", 0, false, null, false, null, null);
+            if (resourceId == null) {
+                recorder.createFailed.incrementAndGet();
+                recorder.outstanding.decrementAndGet();
+                return;
+            }
+            recorder.created.incrementAndGet();
+            if (recorder.isMeasured(scheduledNanos)) {
+                recorder.createLatency.record(System.nanoTime() - scheduledNanos);
+            }
+            try {
+                lane.startPaymentFinishedListener(resourceId.id, this);
+            } catch (IllegalStateException ex) {
+                recorder.rejected.incrementAndGet();
+                recorder.outstanding.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void paymentFinished(PaymentRequestOutcome paymentRequestOutcome) {
+            long now = System.nanoTime();
+            recorder.outstanding.decrementAndGet();
+            if (now - recorder.measureFrom >= 0 && now - recorder.measureUntil < 0) {
+                recorder.completedInWindow.incrementAndGet();
+            }
+            if ("fail".equals(paymentRequestOutcome.status)) {
+                recorder.failed.incrementAndGet();
+                return;
+            }
+            recorder.completed.incrementAndGet();
+            if (recorder.isMeasured(scheduledNanos)) {
+                SimulatedPayment payment = simulator.getPayment(paymentRequestOutcome.tid);
+                if (payment != null && payment.getAuthNanos() != 0) {
+                    recorder.notifyLatency.record(now - payment.getAuthNanos());
+                }
+                recorder.endToEndLatency.record(now - scheduledNanos);
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "loadtest-lane-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Runs a load test configured by {@code name=value} arguments and prints
+     * the report.
+     *
+     * @param args see {@link LoadTestConfig#parse(String...)}
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        System.out.println(new LoadTest(config).run());
+    }
+}
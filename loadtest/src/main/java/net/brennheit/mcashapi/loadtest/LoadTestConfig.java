@@ -0,0 +1,377 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.loadtest;
+
+import net.brennheit.mcashapi.simulator.SimulatorConfig;
+import net.brennheit.mcashapi.transport.TransportConfig;
+import net.brennheit.mcashapi.transport.TransportType;
+
+/**
+ * Shape of a {@link LoadTest} run: the offered payment rate, how many
+ * checkout lanes share the JVM, how payments are tracked and how the
+ * simulated server behaves.
+ *
+ * @author fiLLLip
+ */
+public class LoadTestConfig {
+
+    private final double rate;
+    private final int lanes;
+    private final int workers;
+    private final long warmupSeconds;
+    private final long durationSeconds;
+    private final long drainSeconds;
+    private final long pollMillis;
+    private final int pollingThreads;
+    private final boolean callbacks;
+    private final long callbackFallbackMillis;
+    private final TransportConfig transport;
+    private final SimulatorConfig simulator;
+
+    private LoadTestConfig(Builder builder) {
+        this.rate = builder.rate;
+        this.lanes = builder.lanes;
+        this.workers = builder.workers;
+        this.warmupSeconds = builder.warmupSeconds;
+        this.durationSeconds = builder.durationSeconds;
+        this.drainSeconds = builder.drainSeconds;
+        this.pollMillis = builder.pollMillis;
+        this.pollingThreads = builder.pollingThreads;
+        this.callbacks = builder.callbacks;
+        this.callbackFallbackMillis = builder.callbackFallbackMillis;
+        this.transport = builder.transport;
+        this.simulator = builder.simulator;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reads a config from {@code name=value} arguments, e.g.
+     * {@code rate=500 lanes=16 callbacks=true latency=5}. Unset values keep
+     * their defaults.
+     *
+     * @param args
+     * @return
+     * @throws IllegalArgumentException on unknown names or invalid values
+     */
+    public static LoadTestConfig parse(String... args) {
+        Builder builder = builder();
+        SimulatorConfig.Builder simulator = SimulatorConfig.builder().authDelayMillis(200);
+        long latency = 0;
+        long jitter = 0;
+        double errorRate = 0;
+        TransportConfig.Builder transport = TransportConfig.builder();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 1) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            String name = arg.substring(0, split);
+            String value = arg.substring(split + 1);
+            try {
+                switch (name) {
+                    case "rate":
+                        builder.rate(Double.parseDouble(value));
+                        break;
+                    case "lanes":
+                        builder.lanes(Integer.parseInt(value));
+                        break;
+                    case "workers":
+                        builder.workers(Integer.parseInt(value));
+                        break;
+                    case "warmup":
+                        builder.warmupSeconds(Long.parseLong(value));
+                        break;
+                    case "duration":
+                        builder.durationSeconds(Long.parseLong(value));
+                        break;
+                    case "drain":
+                        builder.drainSeconds(Long.parseLong(value));
+                        break;
+                    case "poll":
+                        builder.pollMillis(Long.parseLong(value));
+                        break;
+                    case "pollingThreads":
+                        builder.pollingThreads(Integer.parseInt(value));
+                        break;
+                    case "callbacks":
+                        builder.callbacks(Boolean.parseBoolean(value));
+                        break;
+                    case "fallback":
+                        builder.callbackFallbackMillis(Long.parseLong(value));
+                        break;
+                    case "transport":
+                        transport.type(TransportType.valueOf(value));
+                        break;
+                    case "connections":
+                        transport.maxConnections(Integer.parseInt(value)).maxConnectionsPerRoute(Integer.parseInt(value));
+                        break;
+                    case "authDelay":
+                        simulator.authDelayMillis(Long.parseLong(value));
+                        break;
+                    case "serverThreads":
+                        simulator.threads(Integer.parseInt(value));
+                        break;
+                    case "latency":
+                        latency = Long.parseLong(value);
+                        break;
+                    case "jitter":
+                        jitter = Long.parseLong(value);
+                        break;
+                    case "errorRate":
+                        errorRate = Double.parseDouble(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + name);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid " + name + " " + value, ex);
+            }
+        }
+        simulator.latencyMillis(latency, jitter).errors(errorRate, 503);
+        return builder.transport(transport.build()).simulator(simulator.build()).build();
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public long getDrainSeconds() {
+        return drainSeconds;
+    }
+
+    public long getPollMillis() {
+        return pollMillis;
+    }
+
+    public int getPollingThreads() {
+        return pollingThreads;
+    }
+
+    public boolean isCallbacks() {
+        return callbacks;
+    }
+
+    public long getCallbackFallbackMillis() {
+        return callbackFallbackMillis;
+    }
+
+    public TransportConfig getTransport() {
+        return transport;
+    }
+
+    public SimulatorConfig getSimulator() {
+        return simulator;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s lanes=" + lanes + " workers=" + workers
+                + " warmup=" + warmupSeconds + "s duration=" + durationSeconds + "s"
+                + (callbacks ? " callbacks (fallback " + callbackFallbackMillis + "ms)" : " polling every " + pollMillis + "ms")
+                + " pollingThreads=" + pollingThreads
+                + " transport=" + transport.getType() + " connections=" + transport.getMaxConnectionsPerRoute()
+                + " authDelay=" + simulator.getAuthDelayMillis() + "ms latency=" + simulator.getLatencyMillis()
+                + "+" + simulator.getLatencyJitterMillis() + "ms errorRate=" + simulator.getErrorRate();
+    }
+
+    public static final class Builder {
+
+        private double rate = 100;
+        private int lanes = 8;
+        private int workers = 64;
+        private long warmupSeconds = 5;
+        private long durationSeconds = 30;
+        private long drainSeconds = 10;
+        private long pollMillis = 100;
+        private int pollingThreads = 2;
+        private boolean callbacks;
+        private long callbackFallbackMillis = 2000;
+        private TransportConfig transport = TransportConfig.defaults();
+        private SimulatorConfig simulator = SimulatorConfig.builder().authDelayMillis(200).build();
+
+        private Builder() {
+        }
+
+        /**
+         *
+         * @param rate payment requests created per second, regardless of how
+         * fast earlier ones complete
+         * @return
+         */
+        public Builder rate(double rate) {
+            if (!(rate > 0)) {
+                throw new IllegalArgumentException("Invalid rate " + rate);
+            }
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         *
+         * @param lanes checkout lanes, each with its own client and pos_id
+         * @return
+         */
+        public Builder lanes(int lanes) {
+            if (lanes < 1) {
+                throw new IllegalArgumentException("Invalid lanes " + lanes);
+            }
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         *
+         * @param workers threads creating payment requests
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("Invalid workers " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         *
+         * @param warmupSeconds seconds of load before measuring starts
+         * @return
+         */
+        public Builder warmupSeconds(long warmupSeconds) {
+            if (warmupSeconds < 0) {
+                throw new IllegalArgumentException("Invalid warmup " + warmupSeconds);
+            }
+            this.warmupSeconds = warmupSeconds;
+            return this;
+        }
+
+        public Builder durationSeconds(long durationSeconds) {
+            if (durationSeconds < 1) {
+                throw new IllegalArgumentException("Invalid duration " + durationSeconds);
+            }
+            this.durationSeconds = durationSeconds;
+            return this;
+        }
+
+        /**
+         *
+         * @param drainSeconds how long to wait for outstanding payments after
+         * the last one is created
+         * @return
+         */
+        public Builder drainSeconds(long drainSeconds) {
+            if (drainSeconds < 0) {
+                throw new IllegalArgumentException("Invalid drain " + drainSeconds);
+            }
+            this.drainSeconds = drainSeconds;
+            return this;
+        }
+
+        /**
+         *
+         * @param pollMillis fixed delay between outcome polls
+         * @return
+         */
+        public Builder pollMillis(long pollMillis) {
+            if (pollMillis < 1) {
+                throw new IllegalArgumentException("Invalid poll delay " + pollMillis);
+            }
+            this.pollMillis = pollMillis;
+            return this;
+        }
+
+        public Builder pollingThreads(int pollingThreads) {
+            if (pollingThreads < 1) {
+                throw new IllegalArgumentException("Invalid polling threads " + pollingThreads);
+            }
+            this.pollingThreads = pollingThreads;
+            return this;
+        }
+
+        /**
+         *
+         * @param callbacks receive outcomes through a callback server instead
+         * of polling
+         * @return
+         */
+        public Builder callbacks(boolean callbacks) {
+            this.callbacks = callbacks;
+            return this;
+        }
+
+        public Builder callbackFallbackMillis(long callbackFallbackMillis) {
+            if (callbackFallbackMillis < 0) {
+                throw new IllegalArgumentException("Invalid fallback delay " + callbackFallbackMillis);
+            }
+            this.callbackFallbackMillis = callbackFallbackMillis;
+            return this;
+        }
+
+        /**
+         *
+         * @param transport transport shared by all lanes
+         * @return
+         */
+        public Builder transport(TransportConfig transport) {
+            if (transport == null) {
+                throw new IllegalArgumentException("Transport config is required");
+            }
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder simulator(SimulatorConfig simulator) {
+            if (simulator == null) {
+                throw new IllegalArgumentException("Simulator config is required");
+            }
+            this.simulator = simulator;
+            return this;
+        }
+
+        public LoadTestConfig build() {
+            return new LoadTestConfig(this);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.loadtest;
+
+import java.util.Locale;
+import net.brennheit.mcashapi.EndpointFamily;
+import net.brennheit.mcashapi.metrics.EndpointMetrics;
+import net.brennheit.mcashapi.metrics.InMemoryMetrics;
+import net.brennheit.mcashapi.metrics.LatencyHistogram;
+
+/**
+ * Outcome of a {@link LoadTest} run. Latencies are in nanoseconds and only
+ * cover payment requests created after the warmup.
+ *
+ * @author fiLLLip
+ */
+public class LoadTestReport {
+
+    private final LoadTestConfig config;
+    private final double windowSeconds;
+    private final long created;
+    private final long createFailed;
+    private final long rejected;
+    private final long completed;
+    private final long completedInWindow;
+    private final long failed;
+    private final long unfinished;
+    private final long maxBehindNanos;
+    private final LatencyHistogram createLatency;
+    private final LatencyHistogram notifyLatency;
+    private final LatencyHistogram endToEndLatency;
+    private final int peakThreads;
+    private final JvmSnapshot start;
+    private final JvmSnapshot end;
+    private final InMemoryMetrics metrics;
+
+    LoadTestReport(LoadTestConfig config, LoadTest.Recorder recorder, int peakThreads, JvmSnapshot start, JvmSnapshot end, InMemoryMetrics metrics) {
+        this.config = config;
+        this.windowSeconds = (end.getNanos() - start.getNanos()) / 1e9;
+        this.created = recorder.created.get();
+        this.createFailed = recorder.createFailed.get();
+        this.rejected = recorder.rejected.get();
+        this.completed = recorder.completed.get();
+        this.completedInWindow = recorder.completedInWindow.get();
+        this.failed = recorder.failed.get();
+        this.unfinished = recorder.outstanding.get();
+        this.maxBehindNanos = recorder.maxBehindNanos;
+        this.createLatency = recorder.createLatency;
+        this.notifyLatency = recorder.notifyLatency;
+        this.endToEndLatency = recorder.endToEndLatency;
+        this.peakThreads = peakThreads;
+        this.start = start;
+        this.end = end;
+        this.metrics = metrics;
+    }
+
+    public LoadTestConfig getConfig() {
+        return config;
+    }
+
+    /**
+     *
+     * @return payments whose listener ran during the measured window, per
+     * second
+     */
+    public double getThroughput() {
+        return completedInWindow / windowSeconds;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getCreateFailed() {
+        return createFailed;
+    }
+
+    /**
+     *
+     * @return payments that could not be tracked because a lane reached its
+     * limit of tracked payments
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     *
+     * @return payments still awaiting their listener when the run ended
+     */
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    /**
+     *
+     * @return time from the scheduled start of a payment request until it
+     * was created
+     */
+    public LatencyHistogram getCreateLatency() {
+        return createLatency;
+    }
+
+    /**
+     *
+     * @return time from the customer authorizing a payment on the server
+     * until its listener ran
+     */
+    public LatencyHistogram getNotifyLatency() {
+        return notifyLatency;
+    }
+
+    /**
+     *
+     * @return time from the scheduled start of a payment request until its
+     * listener ran
+     */
+    public LatencyHistogram getEndToEndLatency() {
+        return endToEndLatency;
+    }
+
+    public int getPeakThreads() {
+        return peakThreads;
+    }
+
+    public int getThreads() {
+        return end.getThreads();
+    }
+
+    public int getClientThreads() {
+        return end.getThreads() - end.getSimulatorThreads();
+    }
+
+    /**
+     *
+     * @return bytes per second allocated by threads other than the
+     * simulator's, or -1 if not measurable
+     */
+    public double getClientAllocationRate() {
+        return rate(start.getClientAllocatedBytes(), end.getClientAllocatedBytes());
+    }
+
+    public double getSimulatorAllocationRate() {
+        return rate(start.getSimulatorAllocatedBytes(), end.getSimulatorAllocatedBytes());
+    }
+
+    public long getGcCount() {
+        return end.getGcCount() - start.getGcCount();
+    }
+
+    public long getGcMillis() {
+        return end.getGcMillis() - start.getGcMillis();
+    }
+
+    private double rate(long before, long after) {
+        if (before < 0 || after < 0) {
+            return -1;
+        }
+        return Math.max(0, after - before) / windowSeconds;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(config).append('\n');
+        sb.append(String.format(Locale.ROOT, "throughput     %10.1f payments/s (offered %.1f/s, window %.1fs)%n", getThroughput(), config.getRate(), windowSeconds));
+        sb.append(String.format(Locale.ROOT, "payments       %d created, %d create failed, %d rejected, %d completed, %d failed, %d unfinished%n",
+                created, createFailed, rejected, completed, failed, unfinished));
+        sb.append(String.format(Locale.ROOT, "generator lag  %10.2f ms max%n", maxBehindNanos / 1e6));
+        appendLatency(sb, "create", createLatency);
+        appendLatency(sb, "auth->listener", notifyLatency);
+        appendLatency(sb, "end to end", endToEndLatency);
+        sb.append(String.format(Locale.ROOT, "threads        %d live (%d client, %d simulator), %d peak%n",
+                getThreads(), getClientThreads(), end.getSimulatorThreads(), peakThreads));
+        sb.append(String.format(Locale.ROOT, "allocation     %10.1f MB/s client, %.1f MB/s simulator%n",
+                getClientAllocationRate() / (1 << 20), getSimulatorAllocationRate() / (1 << 20)));
+        sb.append(String.format(Locale.ROOT, "gc             %d collections, %d ms%n", getGcCount(), getGcMillis()));
+        for (EndpointFamily family : EndpointFamily.values()) {
+            EndpointMetrics endpoint = metrics.getEndpoint(family);
+            if (endpoint.getRequests() > 0) {
+                sb.append(String.format(Locale.ROOT, "%-14s %d requests, %d errors, p50 %.2f ms, p99 %.2f ms%n",
+                        family, endpoint.getRequests(), endpoint.getErrors(), endpoint.getLatencyP50Millis(), endpoint.getLatencyP99Millis()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendLatency(StringBuilder sb, String name, LatencyHistogram histogram) {
+        sb.append(String.format(Locale.ROOT, "%-14s p50 %8.2f ms  p99 %8.2f ms  p999 %8.2f ms  max %8.2f ms (%d)%n", name,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMax() / 1e6, histogram.getCount()));
+    }
+}
@@ -0,0 +1,727 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.simulator;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.brennheit.mcashapi.json.ResourceContent;
+import net.brennheit.mcashapi.json.ResourceObjectParser;
+import net.brennheit.mcashapi.resource.CallbackMeta;
+import net.brennheit.mcashapi.resource.CallbackUri;
+import net.brennheit.mcashapi.resource.CreatePaymentRequest;
+import net.brennheit.mcashapi.resource.LedgerOverview;
+import net.brennheit.mcashapi.resource.Merchant;
+import net.brennheit.mcashapi.resource.PaymentRequestCallback;
+import net.brennheit.mcashapi.resource.PaymentRequestDetails;
+import net.brennheit.mcashapi.resource.ReportCallback;
+import net.brennheit.mcashapi.resource.ResourceId;
+import net.brennheit.mcashapi.resource.Shortlink;
+import net.brennheit.mcashapi.resource.ShortlinkLastScan;
+import net.brennheit.mcashapi.resource.ShortlinkScanCallback;
+import net.brennheit.mcashapi.resource.Tickets;
+import net.brennheit.mcashapi.resource.UpdatePaymentRequest;
+
+/**
+ * In-process stand-in for the mCASH merchant API, serving the endpoints of
+ * {@link net.brennheit.mcashapi.MCashUrl} on a loopback port. Payments move
+ * through pending, auth and ok or fail on their own, reports take a while to
+ * close, and callbacks are posted when a callback_uri is given. Latency,
+ * error statuses and dropped connections can be injected to test clients
+ * under load and failure without network access.
+ *
+ * Any merchant, user and SECRET key is accepted. Ledgers are created on first
+ * use.
+ *
+ * @author fiLLLip
+ */
+public class MCashSimulator implements AutoCloseable {
+
+    public static final String BASE_PATH = "/merchant/v1";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final JsonFactory JSON_FACTORY = new JacksonFactory();
+    private static final ResourceObjectParser PARSER = new ResourceObjectParser(JSON_FACTORY);
+    private static final AtomicInteger SIMULATOR_COUNT = new AtomicInteger();
+
+    static {
+        // without TCP_NODELAY small responses wait for delayed ACKs, adding
+        // about 40 ms to every loopback request; read once per JVM
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService callbacks;
+    private final String baseUrl;
+    private volatile SimulatorConfig config;
+    private final ConcurrentMap<String, SimulatedPayment> payments = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> paymentsByPosTid = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SimulatedLedger> ledgers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Shortlink> shortlinks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Scan> lastScans = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong droppedConnections = new AtomicLong();
+    private final AtomicLong callbacksSent = new AtomicLong();
+
+    /**
+     * Binds to the loopback interface; call {@link #start()} to serve.
+     *
+     * @param config
+     * @throws IOException if the port is taken
+     */
+    public MCashSimulator(SimulatorConfig config) throws IOException {
+        this.config = config;
+        int id = SIMULATOR_COUNT.incrementAndGet();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getPort()), 0);
+        this.handlers = Executors.newFixedThreadPool(config.getThreads(), new SimulatorThreadFactory("mcash-simulator-" + id + "-http-"));
+        this.scheduler = new ScheduledThreadPoolExecutor(2, new SimulatorThreadFactory("mcash-simulator-" + id + "-timer-"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.callbacks = Executors.newFixedThreadPool(4, new SimulatorThreadFactory("mcash-simulator-" + id + "-callback-"));
+        this.server.setExecutor(handlers);
+        this.server.createContext(BASE_PATH + "/", new ApiHandler());
+        this.baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + BASE_PATH;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        callbacks.shutdownNow();
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *
+     * @return base URL to build clients with
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public SimulatorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Changes lifecycle timing and injected faults. Payments already created
+     * keep their scheduled authorization.
+     *
+     * @param config
+     */
+    public void setConfig(SimulatorConfig config) {
+        this.config = config;
+    }
+
+    /**
+     *
+     * @param tid
+     * @return payment request, or null if unknown
+     */
+    public SimulatedPayment getPayment(String tid) {
+        return payments.get(tid);
+    }
+
+    public Collection<SimulatedPayment> getPayments() {
+        return Collections.unmodifiableCollection(payments.values());
+    }
+
+    /**
+     * Lets the customer accept a pending payment request now.
+     *
+     * @param tid
+     * @return false if the payment is unknown or not pending
+     */
+    public boolean authorize(String tid) {
+        SimulatedPayment payment = payments.get(tid);
+        if (payment == null || !payment.authorize(System.nanoTime(), System.currentTimeMillis())) {
+            return false;
+        }
+        paymentCallback(payment, "payment_authorized");
+        return true;
+    }
+
+    /**
+     * Lets the customer reject a pending payment request now.
+     *
+     * @param tid
+     * @return false if the payment is unknown or already finished
+     */
+    public boolean reject(String tid) {
+        SimulatedPayment payment = payments.get(tid);
+        if (payment == null || !payment.fail(System.currentTimeMillis(), false)) {
+            return false;
+        }
+        paymentCallback(payment, "payment_failed");
+        return true;
+    }
+
+    /**
+     * Lets a customer scan a shortlink.
+     *
+     * @param shortlinkId
+     * @param argstring
+     * @return false if the shortlink is unknown
+     */
+    public boolean scan(String shortlinkId, String argstring) {
+        Shortlink shortlink = shortlinks.get(shortlinkId);
+        if (shortlink == null) {
+            return false;
+        }
+        ShortlinkLastScan lastScan = new ShortlinkLastScan();
+        lastScan.id = "scan-" + ids.incrementAndGet();
+        lastScan.argstring = argstring;
+        lastScans.put(shortlinkId, new Scan(lastScan, System.currentTimeMillis()));
+        if (shortlink.callback_uri != null) {
+            ShortlinkScanCallback callback = new ShortlinkScanCallback();
+            callback.meta = meta("shortlink_scanned", baseUrl + "/shortlink/" + shortlinkId + "/last_scan/");
+            callback.object = lastScan;
+            postCallback(shortlink.callback_uri, callback);
+        }
+        return true;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getDroppedConnections() {
+        return droppedConnections.get();
+    }
+
+    public long getCallbacksSent() {
+        return callbacksSent.get();
+    }
+
+    private Reply handle(String method, List<String> path, byte[] body, URI uri) throws IOException {
+        String resource = path.isEmpty() ? "" : path.get(0);
+        switch (resource) {
+            case "payment_request":
+                return handlePaymentRequest(method, path, body);
+            case "shortlink":
+                return handleShortlink(method, path, body, uri);
+            case "ledger":
+                return handleLedger(method, path, body);
+            case "merchant":
+                if (path.size() == 2 && "GET".equals(method)) {
+                    Merchant merchant = new Merchant();
+                    merchant.id = path.get(1);
+                    merchant.business_name = "Simulated merchant " + merchant.id;
+                    merchant.jurisdiction = "NO";
+                    return Reply.json(200, merchant);
+                }
+                break;
+            default:
+                break;
+        }
+        return Reply.status(404);
+    }
+
+    private Reply handlePaymentRequest(String method, List<String> path, byte[] body) throws IOException {
+        if (path.size() == 1 && "POST".equals(method)) {
+            return createPayment(parse(body, CreatePaymentRequest.class));
+        }
+        SimulatedPayment payment = path.size() < 2 ? null : payments.get(path.get(1));
+        if (payment == null) {
+            return Reply.status(404);
+        }
+        if (path.size() == 2 && "GET".equals(method)) {
+            return Reply.json(200, details(payment));
+        }
+        if (path.size() == 2 && "PUT".equals(method)) {
+            return updatePayment(payment, parse(body, UpdatePaymentRequest.class));
+        }
+        if (path.size() == 3 && "outcome".equals(path.get(2)) && "GET".equals(method)) {
+            return Reply.json(200, payment.toOutcome(baseUrl));
+        }
+        if (path.size() == 3 && "ticket".equals(path.get(2)) && "PUT".equals(method)) {
+            parse(body, Tickets.class);
+            return Reply.status(204);
+        }
+        return Reply.status(405);
+    }
+
+    private Reply createPayment(CreatePaymentRequest request) throws IOException {
+        if (request == null || request.amount == null || request.pos_id == null) {
+            return Reply.status(400);
+        }
+        String posKey = request.pos_tid == null ? null : request.pos_id + '\u0000' + request.pos_tid;
+        String tid = Long.toString(ids.incrementAndGet(), 36) + UUID.randomUUID().toString().substring(0, 8);
+        if (posKey != null) {
+            String existing = paymentsByPosTid.putIfAbsent(posKey, tid);
+            if (existing != null) {
+                // mCASH drops duplicates of a pos_tid
+                return Reply.json(201, resourceId(existing));
+            }
+        }
+        SimulatedLedger ledger = ledger(request.ledger == null ? "default" : request.ledger);
+        SimulatedLedger.Report report = ledger.getOpenReport();
+        final SimulatedPayment payment = new SimulatedPayment(tid, request, report, System.currentTimeMillis());
+        payments.put(tid, payment);
+        report.paymentCreated();
+        SimulatorConfig current = config;
+        long authDelay = current.getAuthDelayMillis();
+        long expiresIn = payment.getExpiresMillis() - payment.getCreatedMillis();
+        if (authDelay >= 0 && authDelay < expiresIn) {
+            final boolean reject = ThreadLocalRandom.current().nextDouble() < current.getAuthFailRate();
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (reject) {
+                        reject(payment.getTid());
+                    } else {
+                        authorize(payment.getTid());
+                    }
+                }
+            }, authDelay, TimeUnit.MILLISECONDS);
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (payment.fail(System.currentTimeMillis(), true)) {
+                    paymentCallback(payment, "payment_expired");
+                }
+            }
+        }, expiresIn, TimeUnit.MILLISECONDS);
+        return Reply.json(201, resourceId(tid));
+    }
+
+    private Reply updatePayment(SimulatedPayment payment, UpdatePaymentRequest update) throws IOException {
+        if (update == null) {
+            return Reply.status(400);
+        }
+        if (update.callback_uri != null) {
+            payment.setCallbackUri(update.callback_uri);
+        }
+        long now = System.currentTimeMillis();
+        if ("capture".equals(update.action)) {
+            if (!payment.capture(now)) {
+                return Reply.status(409);
+            }
+            paymentCallback(payment, "payment_captured");
+        } else if ("abort".equals(update.action)) {
+            if (!payment.fail(now, false)) {
+                return Reply.status(409);
+            }
+            paymentCallback(payment, "payment_aborted");
+        } else if (update.action != null) {
+            return Reply.status(400);
+        }
+        return Reply.status(204);
+    }
+
+    private Reply handleShortlink(String method, List<String> path, byte[] body, URI uri) throws IOException {
+        if (path.size() == 1 && "POST".equals(method)) {
+            Shortlink shortlink = parse(body, Shortlink.class);
+            if (shortlink == null) {
+                return Reply.status(400);
+            }
+            String id = "shortlink-" + ids.incrementAndGet();
+            shortlinks.put(id, shortlink);
+            return Reply.json(201, resourceId(id));
+        }
+        Shortlink shortlink = path.size() < 2 ? null : shortlinks.get(path.get(1));
+        if (shortlink == null || !"GET".equals(method)) {
+            return Reply.status(shortlink == null ? 404 : 405);
+        }
+        if (path.size() == 2) {
+            return Reply.json(200, shortlink);
+        }
+        if (path.size() == 3 && "last_scan".equals(path.get(2))) {
+            Scan scan = lastScans.get(path.get(1));
+            long ttlMillis = ttlSeconds(uri) * 1000L;
+            if (scan == null || (ttlMillis > 0 && scan.millis < System.currentTimeMillis() - ttlMillis)) {
+                // no recent scan
+                return Reply.json(200, new ShortlinkLastScan());
+            }
+            return Reply.json(200, scan.lastScan);
+        }
+        return Reply.status(404);
+    }
+
+    private Reply handleLedger(String method, List<String> path, byte[] body) throws IOException {
+        if (path.size() == 1 && "GET".equals(method)) {
+            LedgerOverview overview = new LedgerOverview();
+            List<String> uris = new ArrayList<>();
+            for (SimulatedLedger ledger : ledgers.values()) {
+                uris.add(ledger.getUri(baseUrl));
+            }
+            Collections.sort(uris);
+            overview.uris = uris;
+            return Reply.json(200, overview);
+        }
+        if (path.size() < 2) {
+            return Reply.status(405);
+        }
+        SimulatedLedger ledger = ledger(path.get(1));
+        if (path.size() == 2 && "GET".equals(method)) {
+            return Reply.json(200, ledger.toDetail(baseUrl));
+        }
+        if (path.size() != 4 || !"report".equals(path.get(2))) {
+            return Reply.status(404);
+        }
+        final SimulatedLedger.Report report = ledger.getReport(path.get(3));
+        if (report == null) {
+            return Reply.status(404);
+        }
+        if ("GET".equals(method)) {
+            return Reply.json(200, report.toInfo(baseUrl));
+        }
+        if ("PUT".equals(method)) {
+            CallbackUri callback = body.length == 0 ? null : parse(body, CallbackUri.class);
+            if (!ledger.startClosing(report, callback == null ? null : callback.callback_uri)) {
+                return Reply.status(409);
+            }
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    report.closed(System.currentTimeMillis());
+                    String callbackUri = report.getCallbackUri();
+                    if (callbackUri != null) {
+                        ReportCallback reportCallback = new ReportCallback();
+                        reportCallback.meta = meta("report_closed", report.getUri(baseUrl));
+                        reportCallback.object = report.toInfo(baseUrl);
+                        postCallback(callbackUri, reportCallback);
+                    }
+                }
+            }, config.getReportCloseDelayMillis(), TimeUnit.MILLISECONDS);
+            return Reply.status(204);
+        }
+        return Reply.status(405);
+    }
+
+    private SimulatedLedger ledger(String id) {
+        SimulatedLedger ledger = ledgers.get(id);
+        if (ledger == null) {
+            SimulatedLedger created = new SimulatedLedger(id);
+            ledger = ledgers.putIfAbsent(id, created);
+            if (ledger == null) {
+                ledger = created;
+            }
+        }
+        return ledger;
+    }
+
+    private PaymentRequestDetails details(SimulatedPayment payment) {
+        PaymentRequestDetails details = new PaymentRequestDetails();
+        details.pos_id = payment.getPosId();
+        details.pos_tid = payment.getPosTid();
+        details.amount = payment.getAmount();
+        details.ledger = payment.getReport().getLedger().getId();
+        details.callback_uri = payment.getCallbackUri();
+        return details;
+    }
+
+    private void paymentCallback(SimulatedPayment payment, String event) {
+        String callbackUri = payment.getCallbackUri();
+        if (callbackUri == null) {
+            return;
+        }
+        PaymentRequestCallback callback = new PaymentRequestCallback();
+        callback.meta = meta(event, baseUrl + "/payment_request/" + payment.getTid() + "/outcome/");
+        callback.object = payment.toOutcome(baseUrl);
+        postCallback(callbackUri, callback);
+    }
+
+    private static CallbackMeta meta(String event, String uri) {
+        CallbackMeta meta = new CallbackMeta();
+        meta.id = UUID.randomUUID().toString();
+        meta.event = event;
+        meta.timestamp = SimulatedPayment.format(System.currentTimeMillis());
+        meta.uri = uri;
+        return meta;
+    }
+
+    private void postCallback(final String callbackUri, Object callback) {
+        final byte[] body;
+        try {
+            body = toJson(callback);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashSimulator.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+        callbacks.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    HttpURLConnection connection = (HttpURLConnection) new URL(callbackUri).openConnection();
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty("Content-Type", "application/json");
+                    try (OutputStream out = connection.getOutputStream()) {
+                        out.write(body);
+                    }
+                    connection.getResponseCode();
+                    connection.getInputStream().close();
+                    callbacksSent.incrementAndGet();
+                } catch (IOException ex) {
+                    Logger.getLogger(MCashSimulator.class.getName()).log(Level.WARNING, "Callback to " + callbackUri + " failed", ex);
+                }
+            }
+        });
+    }
+
+    private static ResourceId resourceId(String id) {
+        ResourceId resourceId = new ResourceId();
+        resourceId.id = id;
+        return resourceId;
+    }
+
+    private static long ttlSeconds(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("ttl=")) {
+                try {
+                    return Long.parseLong(parameter.substring(4));
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static <T> T parse(byte[] body, Class<T> type) throws IOException {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return PARSER.parseAndClose(new ByteArrayInputStream(body), UTF_8, type);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed " + type.getSimpleName(), ex);
+        }
+    }
+
+    private static byte[] toJson(Object resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        new ResourceContent(JSON_FACTORY, resource).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isAuthorized(HttpExchange exchange) {
+        String merchant = exchange.getRequestHeaders().getFirst("X-Mcash-Merchant");
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        return merchant != null && authorization != null && authorization.startsWith("SECRET ");
+    }
+
+    private static List<String> pathOf(URI uri) {
+        String path = uri.getRawPath().substring(BASE_PATH.length());
+        List<String> parts = new ArrayList<>(Arrays.asList(path.split("/")));
+        parts.removeAll(Collections.singleton(""));
+        return parts;
+    }
+
+    private static void send(HttpExchange exchange, Reply reply) {
+        try {
+            if (reply.body == null) {
+                exchange.sendResponseHeaders(reply.status, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(reply.status, reply.body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(reply.body);
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(MCashSimulator.class.getName()).log(Level.FINE, null, ex);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Starts a simulator until the process is killed.
+     *
+     * @param args port, default 8080
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        MCashSimulator simulator = new MCashSimulator(SimulatorConfig.builder().port(port).build());
+        simulator.start();
+        System.out.println("mCASH simulator listening on " + simulator.getBaseUrl());
+    }
+
+    private class ApiHandler implements HttpHandler {
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            SimulatorConfig current = config;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (current.getDropRate() > 0 && random.nextDouble() < current.getDropRate()) {
+                droppedConnections.incrementAndGet();
+                // closing without a response resets the connection
+                exchange.getResponseBody().close();
+                exchange.close();
+                return;
+            }
+            Reply reply;
+            if (!isAuthorized(exchange)) {
+                reply = Reply.status(401);
+            } else if (current.getErrorRate() > 0 && random.nextDouble() < current.getErrorRate()) {
+                injectedErrors.incrementAndGet();
+                reply = Reply.status(current.getErrorStatus());
+            } else {
+                try {
+                    byte[] body = readBody(exchange.getRequestBody());
+                    reply = MCashSimulator.this.handle(exchange.getRequestMethod(), pathOf(exchange.getRequestURI()), body, exchange.getRequestURI());
+                } catch (IOException ex) {
+                    reply = Reply.status(400);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(MCashSimulator.class.getName()).log(Level.SEVERE, null, ex);
+                    reply = Reply.status(500);
+                }
+            }
+            long delay = current.getLatencyMillis();
+            if (current.getLatencyJitterMillis() > 0) {
+                delay += random.nextLong(current.getLatencyJitterMillis() + 1);
+            }
+            if (delay <= 0) {
+                send(exchange, reply);
+                return;
+            }
+            final Reply delayed = reply;
+            // responds from the timer so slow responses do not hold handler threads
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    send(exchange, delayed);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class Reply {
+
+        private final int status;
+        private final byte[] body;
+
+        private Reply(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Reply status(int status) {
+            return new Reply(status, null);
+        }
+
+        static Reply json(int status, Object resource) throws IOException {
+            return new Reply(status, toJson(resource));
+        }
+    }
+
+    private static final class Scan {
+
+        private final ShortlinkLastScan lastScan;
+        private final long millis;
+
+        Scan(ShortlinkLastScan lastScan, long millis) {
+            this.lastScan = lastScan;
+            this.millis = millis;
+        }
+    }
+
+    private static class SimulatorThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        SimulatorThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
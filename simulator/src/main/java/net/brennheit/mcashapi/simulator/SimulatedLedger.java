@@ -0,0 +1,199 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.ReportInfo;
+import net.brennheit.mcashapi.resource.ReportSummary;
+
+/**
+ * Ledger of a {@link MCashSimulator} with its open and closed reports.
+ *
+ * @author fiLLLip
+ */
+class SimulatedLedger {
+
+    private final String id;
+    private final AtomicInteger reportCount = new AtomicInteger();
+    private final List<Report> reports = new ArrayList<>();
+    private Report openReport;
+
+    SimulatedLedger(String id) {
+        this.id = id;
+        this.openReport = newReport(null);
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getUri(String baseUrl) {
+        return baseUrl + "/ledger/" + id + "/";
+    }
+
+    synchronized Report getOpenReport() {
+        return openReport;
+    }
+
+    synchronized Report getReport(String reportId) {
+        for (Report report : reports) {
+            if (report.id.equals(reportId)) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts closing the report and opens a new one for later payments.
+     *
+     * @param report
+     * @param callbackUri
+     * @return false if the report is not open
+     */
+    synchronized boolean startClosing(Report report, String callbackUri) {
+        if (report != openReport) {
+            return false;
+        }
+        report.closing(callbackUri);
+        openReport = newReport(report);
+        return true;
+    }
+
+    synchronized LedgerDetail toDetail(String baseUrl) {
+        LedgerDetail detail = new LedgerDetail();
+        detail.id = id;
+        detail.currency = "NOK";
+        detail.description = "Simulated ledger " + id;
+        detail.open_report_uri = openReport.getUri(baseUrl);
+        Report lastClosed = null;
+        for (Report report : reports) {
+            if (report.isClosed()) {
+                lastClosed = report;
+            }
+        }
+        detail.last_closed_report_uri = lastClosed == null ? null : lastClosed.getUri(baseUrl);
+        return detail;
+    }
+
+    private Report newReport(Report previous) {
+        Report report = new Report(id + "-report-" + reportCount.incrementAndGet(), previous);
+        reports.add(report);
+        return report;
+    }
+
+    final class Report {
+
+        private final String id;
+        private final Report previous;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger auths = new AtomicInteger();
+        private final AtomicInteger captures = new AtomicInteger();
+        private final AtomicInteger expires = new AtomicInteger();
+        private final AtomicInteger fails = new AtomicInteger();
+        private String status = "open";
+        private long closedMillis;
+        private String callbackUri;
+
+        private Report(String id, Report previous) {
+            this.id = id;
+            this.previous = previous;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getUri(String baseUrl) {
+            return SimulatedLedger.this.getUri(baseUrl) + "report/" + id + "/";
+        }
+
+        SimulatedLedger getLedger() {
+            return SimulatedLedger.this;
+        }
+
+        synchronized boolean isClosed() {
+            return "closed".equals(status);
+        }
+
+        synchronized String getCallbackUri() {
+            return callbackUri;
+        }
+
+        private synchronized void closing(String callbackUri) {
+            this.status = "closing";
+            this.callbackUri = callbackUri;
+        }
+
+        synchronized void closed(long millis) {
+            this.status = "closed";
+            this.closedMillis = millis;
+        }
+
+        void paymentCreated() {
+            requests.incrementAndGet();
+        }
+
+        void paymentAuthorized() {
+            auths.incrementAndGet();
+        }
+
+        void paymentCaptured() {
+            captures.incrementAndGet();
+        }
+
+        void paymentExpired() {
+            expires.incrementAndGet();
+        }
+
+        void paymentFailed() {
+            fails.incrementAndGet();
+        }
+
+        synchronized ReportInfo toInfo(String baseUrl) {
+            ReportInfo info = new ReportInfo();
+            info.status = status;
+            info.time_closed = closedMillis == 0 ? null : SimulatedPayment.format(closedMillis);
+            info.previous_report_uri = previous == null ? null : previous.getUri(baseUrl);
+            info.callback_uri = callbackUri;
+            info.transaction_log_uris = new ArrayList<>();
+            info.scope_log_uris = new ArrayList<>();
+            info.payment_request_count = requests.get();
+            info.payment_auth_count = auths.get();
+            info.payment_capture_count = captures.get();
+            info.payment_expire_count = expires.get();
+            info.payment_fail_count = fails.get();
+            ReportSummary summary = new ReportSummary();
+            summary.currency = "NOK";
+            summary.fees = new ArrayList<>();
+            info.report_summary = summary;
+            return info;
+        }
+    }
+}
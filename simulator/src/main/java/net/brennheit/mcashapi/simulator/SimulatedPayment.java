@@ -0,0 +1,202 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.simulator;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import net.brennheit.mcashapi.resource.Capture;
+import net.brennheit.mcashapi.resource.CreatePaymentRequest;
+import net.brennheit.mcashapi.resource.DateTime;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+
+/**
+ * Payment request held by a {@link MCashSimulator}. Moves from pending to
+ * auth (customer accepted) or fail (rejected, aborted or expired), and from
+ * auth to ok when captured.
+ *
+ * @author fiLLLip
+ */
+public class SimulatedPayment {
+
+    public static final String PENDING = "pending";
+    public static final String AUTH = "auth";
+    public static final String OK = "ok";
+    public static final String FAIL = "fail";
+
+    private final String tid;
+    private final CreatePaymentRequest request;
+    private final SimulatedLedger.Report report;
+    private final long createdMillis;
+    private final long expiresMillis;
+    private String status = PENDING;
+    private long modifiedMillis;
+    private long authNanos;
+    private String callbackUri;
+
+    SimulatedPayment(String tid, CreatePaymentRequest request, SimulatedLedger.Report report, long createdMillis) {
+        this.tid = tid;
+        this.request = request;
+        this.report = report;
+        this.createdMillis = createdMillis;
+        this.modifiedMillis = createdMillis;
+        this.expiresMillis = createdMillis + Math.max(request.expires_in, 1) * 1000L;
+        this.callbackUri = request.callback_uri;
+    }
+
+    public String getTid() {
+        return tid;
+    }
+
+    public String getPosId() {
+        return request.pos_id;
+    }
+
+    public String getPosTid() {
+        return request.pos_tid;
+    }
+
+    public String getAmount() {
+        return request.amount;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public long getExpiresMillis() {
+        return expiresMillis;
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    /**
+     *
+     * @return {@link System#nanoTime()} when the customer accepted, or 0
+     */
+    public synchronized long getAuthNanos() {
+        return authNanos;
+    }
+
+    synchronized String getCallbackUri() {
+        return callbackUri;
+    }
+
+    synchronized void setCallbackUri(String callbackUri) {
+        this.callbackUri = callbackUri;
+    }
+
+    SimulatedLedger.Report getReport() {
+        return report;
+    }
+
+    synchronized boolean authorize(long nanos, long millis) {
+        if (!PENDING.equals(status)) {
+            return false;
+        }
+        status = AUTH;
+        authNanos = nanos;
+        modifiedMillis = millis;
+        report.paymentAuthorized();
+        return true;
+    }
+
+    synchronized boolean capture(long millis) {
+        if (!AUTH.equals(status)) {
+            return false;
+        }
+        status = OK;
+        modifiedMillis = millis;
+        report.paymentCaptured();
+        return true;
+    }
+
+    /**
+     *
+     * @param millis
+     * @param expired whether the payment request timed out
+     * @return false if the payment was already captured or failed
+     */
+    synchronized boolean fail(long millis, boolean expired) {
+        if (!PENDING.equals(status) && !AUTH.equals(status)) {
+            return false;
+        }
+        status = FAIL;
+        modifiedMillis = millis;
+        if (expired) {
+            report.paymentExpired();
+        } else {
+            report.paymentFailed();
+        }
+        return true;
+    }
+
+    synchronized PaymentRequestOutcome toOutcome(String baseUrl) {
+        PaymentRequestOutcome outcome = new PaymentRequestOutcome();
+        outcome.tid = tid;
+        outcome.status = status;
+        outcome.status_code = OK.equals(status) ? 2000 : 0;
+        outcome.currency = request.currency;
+        outcome.amount = request.amount;
+        outcome.additional_amount = request.additional_amount == null ? "0.00" : request.additional_amount;
+        outcome.customer = request.customer;
+        outcome.credit = false;
+        outcome.ledger = request.ledger;
+        outcome.pos_id = request.pos_id;
+        outcome.pos_tid = request.pos_tid;
+        outcome.report_id = report.getId();
+        outcome.report_uri = report.getUri(baseUrl);
+        outcome.date_modified = format(modifiedMillis);
+        outcome.date_expires = format(expiresMillis);
+        outcome.interchange_fee = "0.00";
+        outcome.transaction_fee = "0.00";
+        if (AUTH.equals(status) || OK.equals(status)) {
+            outcome.auth_amount = outcome.amount;
+            outcome.auth_additional_amount = outcome.additional_amount;
+        }
+        List<Capture> captures = new ArrayList<>();
+        if (OK.equals(status)) {
+            Capture capture = new Capture();
+            capture.id = tid + "-1";
+            capture.amount = outcome.amount;
+            capture.additional_amount = outcome.additional_amount;
+            captures.add(capture);
+        }
+        outcome.captures = captures;
+        return outcome;
+    }
+
+    static String format(long millis) {
+        return new DateTime(new Date(millis)).toStringMCashDateTime();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SimulatedPayment{tid=" + tid + ", posTid=" + request.pos_tid + ", status=" + status + '}';
+    }
+}
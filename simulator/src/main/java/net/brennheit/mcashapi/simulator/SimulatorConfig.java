@@ -0,0 +1,256 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.simulator;
+
+/**
+ * Behaviour of a {@link MCashSimulator}: how fast payments and reports move
+ * through their lifecycle, and which faults are injected. Can be replaced
+ * while the simulator runs.
+ *
+ * @author fiLLLip
+ */
+public class SimulatorConfig {
+
+    private final int port;
+    private final int threads;
+    private final long authDelayMillis;
+    private final double authFailRate;
+    private final long reportCloseDelayMillis;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double errorRate;
+    private final int errorStatus;
+    private final double dropRate;
+
+    private SimulatorConfig(Builder builder) {
+        this.port = builder.port;
+        this.threads = builder.threads;
+        this.authDelayMillis = builder.authDelayMillis;
+        this.authFailRate = builder.authFailRate;
+        this.reportCloseDelayMillis = builder.reportCloseDelayMillis;
+        this.latencyMillis = builder.latencyMillis;
+        this.latencyJitterMillis = builder.latencyJitterMillis;
+        this.errorRate = builder.errorRate;
+        this.errorStatus = builder.errorStatus;
+        this.dropRate = builder.dropRate;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static SimulatorConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     *
+     * @return builder initialized with this config, e.g. to change faults of
+     * a running simulator
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.port = port;
+        builder.threads = threads;
+        builder.authDelayMillis = authDelayMillis;
+        builder.authFailRate = authFailRate;
+        builder.reportCloseDelayMillis = reportCloseDelayMillis;
+        builder.latencyMillis = latencyMillis;
+        builder.latencyJitterMillis = latencyJitterMillis;
+        builder.errorRate = errorRate;
+        builder.errorStatus = errorStatus;
+        builder.dropRate = dropRate;
+        return builder;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getAuthDelayMillis() {
+        return authDelayMillis;
+    }
+
+    public double getAuthFailRate() {
+        return authFailRate;
+    }
+
+    public long getReportCloseDelayMillis() {
+        return reportCloseDelayMillis;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    public double getDropRate() {
+        return dropRate;
+    }
+
+    public static final class Builder {
+
+        private int port;
+        private int threads = 16;
+        private long authDelayMillis = 500;
+        private double authFailRate;
+        private long reportCloseDelayMillis = 2000;
+        private long latencyMillis;
+        private long latencyJitterMillis;
+        private double errorRate;
+        private int errorStatus = 503;
+        private double dropRate;
+
+        private Builder() {
+        }
+
+        /**
+         *
+         * @param port port to listen on; 0, the default, picks a free one
+         * @return
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         *
+         * @param threads threads handling requests
+         * @return
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Invalid threads " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         *
+         * @param authDelayMillis how long after creation the customer accepts
+         * a payment request; negative to only authorize through
+         * {@link MCashSimulator#authorize(String)}
+         * @return
+         */
+        public Builder authDelayMillis(long authDelayMillis) {
+            this.authDelayMillis = authDelayMillis;
+            return this;
+        }
+
+        /**
+         *
+         * @param authFailRate share of payment requests the customer rejects
+         * instead of accepting
+         * @return
+         */
+        public Builder authFailRate(double authFailRate) {
+            this.authFailRate = rate(authFailRate);
+            return this;
+        }
+
+        /**
+         *
+         * @param reportCloseDelayMillis how long a report stays closing
+         * @return
+         */
+        public Builder reportCloseDelayMillis(long reportCloseDelayMillis) {
+            if (reportCloseDelayMillis < 0) {
+                throw new IllegalArgumentException("Invalid report close delay " + reportCloseDelayMillis);
+            }
+            this.reportCloseDelayMillis = reportCloseDelayMillis;
+            return this;
+        }
+
+        /**
+         * Delays every response by the latency plus a random part of the
+         * jitter.
+         *
+         * @param latencyMillis
+         * @param latencyJitterMillis
+         * @return
+         */
+        public Builder latencyMillis(long latencyMillis, long latencyJitterMillis) {
+            if (latencyMillis < 0 || latencyJitterMillis < 0) {
+                throw new IllegalArgumentException("Invalid latency " + latencyMillis + "+" + latencyJitterMillis);
+            }
+            this.latencyMillis = latencyMillis;
+            this.latencyJitterMillis = latencyJitterMillis;
+            return this;
+        }
+
+        /**
+         *
+         * @param errorRate share of requests answered with the error status
+         * instead of being handled
+         * @param errorStatus e.g. 500 or 503
+         * @return
+         */
+        public Builder errors(double errorRate, int errorStatus) {
+            this.errorRate = rate(errorRate);
+            this.errorStatus = errorStatus;
+            return this;
+        }
+
+        /**
+         *
+         * @param dropRate share of requests whose connection is closed without
+         * a response
+         * @return
+         */
+        public Builder dropRate(double dropRate) {
+            this.dropRate = rate(dropRate);
+            return this;
+        }
+
+        private static double rate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Invalid rate " + rate);
+            }
+            return rate;
+        }
+
+        public SimulatorConfig build() {
+            return new SimulatorConfig(this);
+        }
+    }
+}
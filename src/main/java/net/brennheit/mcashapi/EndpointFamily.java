@@ -0,0 +1,88 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.GenericUrl;
+import java.util.List;
+
+/**
+ * Groups of mCASH endpoints sharing resources such as a bulkhead, a circuit
+ * breaker or metrics. Derived from the first known segment of the URL path, so
+ * absolute URIs returned by the API (e.g. open_report_uri) are classified too.
+ *
+ * @author fiLLLip
+ */
+public enum EndpointFamily {
+
+    PAYMENT_REQUEST("payment_request"),
+    SHORTLINK("shortlink"),
+    LEDGER("ledger"),
+    OTHER(null);
+
+    private final String pathSegment;
+
+    private EndpointFamily(String pathSegment) {
+        this.pathSegment = pathSegment;
+    }
+
+    /**
+     *
+     * @param url
+     * @return family of the first known segment in the path, or
+     * {@link #OTHER}
+     */
+    public static EndpointFamily of(GenericUrl url) {
+        if (url == null) {
+            throw new IllegalArgumentException("url is required");
+        }
+        List<String> pathParts = url.getPathParts();
+        if (pathParts == null) {
+            return OTHER;
+        }
+        for (String part : pathParts) {
+            if (part == null) {
+                continue;
+            }
+            switch (part) {
+                case "payment_request":
+                    return PAYMENT_REQUEST;
+                case "shortlink":
+                    return SHORTLINK;
+                case "ledger":
+                    return LEDGER;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     *
+     * @return first path segment of the family, or null for {@link #OTHER}
+     */
+    public String getPathSegment() {
+        return pathSegment;
+    }
+}
@@ -0,0 +1,307 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.LedgerOverview;
+import net.brennheit.mcashapi.resource.Merchant;
+import net.brennheit.mcashapi.resource.Money;
+import net.brennheit.mcashapi.resource.PaymentRequestLink;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.resource.ReportInfo;
+import net.brennheit.mcashapi.resource.ResourceId;
+import net.brennheit.mcashapi.resource.ShortlinkLastScan;
+
+/**
+ * Non-blocking facade for {@link MCashClient}. Every call runs on the given
+ * executor and returns a {@link CompletableFuture}, which completes
+ * exceptionally instead of yielding null when the request fails.
+ *
+ * @author fiLLLip
+ */
+public class MCashAsyncClient implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 8;
+
+    private final MCashClient client;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Runs requests on a pool of {@link #DEFAULT_THREADS} threads owned by this
+     * facade.
+     *
+     * @param client
+     */
+    public MCashAsyncClient(MCashClient client) {
+        this(client, Executors.newFixedThreadPool(DEFAULT_THREADS, new AsyncThreadFactory()), true);
+    }
+
+    /**
+     *
+     * @param client
+     * @param executor runs the blocking requests; not shut down by
+     * {@link #close()}
+     */
+    public MCashAsyncClient(MCashClient client, Executor executor) {
+        this(client, executor, false);
+    }
+
+    private MCashAsyncClient(MCashClient client, Executor executor, boolean ownsExecutor) {
+        if (client == null || executor == null) {
+            throw new IllegalArgumentException("Client and executor are required");
+        }
+        this.client = client;
+        this.executor = executor;
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    }
+
+    public MCashClient getClient() {
+        return client;
+    }
+
+    /**
+     * Shuts down the executor if it is owned by this facade. The wrapped
+     * client is left open.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            try {
+                ownedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public CompletableFuture<ResourceId> createPaymentRequest(String posTicketId, String scanToken, double amount, String currency, double additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) {
+        return supply(() -> client.doCreatePaymentRequest(posTicketId, scanToken, amount, currency, additionalAmount, additionalAmountEdit, callbackUri, allowCredit, text, links));
+    }
+
+    public CompletableFuture<ResourceId> createPaymentRequest(String posTicketId, String scanToken, Money amount, Money additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) {
+        return supply(() -> client.doCreatePaymentRequest(posTicketId, scanToken, amount, additionalAmount, additionalAmountEdit, callbackUri, allowCredit, text, links));
+    }
+
+    public CompletableFuture<PaymentRequestOutcome> getPaymentRequestOutcome(String ticketId) {
+        return supply(() -> client.doGetPaymentRequestOutcome(ticketId));
+    }
+
+    public CompletableFuture<Void> updatePaymentRequestLinks(String ticketId, List<PaymentRequestLink> links, String callbackUri) {
+        return run(() -> client.sendPaymentRequestAction(ticketId, null, links, callbackUri));
+    }
+
+    public CompletableFuture<Void> abortPaymentRequest(String ticketId, String callbackUri) {
+        return run(() -> client.sendPaymentRequestAction(ticketId, "abort", null, callbackUri));
+    }
+
+    public CompletableFuture<Void> capturePaymentRequest(String ticketId, String callbackUri) {
+        return run(() -> client.sendPaymentRequestAction(ticketId, "capture", null, callbackUri));
+    }
+
+    /**
+     * Completes when the payment request is finished, using the poller (or
+     * callbacks) of the wrapped client. Authorized payments are captured
+     * before the future completes.
+     *
+     * Returns at once; the first poll runs on the polling engine of the
+     * wrapped client. The future completes with a
+     * {@link CancellationException} if polling of the ticket is stopped or the
+     * wrapped client is closed first. Cancelling the future only removes its
+     * own listener; the ticket is polled as long as anyone else waits for it.
+     *
+     * @param ticketId
+     * @return
+     */
+    public CompletableFuture<PaymentRequestOutcome> paymentFinished(String ticketId) {
+        CompletableFuture<PaymentRequestOutcome> future = new CompletableFuture<>();
+        Runnable unwatch;
+        try {
+            unwatch = client.watchPaymentFinished(ticketId, future::complete,
+                    () -> future.completeExceptionally(new CancellationException("Stopped polling payment request " + ticketId)));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        future.whenComplete((outcome, ex) -> {
+            if (ex != null) {
+                // other listeners of the ticket keep it polled
+                unwatch.run();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Like {@link #paymentFinished(String)}, but gives up after the timeout,
+     * e.g. when the server cannot be reached.
+     *
+     * @param ticketId
+     * @param timeout
+     * @param unit
+     * @return future completing with a {@link TimeoutException} if the payment
+     * request did not finish in time
+     */
+    public CompletableFuture<PaymentRequestOutcome> paymentFinished(String ticketId, long timeout, TimeUnit unit) {
+        CompletableFuture<PaymentRequestOutcome> future = paymentFinished(ticketId);
+        if (future.isDone()) {
+            return future;
+        }
+        try {
+            ScheduledFuture<?> timer = client.getPollingEngine().schedule(
+                    () -> future.completeExceptionally(new TimeoutException("Payment request " + ticketId + " not finished")),
+                    timeout, unit);
+            future.whenComplete((outcome, ex) -> timer.cancel(false));
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public CompletableFuture<ResourceId> createShortlink(String serialNumber, String callbackUri) {
+        return supply(() -> client.doCreateShortlink(serialNumber, callbackUri));
+    }
+
+    public CompletableFuture<ShortlinkLastScan> getShortLinkLastScan(String shortlinkId, long ttl) {
+        return supply(() -> client.doGetShortLinkLastScan(shortlinkId, ttl));
+    }
+
+    public CompletableFuture<Merchant> getMerchant() {
+        return supply(() -> client.doGetMerchant());
+    }
+
+    public CompletableFuture<LedgerOverview> getLedgerOverview() {
+        return supply(() -> client.doGetLedgerOverview());
+    }
+
+    public CompletableFuture<LedgerDetail> getLedgerDetail(String ledger) {
+        return supply(() -> client.doGetLedgerDetail(ledger));
+    }
+
+    /**
+     * Uses ledger of the wrapped client
+     *
+     * @return
+     */
+    public CompletableFuture<LedgerDetail> getLedgerDetail() {
+        return getLedgerDetail(client.getLedger());
+    }
+
+    public CompletableFuture<ReportInfo> getReportInfo(String ledger, String reportId) {
+        return supply(() -> client.doGetReportInfo(ledger, reportId));
+    }
+
+    /**
+     * Uses ledger of the wrapped client
+     *
+     * @param reportId
+     * @return
+     */
+    public CompletableFuture<ReportInfo> getReportInfo(String reportId) {
+        return getReportInfo(client.getLedger(), reportId);
+    }
+
+    public CompletableFuture<ReportInfo> getReportInfoFromOpenUri(String uri) {
+        return supply(() -> client.doGetReportInfoFromOpenUri(uri));
+    }
+
+    public CompletableFuture<Void> closeReport(String ledger, String reportId) {
+        return run(() -> client.doCloseReport(ledger, reportId));
+    }
+
+    /**
+     * Uses ledger of the wrapped client
+     *
+     * @param reportId
+     * @return
+     */
+    public CompletableFuture<Void> closeReport(String reportId) {
+        return closeReport(client.getLedger(), reportId);
+    }
+
+    public CompletableFuture<Void> closeReportFromOpenUri(String uri, String callbackUri) {
+        return run(() -> client.doCloseReportFromOpenUri(uri, callbackUri));
+    }
+
+    private <T> CompletableFuture<T> supply(IOCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (IOException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> run(IOAction action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private interface IOCall<T> {
+
+        T call() throws IOException;
+    }
+
+    private interface IOAction {
+
+        void run() throws IOException;
+    }
+
+    private static class AsyncThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mcash-async-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package net.brennheit.mcashapi;
 
 import com.google.api.client.http.GenericUrl;
 import net.brennheit.mcashapi.resource.*;
+import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
@@ -35,29 +36,66 @@ import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.JsonObjectParser;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.Socket;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.Vector;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import net.brennheit.mcashapi.cache.CacheConfig;
+import net.brennheit.mcashapi.cache.CacheStats;
+import net.brennheit.mcashapi.cache.ResponseCache;
+import net.brennheit.mcashapi.callback.CallbackHandler;
+import net.brennheit.mcashapi.callback.CallbackServer;
+import net.brennheit.mcashapi.callback.CallbackType;
+import net.brennheit.mcashapi.interceptor.Exchange;
+import net.brennheit.mcashapi.interceptor.InterceptorChain;
+import net.brennheit.mcashapi.interceptor.RequestInterceptor;
+import net.brennheit.mcashapi.json.ResourceContent;
+import net.brennheit.mcashapi.json.ResourceObjectParser;
 import net.brennheit.mcashapi.listener.IListenForPaymentUpdated;
 import net.brennheit.mcashapi.listener.IListenForReportClosed;
 import net.brennheit.mcashapi.listener.IListenForShortlinkScan;
+import net.brennheit.mcashapi.listener.ListenerDispatcher;
+import net.brennheit.mcashapi.metrics.MetricsRecorder;
+import net.brennheit.mcashapi.poller.FixedPollingStrategy;
+import net.brennheit.mcashapi.poller.PollingEngine;
+import net.brennheit.mcashapi.poller.PollingStrategy;
+import net.brennheit.mcashapi.resilience.Bulkhead;
+import net.brennheit.mcashapi.resilience.BulkheadFullException;
+import net.brennheit.mcashapi.resilience.CircuitBreaker;
+import net.brennheit.mcashapi.resilience.CircuitBreakerConfig;
+import net.brennheit.mcashapi.resilience.CircuitOpenException;
+import net.brennheit.mcashapi.retry.Retrier;
+import net.brennheit.mcashapi.retry.RetryPolicy;
+import net.brennheit.mcashapi.retry.RetryStats;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
 
 /**
  *
@@ -65,23 +103,55 @@ import net.brennheit.mcashapi.listener.IListenForShortlinkScan;
  */
 public class MCashClient implements AutoCloseable {
 
-    private HttpHeaders httpHeaders;
-    private HttpRequestFactory requestFactory;
+    public static final int DEFAULT_MAX_TRACKED_PAYMENTS = 1000;
+    private final MCashUrl.Base baseUrl;
+    private final HttpHeaders httpHeaders;
+    private final HttpRequestFactory requestFactory;
     static final HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
+    static final MCashTransport DEFAULT_TRANSPORT = new MCashTransport(HTTP_TRANSPORT, TransportConfig.defaults());
     static final JsonFactory JSON_FACTORY = new JacksonFactory();
-    static final DecimalFormat MONEY_FORMAT = new DecimalFormat("#0.00", new DecimalFormatSymbols(Locale.ENGLISH));
+    static final ResourceObjectParser RESOURCE_PARSER = new ResourceObjectParser(JSON_FACTORY);
+    private final String merchantId;
     private final String posId;
     private final String ledger;
-    protected Vector paymentFinishedListeners;
-    protected Vector reportClosedListeners;
-    protected Vector shortlinkScannedListeners;
-    private Timer paymentFinishedTimer;
-    private Timer reportClosedTimer;
-    private Timer shortlinkScannedTimer;
-    private String globalTicketId;
-    private String openReportUri;
-    private String shortlinkId;
-    private Date shortlinkStartListeningTime;
+    protected final List<IListenForPaymentUpdated> paymentFinishedListeners = new CopyOnWriteArrayList<>();
+    protected final List<IListenForReportClosed> reportClosedListeners = new CopyOnWriteArrayList<>();
+    protected final List<IListenForShortlinkScan> shortlinkScannedListeners = new CopyOnWriteArrayList<>();
+    // dispatch keys compared by identity; the listener lists change their hash
+    private final Object paymentEventKey = new Object();
+    private final Object shortlinkEventKey = new Object();
+    private final Object reportEventKey = new Object();
+    private final MCashTransport transport;
+    private final boolean ownsTransport;
+    private final PollingEngine pollingEngine;
+    private final boolean ownsPollingEngine;
+    private final ListenerDispatcher listenerDispatcher;
+    private final boolean ownsListenerDispatcher;
+    private final Retrier retrier;
+    private final MetricsRecorder metrics;
+    private final InterceptorChain interceptors;
+    private final ResponseCache cache;
+    private final SingleFlight singleFlight;
+    private final EnumMap<EndpointFamily, CircuitBreaker> circuitBreakers = new EnumMap<>(EndpointFamily.class);
+    private final EnumMap<EndpointFamily, Bulkhead> bulkheads = new EnumMap<>(EndpointFamily.class);
+    private ScheduledFuture<?> reportClosedPoll;
+    private ScheduledFuture<?> shortlinkScannedPoll;
+    private final ConcurrentMap<String, PaymentPoll> paymentPolls = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedPayments = new AtomicInteger();
+    private volatile int maxTrackedPayments = DEFAULT_MAX_TRACKED_PAYMENTS;
+    private volatile String openReportUri;
+    private volatile String shortlinkId;
+    private volatile Date shortlinkStartListeningTime;
+    private volatile PollingStrategy paymentPollingStrategy = new FixedPollingStrategy(1000);
+    private volatile PollingStrategy shortlinkPollingStrategy = new FixedPollingStrategy(1000);
+    private volatile PollingStrategy reportPollingStrategy = new FixedPollingStrategy(2000);
+    private volatile CallbackServer callbackServer;
+    private volatile String callbackKey;
+    private volatile long callbackFallbackMillis;
+    private long shortlinkPollStarted;
+    private int shortlinkPollAttempts;
+    private long reportPollStarted;
+    private int reportPollAttempts;
 
     /**
      *
@@ -95,53 +165,350 @@ public class MCashClient implements AutoCloseable {
      * @param testbedToken
      */
     public MCashClient(String baseUrl, String merchantId, String userId, String authKey, String authMethod, String posId, String ledger, String testbedToken) {
-        MCashUrl.setBaseUri(baseUrl);
-        this.httpHeaders = createHeaders(merchantId, userId, authKey, authMethod, testbedToken);
-        this.posId = posId;
-        this.ledger = ledger;
-        requestFactory = HTTP_TRANSPORT.createRequestFactory(new HttpRequestInitializer() {
+        this(baseUrl, merchantId, userId, authKey, authMethod, posId, ledger, testbedToken, null);
+    }
+
+    /**
+     * Creates a client that schedules its polls on the given engine. The
+     * engine may be shared between several clients and is not closed by
+     * {@link #close()}.
+     *
+     * @param baseUrl
+     * @param merchantId
+     * @param userId
+     * @param authKey
+     * @param authMethod
+     * @param posId
+     * @param ledger
+     * @param testbedToken
+     * @param pollingEngine shared engine, or null to create one owned by this
+     * client
+     */
+    public MCashClient(String baseUrl, String merchantId, String userId, String authKey, String authMethod, String posId, String ledger, String testbedToken, PollingEngine pollingEngine) {
+        this(builder().baseUrl(baseUrl).merchantId(merchantId).userId(userId).authKey(authKey).authMethod(authMethod)
+                .posId(posId).ledger(ledger).testbedToken(testbedToken).pollingEngine(pollingEngine));
+    }
+
+    private MCashClient(Builder builder) {
+        this.baseUrl = MCashUrl.Base.parse(builder.baseUrl);
+        this.ownsPollingEngine = builder.pollingEngine == null;
+        this.pollingEngine = builder.pollingEngine == null ? new PollingEngine() : builder.pollingEngine;
+        this.ownsListenerDispatcher = builder.listenerDispatcher == null;
+        this.listenerDispatcher = builder.listenerDispatcher == null ? new ListenerDispatcher() : builder.listenerDispatcher;
+        this.ownsTransport = builder.transport == null && builder.transportConfig != null;
+        if (builder.transport != null) {
+            this.transport = builder.transport;
+        } else if (builder.transportConfig != null) {
+            this.transport = MCashTransport.create(builder.transportConfig);
+        } else {
+            this.transport = DEFAULT_TRANSPORT;
+        }
+        this.httpHeaders = createHeaders(builder.merchantId, builder.userId, builder.authKey, builder.authMethod, builder.testbedToken);
+        this.merchantId = builder.merchantId;
+        this.posId = builder.posId;
+        this.cache = builder.cacheConfig == null ? null : new ResponseCache(builder.cacheConfig);
+        this.singleFlight = builder.coalesceGets ? new SingleFlight() : null;
+        this.ledger = builder.ledger;
+        this.retrier = new Retrier(builder.retryPolicy);
+        this.metrics = builder.metrics;
+        this.interceptors = InterceptorChain.of(builder.interceptors);
+        for (EndpointFamily family : EndpointFamily.values()) {
+            circuitBreakers.put(family, new CircuitBreaker(family.name(), builder.circuitBreakerConfig));
+            Integer bulkheadSize = builder.bulkheadSizes.get(family);
+            if (bulkheadSize != null) {
+                bulkheads.put(family, new Bulkhead(family.name(), bulkheadSize, builder.bulkheadMaxWaitMillis));
+            }
+        }
+        final TransportConfig transportConfig = transport.getConfig();
+        requestFactory = transport.getHttpTransport().createRequestFactory(new HttpRequestInitializer() {
             @Override
             public void initialize(HttpRequest request) throws IOException {
-                request.setHeaders(httpHeaders);
-                JsonObjectParser jsonObjectParser = new JsonObjectParser(JSON_FACTORY);
-                request.setParser(jsonObjectParser);
+                // requests add their own headers, so each gets a copy
+                request.setHeaders(httpHeaders.clone());
+                request.setConnectTimeout(transportConfig.getConnectTimeoutMillis());
+                request.setReadTimeout(transportConfig.getReadTimeoutMillis());
+                request.setParser(RESOURCE_PARSER);
             }
         });
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
     @Override
     public void close() {
         removeAllEventListeners();
-        cancelAllTimers();
+        disableCallbacks();
+        cancelAllPolls();
+        if (ownsPollingEngine) {
+            pollingEngine.close();
+        }
+        if (ownsListenerDispatcher) {
+            listenerDispatcher.close();
+        }
+        if (ownsTransport) {
+            transport.close();
+        }
     }
 
     private void removeAllEventListeners() {
-        if (this.paymentFinishedListeners != null) {
-            this.paymentFinishedListeners.removeAllElements();
+        this.paymentFinishedListeners.clear();
+        this.shortlinkScannedListeners.clear();
+        this.reportClosedListeners.clear();
+    }
+
+    private synchronized void cancelAllPolls() {
+        cancelAllPaymentPolls();
+        this.shortlinkId = null;
+        this.openReportUri = null;
+        shortlinkScannedPoll = cancelPoll(shortlinkScannedPoll);
+        reportClosedPoll = cancelPoll(reportClosedPoll);
+    }
+
+    private static ScheduledFuture<?> cancelPoll(ScheduledFuture<?> poll) {
+        if (poll != null) {
+            poll.cancel(false);
         }
-        if (this.shortlinkScannedListeners != null) {
-            this.shortlinkScannedListeners.removeAllElements();
+        return null;
+    }
+
+    /**
+     * Engine used for scheduling polls of this client.
+     *
+     * @return
+     */
+    public PollingEngine getPollingEngine() {
+        return pollingEngine;
+    }
+
+    /**
+     * Dispatcher notifying the listeners of this client.
+     *
+     * @return
+     */
+    public ListenerDispatcher getListenerDispatcher() {
+        return listenerDispatcher;
+    }
+
+    /**
+     *
+     * @return base URI of the endpoints of this client
+     */
+    public String getBaseUrl() {
+        return baseUrl.getUri();
+    }
+
+    /**
+     * Transport used for requests of this client.
+     *
+     * @return
+     */
+    public MCashTransport getTransport() {
+        return transport;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retrier.getPolicy();
+    }
+
+    /**
+     * Counters of retried and failed requests.
+     *
+     * @return
+     */
+    public RetryStats getRetryStats() {
+        return retrier.getStats();
+    }
+
+    /**
+     *
+     * @return recorder of request measurements of this client
+     */
+    public MetricsRecorder getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Circuit breaker guarding requests to the given group of endpoints.
+     *
+     * @param family
+     * @return
+     */
+    public CircuitBreaker getCircuitBreaker(EndpointFamily family) {
+        return circuitBreakers.get(family);
+    }
+
+    /**
+     * Bulkhead limiting concurrent requests to the given group of endpoints.
+     *
+     * @param family
+     * @return the bulkhead, or null if the family is not limited
+     * @see Builder#bulkhead(EndpointFamily, int)
+     */
+    public Bulkhead getBulkhead(EndpointFamily family) {
+        return bulkheads.get(family);
+    }
+
+    /**
+     * Counters of the response cache.
+     *
+     * @return stats, or null if caching is not enabled
+     */
+    public CacheStats getCacheStats() {
+        return cache == null ? null : cache.getStats();
+    }
+
+    /**
+     *
+     * @return GETs answered by an identical request already in flight
+     */
+    public long getCoalescedRequests() {
+        return singleFlight == null ? 0 : singleFlight.getShared();
+    }
+
+    /**
+     * Drops all cached responses.
+     */
+    public void invalidateCache() {
+        if (cache != null) {
+            cache.clear();
         }
-        if (this.reportClosedListeners != null) {
-            this.reportClosedListeners.removeAllElements();
+    }
+
+    public PollingStrategy getPaymentPollingStrategy() {
+        return paymentPollingStrategy;
+    }
+
+    /**
+     * Strategy deciding the delay between polls of payment request outcomes.
+     * Defaults to a fixed delay of one second.
+     *
+     * @param paymentPollingStrategy
+     */
+    public void setPaymentPollingStrategy(PollingStrategy paymentPollingStrategy) {
+        this.paymentPollingStrategy = requireStrategy(paymentPollingStrategy);
+    }
+
+    public PollingStrategy getShortlinkPollingStrategy() {
+        return shortlinkPollingStrategy;
+    }
+
+    /**
+     * Strategy deciding the delay between polls of shortlink scans. Defaults
+     * to a fixed delay of one second.
+     *
+     * @param shortlinkPollingStrategy
+     */
+    public void setShortlinkPollingStrategy(PollingStrategy shortlinkPollingStrategy) {
+        this.shortlinkPollingStrategy = requireStrategy(shortlinkPollingStrategy);
+    }
+
+    public PollingStrategy getReportPollingStrategy() {
+        return reportPollingStrategy;
+    }
+
+    /**
+     * Strategy deciding the delay between polls of a closing report. Defaults
+     * to a fixed delay of two seconds.
+     *
+     * @param reportPollingStrategy
+     */
+    public void setReportPollingStrategy(PollingStrategy reportPollingStrategy) {
+        this.reportPollingStrategy = requireStrategy(reportPollingStrategy);
+    }
+
+    private static PollingStrategy requireStrategy(PollingStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Polling strategy is required");
         }
+        return strategy;
     }
 
-    private void cancelAllTimers() {
-        if (paymentFinishedTimer != null) {
-            paymentFinishedTimer.cancel();
-            paymentFinishedTimer.purge();
-            paymentFinishedTimer = null;
+    /**
+     * Receive payment, shortlink and report updates pushed by mCASH instead of
+     * polling for them. Requests created without an explicit callback URI get
+     * one pointing to the server, and listeners are started without polling.
+     * A callback makes the client fetch the current state from mCASH at once;
+     * the callback body itself is not trusted. Polling only starts if no
+     * callback arrives within the fallback delay.
+     *
+     * @param server started server reachable by mCASH
+     * @param fallbackMillis how long to wait for a callback before polling
+     */
+    public synchronized void enableCallbacks(CallbackServer server, long fallbackMillis) {
+        if (fallbackMillis < 0) {
+            throw new IllegalArgumentException("Invalid fallback delay " + fallbackMillis);
         }
-        if (shortlinkScannedTimer != null) {
-            shortlinkScannedTimer.cancel();
-            shortlinkScannedTimer.purge();
-            shortlinkScannedTimer = null;
+        disableCallbacks();
+        this.callbackServer = server;
+        this.callbackFallbackMillis = fallbackMillis;
+        this.callbackKey = server.register(new ClientCallbackHandler());
+    }
+
+    public synchronized void disableCallbacks() {
+        if (callbackKey != null) {
+            callbackServer.unregister(callbackKey);
+            callbackKey = null;
+            callbackServer = null;
         }
-        if (reportClosedTimer != null) {
-            reportClosedTimer.cancel();
-            reportClosedTimer.purge();
-            reportClosedTimer = null;
+    }
+
+    /**
+     *
+     * @param type
+     * @return callback URI of this client, or null if callbacks are not
+     * enabled
+     */
+    public String getCallbackUri(CallbackType type) {
+        CallbackServer server = this.callbackServer;
+        String key = this.callbackKey;
+        if (server == null || key == null) {
+            return null;
+        }
+        return server.getCallbackUri(key, type);
+    }
+
+    /**
+     * Delay until the next check of a listener. With callbacks enabled, polls
+     * only back up the callbacks, so they keep the fallback delay whether a
+     * callback or a timer triggered the check.
+     */
+    private long nextPollDelay(PollingStrategy strategy, int attempts, long elapsedMillis, long remainingMillis) {
+        if (callbackKey != null && callbackFallbackMillis > 0) {
+            return callbackFallbackMillis;
+        }
+        return strategy.nextDelay(attempts, elapsedMillis, remainingMillis);
+    }
+
+    private String callbackUriOrDefault(String callbackUri, CallbackType type) {
+        return callbackUri != null ? callbackUri : getCallbackUri(type);
+    }
+
+    /**
+     * Callback bodies are not signed, so anyone reaching the callback server
+     * could claim a payment is done. A callback only makes the client poll
+     * right away on the polling engine, and the state fetched from mCASH is
+     * acted on.
+     */
+    private class ClientCallbackHandler implements CallbackHandler {
+
+        @Override
+        public void paymentRequestUpdated(PaymentRequestOutcome paymentRequestOutcome) {
+            PaymentPoll poll = paymentRequestOutcome.tid == null ? null : paymentPolls.get(paymentRequestOutcome.tid);
+            if (poll != null) {
+                poll.schedule(0);
+            }
+        }
+
+        @Override
+        public void shortlinkScanned(ShortlinkLastScan shortlinkLastScan) {
+            scheduleShortlinkCheck(0);
+        }
+
+        @Override
+        public void reportUpdated(ReportInfo reportInfo) {
+            scheduleReportCheck(0);
         }
     }
 
@@ -152,22 +519,25 @@ public class MCashClient implements AutoCloseable {
      * @param listener
      */
     public void addPaymentFinishedEventListener(IListenForPaymentUpdated listener) {
-        if (this.paymentFinishedListeners == null) {
-            this.paymentFinishedListeners = new Vector();
-        }
-        this.paymentFinishedListeners.addElement(listener);
+        this.paymentFinishedListeners.add(listener);
+    }
+
+    public boolean removePaymentFinishedEventListener(IListenForPaymentUpdated listener) {
+        return this.paymentFinishedListeners.remove(listener);
     }
 
+    /**
+     * Queues the event on the listener dispatcher. Events of one ticket reach
+     * the listeners in order.
+     *
+     * @param requestOutcome
+     */
     protected void firePaymentFinishedEvent(PaymentRequestOutcome requestOutcome) {
-        this.globalTicketId = null;
-        if (this.paymentFinishedListeners != null && !this.paymentFinishedListeners.isEmpty()) {
-            Enumeration e = this.paymentFinishedListeners.elements();
-            while (e.hasMoreElements()) {
-                IListenForPaymentUpdated iListenForPaymentUpdated = (IListenForPaymentUpdated) e.nextElement();
-                iListenForPaymentUpdated.paymentFinished(requestOutcome);
+        listenerDispatcher.dispatch(paymentEventKey(requestOutcome), this.paymentFinishedListeners, requestOutcome, IListenForPaymentUpdated::paymentFinished);
+    }
 
-            }
-        }
+    private Object paymentEventKey(PaymentRequestOutcome requestOutcome) {
+        return requestOutcome.tid != null ? requestOutcome.tid : this.paymentEventKey;
     }
 
     /**
@@ -176,56 +546,316 @@ public class MCashClient implements AutoCloseable {
      * @param ticketId
      */
     public void startPaymentFinishedListener(String ticketId) {
-        this.globalTicketId = ticketId;
-        checkPaymentFinishedWithTimer();
+        startPaymentFinishedListener(ticketId, null);
     }
 
-    private void checkPaymentFinished() {
-        if (globalTicketId == null) {
-            return;
-        }
-        PaymentRequestOutcome requestOutcome = getPaymentRequestOutcome(this.globalTicketId);
-        if (requestOutcome == null) {
-            return;
+    /**
+     * Start poller on payment result. Several tickets can be tracked at the
+     * same time; starting a ticket which is already tracked only adds the
+     * listener.
+     *
+     * @param ticketId
+     * @param listener notified when this ticket finishes, in addition to the
+     * listeners added with
+     * {@link #addPaymentFinishedEventListener(IListenForPaymentUpdated)}. May be
+     * null.
+     * @throws IllegalStateException if the maximum number of tracked payments
+     * is reached
+     */
+    public void startPaymentFinishedListener(String ticketId, IListenForPaymentUpdated listener) {
+        track(ticketId, listener, null, true);
+    }
+
+    /**
+     * Like {@link #startPaymentFinishedListener(String, IListenForPaymentUpdated)},
+     * but the first poll runs on the polling engine rather than the calling
+     * thread, and onStopped runs instead of the listener if polling of the
+     * ticket is stopped before it finishes, e.g. by
+     * {@link #stopPaymentFinishedListener(String)} or {@link #close()}.
+     *
+     * @return removes the listener and onStopped again; the ticket is no
+     * longer polled once nobody listens to it
+     */
+    Runnable watchPaymentFinished(String ticketId, IListenForPaymentUpdated listener, Runnable onStopped) {
+        PaymentPoll poll = track(ticketId, listener, onStopped, false);
+        return () -> poll.leave(listener, onStopped);
+    }
+
+    private PaymentPoll track(String ticketId, IListenForPaymentUpdated listener, Runnable onStopped, boolean pollNow) {
+        PaymentPoll poll = new PaymentPoll(ticketId, listener, onStopped);
+        // a slot is reserved before the poll is published, so a poll others
+        // can join is never taken back
+        boolean reserved = false;
+        try {
+            while (true) {
+                PaymentPoll existing = paymentPolls.get(ticketId);
+                if (existing != null) {
+                    if (existing.join(listener, onStopped)) {
+                        return existing;
+                    }
+                    // finished or stopped just now, start over
+                    paymentPolls.remove(ticketId, existing);
+                    continue;
+                }
+                if (!reserved) {
+                    if (trackedPayments.incrementAndGet() > maxTrackedPayments) {
+                        trackedPayments.decrementAndGet();
+                        throw new IllegalStateException("Already tracking " + maxTrackedPayments + " payment requests");
+                    }
+                    reserved = true;
+                }
+                if (paymentPolls.putIfAbsent(ticketId, poll) == null) {
+                    // the slot now belongs to the poll
+                    reserved = false;
+                    break;
+                }
+            }
+        } finally {
+            if (reserved) {
+                trackedPayments.decrementAndGet();
+            }
         }
-        switch (requestOutcome.status.toLowerCase()) {
-            case "pending":
-                // Awaiting approvement by customer
-                break;
-            case "auth":
-                // Approved by customer, run capture
-                capturePaymentRequest(requestOutcome.tid, null);
-                firePaymentFinishedEvent(requestOutcome);
-                break;
-            case "ok":
-                firePaymentFinishedEvent(requestOutcome);
-                return;
-            case "fail":
-                firePaymentFinishedEvent(requestOutcome);
-                return;
+        if (callbackKey != null) {
+            poll.schedule(callbackFallbackMillis);
+        } else if (pollNow) {
+            poll.run();
+        } else {
+            poll.schedule(0);
         }
+        return poll;
     }
 
-    private void checkPaymentFinishedWithTimer() {
-        if (paymentFinishedTimer != null) {
-            paymentFinishedTimer.cancel();
-            paymentFinishedTimer.purge();
-            paymentFinishedTimer = null;
+    /**
+     * Stop polling for the result of a single payment request. Listeners of
+     * the ticket are not notified.
+     *
+     * @param ticketId
+     * @return true if the ticket was tracked
+     */
+    public boolean stopPaymentFinishedListener(String ticketId) {
+        PaymentPoll poll = paymentPolls.get(ticketId);
+        return poll != null && poll.stop();
+    }
+
+    /**
+     *
+     * @return ids of payment requests currently being polled
+     */
+    public Set<String> getTrackedPaymentRequests() {
+        return Collections.unmodifiableSet(paymentPolls.keySet());
+    }
+
+    /**
+     *
+     * @return true while payments, a shortlink or a report are being polled or
+     * callbacks are enabled
+     */
+    boolean isListening() {
+        return !paymentPolls.isEmpty() || shortlinkId != null || openReportUri != null || callbackKey != null;
+    }
+
+    public int getMaxTrackedPayments() {
+        return maxTrackedPayments;
+    }
+
+    /**
+     * Limits the number of payment requests polled at the same time.
+     *
+     * @param maxTrackedPayments
+     */
+    public void setMaxTrackedPayments(int maxTrackedPayments) {
+        if (maxTrackedPayments < 1) {
+            throw new IllegalArgumentException("Invalid max tracked payments " + maxTrackedPayments);
         }
-        checkPaymentFinished();
-        if (this.globalTicketId != null) {
-            paymentFinishedTimer = new Timer();
-            paymentFinishedTimer.schedule(new CheckPaymentFinishedTask(), 1000);
+        this.maxTrackedPayments = maxTrackedPayments;
+    }
+
+    private void cancelAllPaymentPolls() {
+        for (PaymentPoll poll : paymentPolls.values()) {
+            poll.stop();
         }
     }
 
-    private class CheckPaymentFinishedTask extends TimerTask {
+    /**
+     * Poll state of a single tracked payment request.
+     */
+    private class PaymentPoll implements Runnable {
+
+        private final String ticketId;
+        private final List<IListenForPaymentUpdated> listeners = new CopyOnWriteArrayList<>();
+        private final List<Runnable> stopListeners = new CopyOnWriteArrayList<>();
+        private final long startedAt = System.currentTimeMillis();
+        private int attempts;
+        private long expiresAt = -1;
+        private final AtomicBoolean finishing = new AtomicBoolean();
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean done;
+        private int holders;
+
+        PaymentPoll(String ticketId, IListenForPaymentUpdated listener, Runnable onStopped) {
+            this.ticketId = ticketId;
+            join(listener, onStopped);
+        }
+
+        /**
+         * Adds listeners to a poll which is still running.
+         *
+         * @return false if the poll is already finished or stopped
+         */
+        synchronized boolean join(IListenForPaymentUpdated listener, Runnable onStopped) {
+            if (done) {
+                return false;
+            }
+            holders++;
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            if (onStopped != null) {
+                stopListeners.add(onStopped);
+            }
+            return true;
+        }
+
+        /**
+         * Removes listeners added by {@link #join}, and cancels the poll when
+         * they were the last ones.
+         */
+        void leave(IListenForPaymentUpdated listener, Runnable onStopped) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (listener != null) {
+                    listeners.remove(listener);
+                }
+                if (onStopped != null) {
+                    stopListeners.remove(onStopped);
+                }
+                if (--holders > 0 || !markDone()) {
+                    return;
+                }
+            }
+            unregister();
+        }
+
+        /**
+         * Cancels the poll before it finished and runs the stop listeners.
+         */
+        boolean stop() {
+            if (!cancel()) {
+                return false;
+            }
+            for (Runnable onStopped : stopListeners) {
+                try {
+                    onStopped.run();
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Removes the poll from the registry. Only the first call succeeds.
+         */
+        boolean cancel() {
+            if (!markDone()) {
+                return false;
+            }
+            unregister();
+            return true;
+        }
+
+        private synchronized boolean markDone() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+            return true;
+        }
+
+        private void unregister() {
+            paymentPolls.remove(ticketId, this);
+            trackedPayments.decrementAndGet();
+        }
 
         @Override
         public void run() {
-            checkPaymentFinishedWithTimer();
+            if (done) {
+                return;
+            }
+            PaymentRequestOutcome requestOutcome = getPaymentRequestOutcome(ticketId);
+            attempts++;
+            long delay = handle(requestOutcome);
+            if (delay >= 0) {
+                long now = System.currentTimeMillis();
+                long remaining = expiresAt < 0 ? PollingStrategy.NO_DEADLINE : Math.max(0, expiresAt - now);
+                schedule(nextPollDelay(paymentPollingStrategy, attempts, now - startedAt, remaining));
+            }
         }
 
+        /**
+         * Acts on a polled outcome.
+         *
+         * @return -1 if the payment is finished, otherwise 0
+         */
+        long handle(PaymentRequestOutcome requestOutcome) {
+            if (requestOutcome != null && requestOutcome.date_expires != null && expiresAt < 0) {
+                try {
+                    expiresAt = requestOutcome.getDate_expires().getValue();
+                } catch (NumberFormatException ex) {
+                    Logger.getLogger(MCashClient.class.getName()).log(Level.WARNING, null, ex);
+                }
+            }
+            if (requestOutcome != null && requestOutcome.status != null) {
+                switch (requestOutcome.status.toLowerCase()) {
+                    case "pending":
+                        // Awaiting approvement by customer
+                        break;
+                    case "auth":
+                        // Approved by customer, run capture
+                        if (finishing.compareAndSet(false, true)) {
+                            capturePaymentRequest(requestOutcome.tid, null);
+                            finish(requestOutcome);
+                        }
+                        return -1;
+                    case "ok":
+                    case "fail":
+                        if (finishing.compareAndSet(false, true)) {
+                            finish(requestOutcome);
+                        }
+                        return -1;
+                }
+            }
+            return 0;
+        }
+
+        synchronized void schedule(long delay) {
+            if (done) {
+                return;
+            }
+            if (future != null) {
+                future.cancel(false);
+            }
+            try {
+                future = pollingEngine.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // the engine was closed, nothing will poll this ticket again
+                stop();
+            }
+        }
+
+        private void finish(PaymentRequestOutcome requestOutcome) {
+            if (!cancel()) {
+                return;
+            }
+            // same key as firePaymentFinishedEvent, so these run first
+            listenerDispatcher.dispatch(paymentEventKey(requestOutcome), listeners, requestOutcome, IListenForPaymentUpdated::paymentFinished);
+            firePaymentFinishedEvent(requestOutcome);
+        }
     }
 
     /**
@@ -234,21 +864,15 @@ public class MCashClient implements AutoCloseable {
      * @param listener
      */
     public void addShortlinkScannedEventListener(IListenForShortlinkScan listener) {
-        if (this.shortlinkScannedListeners == null) {
-            this.shortlinkScannedListeners = new Vector();
-        }
-        this.shortlinkScannedListeners.addElement(listener);
+        this.shortlinkScannedListeners.add(listener);
     }
 
-    protected void fireShortlinkScannedEvent(ShortlinkLastScan shortlinkLastScan) {
-        if (this.shortlinkScannedListeners != null && !this.shortlinkScannedListeners.isEmpty()) {
-            Enumeration e = this.shortlinkScannedListeners.elements();
-            while (e.hasMoreElements()) {
-                IListenForShortlinkScan iListenForShortlinkScan = (IListenForShortlinkScan) e.nextElement();
-                iListenForShortlinkScan.shortlinkScanned(shortlinkLastScan);
+    public boolean removeShortlinkScannedEventListener(IListenForShortlinkScan listener) {
+        return this.shortlinkScannedListeners.remove(listener);
+    }
 
-            }
-        }
+    protected void fireShortlinkScannedEvent(ShortlinkLastScan shortlinkLastScan) {
+        listenerDispatcher.dispatch(shortlinkEventKey, this.shortlinkScannedListeners, shortlinkLastScan, IListenForShortlinkScan::shortlinkScanned);
     }
 
     /**
@@ -260,36 +884,68 @@ public class MCashClient implements AutoCloseable {
     public void startShortlinkScannedListener(String shortlinkId, Date startListeningTime) {
         this.shortlinkId = shortlinkId;
         this.shortlinkStartListeningTime = startListeningTime;
+        synchronized (this) {
+            this.shortlinkPollStarted = System.currentTimeMillis();
+            this.shortlinkPollAttempts = 0;
+            if (callbackKey != null) {
+                scheduleShortlinkCheck(callbackFallbackMillis);
+                return;
+            }
+        }
         checkShortlinkScannedWithTimer();
     }
 
     private void checkShortlinkScanned() {
-        if (this.shortlinkId == null || this.shortlinkStartListeningTime == null) {
+        String id = this.shortlinkId;
+        Date startListeningTime = this.shortlinkStartListeningTime;
+        if (id == null || startListeningTime == null) {
             return;
         }
-        long ttl = ((new Date()).getTime() - this.shortlinkStartListeningTime.getTime()) / 1000;
-        ShortlinkLastScan shortlinkLastScan = getShortLinkLastScan(this.shortlinkId, ttl);
-        if (shortlinkLastScan != null && shortlinkLastScan.id != null) {
+        long ttl = ((new Date()).getTime() - startListeningTime.getTime()) / 1000;
+        ShortlinkLastScan shortlinkLastScan = getShortLinkLastScan(id, ttl);
+        if (shortlinkLastScan != null && shortlinkLastScan.id != null && claimShortlinkScan()) {
             fireShortlinkScannedEvent(shortlinkLastScan);
-            this.shortlinkId = null;
-            this.shortlinkStartListeningTime = null;
         }
     }
 
-    private void checkShortlinkScannedWithTimer() {
-        if (shortlinkScannedTimer != null) {
-            shortlinkScannedTimer.cancel();
-            shortlinkScannedTimer.purge();
-            shortlinkScannedTimer = null;
+    /**
+     * Stops listening for the shortlink, so that a scan seen both by the
+     * poller and by a callback is only reported once.
+     *
+     * @return false if the scan was already reported
+     */
+    private synchronized boolean claimShortlinkScan() {
+        if (this.shortlinkId == null) {
+            return false;
         }
+        this.shortlinkId = null;
+        this.shortlinkStartListeningTime = null;
+        shortlinkScannedPoll = cancelPoll(shortlinkScannedPoll);
+        return true;
+    }
+
+    private void checkShortlinkScannedWithTimer() {
+        shortlinkScannedPoll = cancelPoll(shortlinkScannedPoll);
         checkShortlinkScanned();
+        synchronized (this) {
+            long delay = nextPollDelay(shortlinkPollingStrategy, ++shortlinkPollAttempts, System.currentTimeMillis() - shortlinkPollStarted, PollingStrategy.NO_DEADLINE);
+            scheduleShortlinkCheck(delay);
+        }
+    }
+
+    private synchronized void scheduleShortlinkCheck(long delay) {
+        shortlinkScannedPoll = cancelPoll(shortlinkScannedPoll);
         if (this.shortlinkId != null && this.shortlinkStartListeningTime != null) {
-            shortlinkScannedTimer = new Timer();
-            shortlinkScannedTimer.schedule(new CheckShortlinkScannedTask(), 1000);
+            try {
+                shortlinkScannedPoll = pollingEngine.schedule(new CheckShortlinkScannedTask(), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // the engine was closed
+                this.shortlinkId = null;
+            }
         }
     }
 
-    private class CheckShortlinkScannedTask extends TimerTask {
+    private class CheckShortlinkScannedTask implements Runnable {
 
         @Override
         public void run() {
@@ -304,21 +960,15 @@ public class MCashClient implements AutoCloseable {
      * @param listener
      */
     public void addReportClosedEventListener(IListenForReportClosed listener) {
-        if (this.reportClosedListeners == null) {
-            this.reportClosedListeners = new Vector();
-        }
-        this.reportClosedListeners.addElement(listener);
+        this.reportClosedListeners.add(listener);
     }
 
-    protected void fireReportClosedEvent(ReportInfo reportInfo) {
-        if (this.reportClosedListeners != null && !this.reportClosedListeners.isEmpty()) {
-            Enumeration e = this.reportClosedListeners.elements();
-            while (e.hasMoreElements()) {
-                IListenForReportClosed iListenForPaymentUpdated = (IListenForReportClosed) e.nextElement();
-                iListenForPaymentUpdated.reportClosed(reportInfo);
+    public boolean removeReportClosedEventListener(IListenForReportClosed listener) {
+        return this.reportClosedListeners.remove(listener);
+    }
 
-            }
-        }
+    protected void fireReportClosedEvent(ReportInfo reportInfo) {
+        listenerDispatcher.dispatch(reportEventKey, this.reportClosedListeners, reportInfo, IListenForReportClosed::reportClosed);
     }
 
     /**
@@ -332,59 +982,82 @@ public class MCashClient implements AutoCloseable {
     }
 
     private void closeOpenReport() throws Exception {
-        LedgerOverview ledgerOverview = getLedgerOverview();
-        if (ledgerOverview == null) {
-            throw new Exception("Could not find ledger overview.");
-        }
-        String ledgerUri = null;
-        for (String uri : ledgerOverview.uris) {
-            if (uri.contains(this.ledger)) {
-                ledgerUri = uri;
-                break;
-            }
+        String ledgerUri;
+        try (Stream<String> ledgerUris = streamLedgerUris(null)) {
+            ledgerUri = ledgerUris.filter(uri -> uri.contains(this.ledger)).findFirst().orElse(null);
+        } catch (UncheckedIOException ex) {
+            throw new Exception("Could not find ledger overview.", ex.getCause());
         }
         if (ledgerUri == null) {
             throw new Exception("Could not find selected ledger.");
         }
-        LedgerDetail ledgerDetail = getLedgerDetail();
-        ReportInfo reportInfo = getReportInfoFromOpenUri(ledgerDetail.open_report_uri);
+        LedgerDetail ledgerDetail = getLedgerDetailUncached();
+        if (ledgerDetail == null) {
+            throw new Exception("Could not find selected ledger.");
+        }
+        ReportInfo reportInfo = getReportInfoUncached(ledgerDetail.open_report_uri);
         if (reportInfo == null || !reportInfo.status.equals("open")) {
             throw new Exception("Already closed or closing report.");
         }
-        closeReportFromOpenUri(ledgerDetail.open_report_uri);
+        closeReportFromOpenUri(ledgerDetail.open_report_uri, getCallbackUri(CallbackType.REPORT));
+        synchronized (this) {
+            this.reportPollStarted = System.currentTimeMillis();
+            this.reportPollAttempts = 0;
+        }
         this.openReportUri = ledgerDetail.open_report_uri;
-        reportInfo = getReportInfoFromOpenUri(this.openReportUri);
+        reportInfo = getReportInfoUncached(this.openReportUri);
         if (reportInfo == null || (!reportInfo.status.equals("closing") && !reportInfo.status.equals("closed"))) {
             throw new Exception("Close report failed.");
         }
-        checkReportClosedWithTimer();
+        if (callbackKey != null) {
+            scheduleReportCheck(callbackFallbackMillis);
+        } else {
+            checkReportClosedWithTimer();
+        }
     }
 
     private void checkReportClosed() {
-        if (this.openReportUri == null) {
+        String uri = this.openReportUri;
+        if (uri == null) {
             return;
         }
-        ReportInfo reportInfo = getReportInfoFromOpenUri(this.openReportUri);
-        if (reportInfo != null && reportInfo.status.equals("closed")) {
+        ReportInfo reportInfo = getReportInfoUncached(uri);
+        if (reportInfo != null && reportInfo.status.equals("closed") && claimReportClosed()) {
             fireReportClosedEvent(reportInfo);
-            this.openReportUri = null;
         }
     }
 
-    private void checkReportClosedWithTimer() {
-        if (reportClosedTimer != null) {
-            reportClosedTimer.cancel();
-            reportClosedTimer.purge();
-            reportClosedTimer = null;
+    private synchronized boolean claimReportClosed() {
+        if (this.openReportUri == null) {
+            return false;
         }
+        this.openReportUri = null;
+        reportClosedPoll = cancelPoll(reportClosedPoll);
+        return true;
+    }
+
+    private void checkReportClosedWithTimer() {
+        reportClosedPoll = cancelPoll(reportClosedPoll);
         checkReportClosed();
+        synchronized (this) {
+            long delay = nextPollDelay(reportPollingStrategy, ++reportPollAttempts, System.currentTimeMillis() - reportPollStarted, PollingStrategy.NO_DEADLINE);
+            scheduleReportCheck(delay);
+        }
+    }
+
+    private synchronized void scheduleReportCheck(long delay) {
+        reportClosedPoll = cancelPoll(reportClosedPoll);
         if (this.openReportUri != null) {
-            reportClosedTimer = new Timer();
-            reportClosedTimer.schedule(new CheckReportClosedTask(), 2000);
+            try {
+                reportClosedPoll = pollingEngine.schedule(new CheckReportClosedTask(), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // the engine was closed
+                this.openReportUri = null;
+            }
         }
     }
 
-    private class CheckReportClosedTask extends TimerTask {
+    private class CheckReportClosedTask implements Runnable {
 
         @Override
         public void run() {
@@ -401,13 +1074,11 @@ public class MCashClient implements AutoCloseable {
     public boolean isReady() {
         Socket socket = null;
         try {
-            String hostname = (new URI(MCashUrl.getBaseUri())).getHost();
+            String hostname = baseUrl.getHost();
             socket = new Socket(hostname, 80);
             return true;
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (URISyntaxException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         } finally {
             if (socket != null) {
                 try {
@@ -426,18 +1097,19 @@ public class MCashClient implements AutoCloseable {
      * @return
      */
     public ShortlinkLastScan getShortLinkLastScan(String shortlinkId, long ttl) {
-        MCashUrl url = MCashUrl.ShortlinkLastScan(shortlinkId, ttl);
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            ShortlinkLastScan lastScan = response.parseAs(ShortlinkLastScan.class);
-            return lastScan;
+            return doGetShortLinkLastScan(shortlinkId, ttl);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
+    ShortlinkLastScan doGetShortLinkLastScan(String shortlinkId, long ttl) throws IOException {
+        MCashUrl url = baseUrl.shortlinkLastScan(shortlinkId, ttl);
+        return doGet(url, ShortlinkLastScan.class);
+    }
+
     /**
      *
      * @param posTicketId
@@ -453,13 +1125,52 @@ public class MCashClient implements AutoCloseable {
      * @return
      */
     public ResourceId createPaymentRequest(String posTicketId, String scanToken, double amount, String currency, double additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) {
+        try {
+            return doCreatePaymentRequest(posTicketId, scanToken, amount, currency, additionalAmount, additionalAmountEdit, callbackUri, allowCredit, text, links);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    ResourceId doCreatePaymentRequest(String posTicketId, String scanToken, double amount, String currency, double additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) throws IOException {
+        return doCreatePaymentRequest(posTicketId, scanToken, Money.ofMajor(amount, currency), Money.ofMajor(additionalAmount, currency), additionalAmountEdit, callbackUri, allowCredit, text, links);
+    }
+
+    /**
+     *
+     * @param posTicketId
+     * @param scanToken
+     * @param amount amount and currency of the payment
+     * @param additionalAmount fixed additional amount, e.g. tip, or null
+     * @param additionalAmountEdit whether the customer may enter an additional
+     * amount; ignored if a positive additional amount is given
+     * @param callbackUri
+     * @param allowCredit
+     * @param text
+     * @param links
+     * @return
+     */
+    public ResourceId createPaymentRequest(String posTicketId, String scanToken, Money amount, Money additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) {
+        try {
+            return doCreatePaymentRequest(posTicketId, scanToken, amount, additionalAmount, additionalAmountEdit, callbackUri, allowCredit, text, links);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    ResourceId doCreatePaymentRequest(String posTicketId, String scanToken, Money amount, Money additionalAmount, boolean additionalAmountEdit, String callbackUri, boolean allowCredit, String text, List<PaymentRequestLink> links) throws IOException {
+        if (additionalAmount != null && amount.getCurrency() != null && !amount.getCurrency().equals(additionalAmount.getCurrency())) {
+            throw new IllegalArgumentException("Currency mismatch: " + amount.getCurrency() + ", " + additionalAmount.getCurrency());
+        }
         CreatePaymentRequest createPaymentRequest = new CreatePaymentRequest();
         createPaymentRequest.action = "SALE";
         createPaymentRequest.pos_id = this.posId;
         createPaymentRequest.pos_tid = posTicketId;
         createPaymentRequest.customer = scanToken;
-        createPaymentRequest.currency = currency;
-        createPaymentRequest.amount = MONEY_FORMAT.format(amount);
+        createPaymentRequest.currency = amount.getCurrency();
+        createPaymentRequest.amount = amount.toStringMCashAmount();
         createPaymentRequest.additional_amount = null;
         createPaymentRequest.additional_edit = false;
         createPaymentRequest.expires_in = 300;
@@ -467,24 +1178,16 @@ public class MCashClient implements AutoCloseable {
         createPaymentRequest.allow_credit = allowCredit;
         createPaymentRequest.text = text;
         createPaymentRequest.links = links;
-        if (callbackUri != null) {
-            createPaymentRequest.callback_uri = callbackUri;
-        }
-        if (additionalAmount > 0) {
-            createPaymentRequest.additional_amount = MONEY_FORMAT.format(additionalAmount);
+        createPaymentRequest.callback_uri = callbackUriOrDefault(callbackUri, CallbackType.PAYMENT_REQUEST);
+        if (additionalAmount != null && additionalAmount.signum() > 0) {
+            createPaymentRequest.additional_amount = additionalAmount.toStringMCashAmount();
         } else {
             createPaymentRequest.additional_edit = additionalAmountEdit;
         }
-        MCashUrl url = MCashUrl.PaymentRequest();
-        try {
-            HttpRequest request = requestFactory.buildPostRequest(url, buildJsonContent(createPaymentRequest));
-            HttpResponse response = doHttpRequest(request);
-            ResourceId resourceId = response.parseAs(ResourceId.class);
-            return resourceId;
-        } catch (IOException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        return null;
+        MCashUrl url = baseUrl.paymentRequest();
+        HttpRequest request = requestFactory.buildPostRequest(url, buildJsonContent(createPaymentRequest));
+        HttpResponse response = doHttpRequest(request, posTicketId != null);
+        return response.parseAs(ResourceId.class);
     }
 
     public void updatePaymentRequestLinks(String ticketId, List<PaymentRequestLink> links, String callbackUri) {
@@ -492,110 +1195,428 @@ public class MCashClient implements AutoCloseable {
     }
 
     private void doPaymentRequestAction(String ticketId, String action, List<PaymentRequestLink> links, String callbackUri) {
+        try {
+            sendPaymentRequestAction(ticketId, action, links, callbackUri);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    void sendPaymentRequestAction(String ticketId, String action, List<PaymentRequestLink> links, String callbackUri) throws IOException {
         UpdatePaymentRequest updatePaymentRequest = new UpdatePaymentRequest();
         updatePaymentRequest.action = action;
         updatePaymentRequest.ledger = this.ledger;
         updatePaymentRequest.callback_uri = callbackUri;
         updatePaymentRequest.links = links;
-        MCashUrl url = MCashUrl.PaymentRequest(ticketId);
+        MCashUrl url = baseUrl.paymentRequest(ticketId);
+        HttpRequest request = requestFactory.buildPutRequest(url, buildJsonContent(updatePaymentRequest));
+        doHttpRequest(request);
+    }
+
+    /**
+     *
+     * @param ticketId
+     * @param callbackUri
+     */
+    public void abortPaymentRequest(String ticketId, String callbackUri) {
+        doPaymentRequestAction(ticketId, "abort", null, callbackUri);
+    }
+
+    /**
+     *
+     * @param ticketId
+     * @param callbackUri
+     */
+    public void capturePaymentRequest(String ticketId, String callbackUri) {
+        doPaymentRequestAction(ticketId, "capture", null, callbackUri);
+    }
+
+    @Deprecated
+    public void putTicket(String ticketId, Ticket ticket) {
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(ticket);
+        putTickets(ticketId, tickets);
+    }
+
+    @Deprecated
+    public void putTickets(String ticketId, List<Ticket> tickets) {
+        Tickets ticketRequest = new Tickets();
+        ticketRequest.tickets = tickets;
+        MCashUrl url = baseUrl.paymentRequestTicket(ticketId);
+        try {
+            HttpRequest request = requestFactory.buildPutRequest(url, buildJsonContent(ticketRequest));
+            doHttpRequest(request);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     *
+     * @param serialNumber
+     * @param callbackUri
+     * @return
+     */
+    public ResourceId createShortlink(String serialNumber, String callbackUri) {
+        try {
+            return doCreateShortlink(serialNumber, callbackUri);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    ResourceId doCreateShortlink(String serialNumber, String callbackUri) throws IOException {
+        Shortlink shortlink = new Shortlink();
+        shortlink.callback_uri = callbackUriOrDefault(callbackUri, CallbackType.SHORTLINK);
+        shortlink.serial_number = serialNumber;
+        MCashUrl url = baseUrl.shortlink();
+        HttpRequest request = requestFactory.buildPostRequest(url, buildJsonContent(shortlink));
+        HttpResponse response = doHttpRequest(request);
+        return response.parseAs(ResourceId.class);
+    }
+
+    /**
+     *
+     * @param ticketId
+     * @return
+     */
+    public PaymentRequestOutcome getPaymentRequestOutcome(String ticketId) {
+        try {
+            return doGetPaymentRequestOutcome(ticketId);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    PaymentRequestOutcome doGetPaymentRequestOutcome(String ticketId) throws IOException {
+        MCashUrl url = baseUrl.paymentRequestOutcome(ticketId);
+        return doGet(url, PaymentRequestOutcome.class);
+    }
+
+    /**
+     * Fetches the outcomes of many payment requests, at most
+     * {@code maxConcurrency} at a time, on threads owned by this call.
+     *
+     * @param ticketIds
+     * @param maxConcurrency
+     * @return one result per ticket, in completion order
+     * @see #getPaymentRequestOutcomes(Collection, int, Consumer, Executor)
+     */
+    public List<PaymentRequestOutcomeResult> getPaymentRequestOutcomes(Collection<String> ticketIds, int maxConcurrency) {
+        return getPaymentRequestOutcomes(ticketIds, maxConcurrency, null, null);
+    }
+
+    /**
+     * Fetches the outcomes of many payment requests, keeping at most
+     * {@code maxConcurrency} requests in flight. A failed fetch does not stop
+     * the batch; its result carries the exception instead.
+     *
+     * <p>
+     * Connections are reused by the transport; with the pooled transport,
+     * allow at least {@code maxConcurrency} connections per route. If a
+     * payment request bulkhead is configured, requests above its limit fail
+     * with {@link net.brennheit.mcashapi.resilience.BulkheadFullException}.
+     * </p>
+     *
+     * @param ticketIds
+     * @param maxConcurrency
+     * @param onResult called on the calling thread as each result arrives, or
+     * null
+     * @param executor runs the requests, or null to use threads owned by this
+     * call
+     * @return one result per ticket, in completion order; partial if the
+     * calling thread is interrupted
+     */
+    public List<PaymentRequestOutcomeResult> getPaymentRequestOutcomes(Collection<String> ticketIds, int maxConcurrency, Consumer<? super PaymentRequestOutcomeResult> onResult, Executor executor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Invalid max concurrency " + maxConcurrency);
+        }
+        List<String> pending = new ArrayList<>(ticketIds);
+        List<PaymentRequestOutcomeResult> results = new ArrayList<>(pending.size());
+        if (pending.isEmpty()) {
+            return results;
+        }
+        int window = Math.min(maxConcurrency, pending.size());
+        ExecutorService ownedExecutor = executor == null ? Executors.newFixedThreadPool(window, new BatchThreadFactory()) : null;
+        Executor runner = executor == null ? ownedExecutor : executor;
+        BlockingQueue<PaymentRequestOutcomeResult> completed = new LinkedBlockingQueue<>();
+        int submitted = 0;
+        try {
+            while (submitted < window) {
+                fetchPaymentRequestOutcome(runner, pending.get(submitted++), completed);
+            }
+            while (results.size() < pending.size()) {
+                PaymentRequestOutcomeResult result = completed.take();
+                results.add(result);
+                if (submitted < pending.size()) {
+                    fetchPaymentRequestOutcome(runner, pending.get(submitted++), completed);
+                }
+                if (onResult != null) {
+                    onResult.accept(result);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (ownedExecutor != null) {
+                ownedExecutor.shutdownNow();
+            }
+        }
+        return results;
+    }
+
+    private void fetchPaymentRequestOutcome(Executor executor, final String ticketId, final BlockingQueue<PaymentRequestOutcomeResult> completed) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        completed.add(new PaymentRequestOutcomeResult(ticketId, doGetPaymentRequestOutcome(ticketId), null));
+                    } catch (IOException | RuntimeException ex) {
+                        completed.add(new PaymentRequestOutcomeResult(ticketId, null, ex));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            completed.add(new PaymentRequestOutcomeResult(ticketId, null, ex));
+        }
+    }
+
+    private <T> T doGet(GenericUrl url, Class<T> type) throws IOException {
+        return doGet(url, type, true);
+    }
+
+    /**
+     * Fetches a resource, answering from the response cache when enabled for
+     * its type. An expired entry with an ETag is revalidated with
+     * If-None-Match.
+     */
+    private <T> T doGet(final GenericUrl url, final Class<T> type, boolean useCache) throws IOException {
+        final String key = url.build();
+        if (!useCache || cache == null || !cache.isCacheable(type)) {
+            return coalesce(key, type, new SingleFlight.Call<T>() {
+                @Override
+                public T call() throws IOException {
+                    return doGetResponse(url).parseAs(type);
+                }
+            });
+        }
+        final long generation = cache.generation();
+        final ResponseCache.Entry<T> entry = cache.lookup(key, type);
+        if (entry != null && entry.isFresh()) {
+            return entry.getValue();
+        }
+        return coalesce(key, type, new SingleFlight.Call<T>() {
+            @Override
+            public T call() throws IOException {
+                return fetchAndCache(url, key, type, entry, generation);
+            }
+        });
+    }
+
+    /**
+     * Lets concurrent identical GETs share one request and its parsed result.
+     */
+    private <T> T coalesce(String key, Class<T> type, SingleFlight.Call<T> call) throws IOException {
+        if (singleFlight == null) {
+            return call.call();
+        }
+        return singleFlight.execute(type.getName() + ' ' + key, call);
+    }
+
+    private <T> T fetchAndCache(GenericUrl url, String key, Class<T> type, ResponseCache.Entry<T> entry, long generation) throws IOException {
+        HttpRequest request = requestFactory.buildGetRequest(url);
+        if (entry != null && entry.getETag() != null) {
+            request.getHeaders().setIfNoneMatch(entry.getETag());
+        }
+        HttpResponse response;
         try {
-            HttpRequest request = requestFactory.buildPutRequest(url, buildJsonContent(updatePaymentRequest));
-            doHttpRequest(request);
-        } catch (IOException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+            response = doHttpRequest(request);
+        } catch (HttpResponseException ex) {
+            if (entry != null && ex.getStatusCode() == 304) {
+                return cache.revalidated(entry);
+            }
+            throw ex;
         }
+        return cache.store(key, type, response.parseAs(type), response.getHeaders().getETag(), generation);
+    }
 
+    HttpResponse doGetResponse(GenericUrl url) throws IOException {
+        HttpRequest request = requestFactory.buildGetRequest(url);
+        return doHttpRequest(request);
     }
 
-    /**
-     *
-     * @param ticketId
-     * @param callbackUri
-     */
-    public void abortPaymentRequest(String ticketId, String callbackUri) {
-        doPaymentRequestAction(ticketId, "abort", null, callbackUri);
+    private HttpResponse doHttpRequest(HttpRequest request) throws IOException, HttpResponseException {
+        return doHttpRequest(request, false);
     }
 
     /**
+     * Executes the request through the bulkhead and circuit breaker of its
+     * endpoint family, failing fast when either rejects it.
      *
-     * @param ticketId
-     * @param callbackUri
+     * @param request
+     * @param hasDedupeKey whether the request carries a dedupe key, letting
+     * {@link RetryPolicy#isRetryPostWithDedupeKey()} retry a POST
+     * @return successful response
+     * @throws BulkheadFullException if too many requests to the endpoint
+     * family are in flight
+     * @throws CircuitOpenException if the endpoint family is failing
+     * @throws IOException if the last attempt failed
+     * @throws HttpResponseException if the last attempt got an unsuccessful
+     * status
      */
-    public void capturePaymentRequest(String ticketId, String callbackUri) {
-        doPaymentRequestAction(ticketId, "capture", null, callbackUri);
-    }
-
-    @Deprecated
-    public void putTicket(String ticketId, Ticket ticket) {
-        List<Ticket> tickets = new ArrayList<>();
-        tickets.add(ticket);
-        putTickets(ticketId, tickets);
+    private HttpResponse doHttpRequest(HttpRequest request, boolean hasDedupeKey) throws IOException, HttpResponseException {
+        EndpointFamily family = EndpointFamily.of(request.getUrl());
+        CircuitBreaker circuitBreaker = circuitBreakers.get(family);
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            metrics.onRejected(family);
+            throw new CircuitOpenException(circuitBreaker.getName());
+        }
+        try {
+            HttpResponse response = executeWithRetries(request, family, hasDedupeKey);
+            circuitBreaker.onSuccess(permit);
+            return response;
+        } catch (HttpResponseException ex) {
+            if (retrier.isRetryableStatus(ex.getStatusCode())) {
+                circuitBreaker.onFailure(permit);
+            } else {
+                circuitBreaker.onSuccess(permit);
+            }
+            throw ex;
+        } catch (InterruptedIOException | BulkheadFullException ex) {
+            // released below without an outcome
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
+            circuitBreaker.onFailure(permit);
+            throw ex;
+        } finally {
+            // no-op once an outcome was recorded; frees the permit on an Error
+            circuitBreaker.onIgnored(permit);
+        }
     }
 
-    @Deprecated
-    public void putTickets(String ticketId, List<Ticket> tickets) {
-        Tickets ticketRequest = new Tickets();
-        ticketRequest.tickets = tickets;
-        MCashUrl url = MCashUrl.PaymentRequestTicket(ticketId);
+    private void acquire(Bulkhead bulkhead, EndpointFamily family) throws IOException {
+        if (bulkhead == null) {
+            return;
+        }
         try {
-            HttpRequest request = requestFactory.buildPutRequest(url, buildJsonContent(ticketRequest));
-            doHttpRequest(request);
-        } catch (IOException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+            if (!bulkhead.tryAcquire()) {
+                metrics.onRejected(family);
+                throw new BulkheadFullException(bulkhead.getName());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bulkhead " + bulkhead.getName());
         }
     }
 
     /**
+     * Executes the request, retrying failed attempts as allowed by the retry
+     * policy. Each attempt holds a permit of the family's bulkhead, if any,
+     * which is given back while backing off.
      *
-     * @param serialNumber
-     * @param callbackUri
-     * @return
+     * @param request
+     * @param family endpoint family the attempts are recorded for
+     * @param hasDedupeKey whether the request carries a dedupe key, letting
+     * {@link RetryPolicy#isRetryPostWithDedupeKey()} retry a POST
+     * @return successful response
+     * @throws BulkheadFullException if too many requests to the endpoint
+     * family are in flight
+     * @throws IOException if the last attempt failed
+     * @throws HttpResponseException if the last attempt got an unsuccessful
+     * status
      */
-    public ResourceId createShortlink(String serialNumber, String callbackUri) {
-        Shortlink shortlink = new Shortlink();
-        shortlink.callback_uri = callbackUri;
-        shortlink.serial_number = serialNumber;
-        MCashUrl url = MCashUrl.Shortlink();
-        try {
-            HttpRequest request = requestFactory.buildPostRequest(url, buildJsonContent(shortlink));
-            HttpResponse response = doHttpRequest(request);
-            ResourceId resourceId = response.parseAs(ResourceId.class);
-            return resourceId;
-        } catch (IOException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+    private HttpResponse executeWithRetries(HttpRequest request, EndpointFamily family, boolean hasDedupeKey) throws IOException, HttpResponseException {
+        request.setNumberOfRetries(0);
+        request.setThrowExceptionOnExecuteError(false);
+        boolean retryable = retrier.isRetryable(request.getRequestMethod(), hasDedupeKey);
+        retrier.onRequest();
+        Bulkhead bulkhead = bulkheads.get(family);
+        int attempt = 0;
+        long backoffMillis = 0;
+        while (true) {
+            if (attempt > 0) {
+                // without the bulkhead permit, so waiting retries do not
+                // keep other requests out
+                backoff(backoffMillis);
+            }
+            attempt++;
+            acquire(bulkhead, family);
+            try {
+                HttpResponse response;
+                Exchange exchange = interceptors.beforeSend(request, family, attempt);
+                metrics.onRequestStart(family);
+                long start = System.nanoTime();
+                try {
+                    response = request.execute();
+                } catch (IOException ex) {
+                    long end = System.nanoTime();
+                    metrics.onError(family, ex, end - start, contentLength(request));
+                    interceptors.onError(exchange, ex, end);
+                    if (!retryable || !retrier.tryRetry(attempt)) {
+                        throw ex;
+                    }
+                    metrics.onRetry(family, attempt);
+                    backoffMillis = retrier.backoffMillis(attempt, null);
+                    continue;
+                } catch (RuntimeException ex) {
+                    // still end the attempt, so the in-flight count stays right
+                    long end = System.nanoTime();
+                    IOException error = new IOException(ex);
+                    metrics.onError(family, error, end - start, contentLength(request));
+                    interceptors.onError(exchange, error, end);
+                    throw ex;
+                }
+                long end = System.nanoTime();
+                Long bytesIn = response.getHeaders().getContentLength();
+                metrics.onResponse(family, response.getStatusCode(), end - start, contentLength(request),
+                        bytesIn == null ? -1 : bytesIn);
+                try {
+                    interceptors.afterResponse(exchange, response, end);
+                } catch (IOException ex) {
+                    response.disconnect();
+                    throw ex;
+                }
+                if (response.isSuccessStatusCode()) {
+                    return response;
+                }
+                if (!retryable || !retrier.isRetryableStatus(response.getStatusCode()) || !retrier.tryRetry(attempt)) {
+                    throw new HttpResponseException(response);
+                }
+                metrics.onRetry(family, attempt);
+                String retryAfter = response.getHeaders().getFirstHeaderStringValue("Retry-After");
+                response.disconnect();
+                backoffMillis = retrier.backoffMillis(attempt, retryAfter);
+            } finally {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+            }
         }
-        return null;
     }
 
-    /**
-     *
-     * @param ticketId
-     * @return
-     */
-    public PaymentRequestOutcome getPaymentRequestOutcome(String ticketId) {
-        MCashUrl url = MCashUrl.PaymentRequestOutcome(ticketId);
+    private static long contentLength(HttpRequest request) {
+        HttpContent content = request.getContent();
+        if (content == null) {
+            return 0;
+        }
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            PaymentRequestOutcome outcome = response.parseAs(PaymentRequestOutcome.class);
-            return outcome;
+            // computed and kept by the content when the request was sent
+            return content.getLength();
         } catch (IOException ex) {
-            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+            return -1;
         }
-        return null;
     }
 
-    private HttpResponse doHttpRequest(HttpRequest request) throws IOException, HttpResponseException {
-        HttpResponse response;
-        int tries = 0;
-        do {
-            response = request.execute();
-            tries++;
-        } while ((response.getStatusCode() / 100) == 5 && tries < 10);
-        if (response.getStatusCode() / 100 == 5) {
-            throw new HttpResponseException(response);
-        } else {
-            return response;
+    private void backoff(long millis) throws InterruptedIOException {
+        try {
+            retrier.backoff(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
         }
     }
 
@@ -604,36 +1625,36 @@ public class MCashClient implements AutoCloseable {
      * @return
      */
     public LedgerOverview getLedgerOverview() {
-        MCashUrl url = MCashUrl.Ledger();
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            LedgerOverview ledgerOverview = response.parseAs(LedgerOverview.class);
-            return ledgerOverview;
+            return doGetLedgerOverview();
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
+    LedgerOverview doGetLedgerOverview() throws IOException {
+        return doGet(baseUrl.ledger(), LedgerOverview.class);
+    }
+
     /**
      *
      * @param ledger
      * @return
      */
     public LedgerDetail getLedgerDetail(String ledger) {
-        MCashUrl url = MCashUrl.LedgerDetail(ledger);
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            LedgerDetail ledgerDetail = response.parseAs(LedgerDetail.class);
-            return ledgerDetail;
+            return doGetLedgerDetail(ledger);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
+    LedgerDetail doGetLedgerDetail(String ledger) throws IOException {
+        return doGet(baseUrl.ledgerDetail(ledger), LedgerDetail.class);
+    }
+
     /**
      * Uses ledger specified in constructor
      *
@@ -650,18 +1671,18 @@ public class MCashClient implements AutoCloseable {
      * @return
      */
     public ReportInfo getReportInfo(String ledger, String reportId) {
-        MCashUrl url = MCashUrl.Report(ledger, reportId);
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            ReportInfo reportInfo = response.parseAs(ReportInfo.class);
-            return reportInfo;
+            return doGetReportInfo(ledger, reportId);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
+    ReportInfo doGetReportInfo(String ledger, String reportId) throws IOException {
+        return doGet(baseUrl.report(ledger, reportId), ReportInfo.class);
+    }
+
     /**
      * Uses ledger specified in constructor
      *
@@ -678,33 +1699,190 @@ public class MCashClient implements AutoCloseable {
      * @return
      */
     public ReportInfo getReportInfoFromOpenUri(String uri) {
-        GenericUrl url = new GenericUrl(uri);
         try {
-            HttpRequest request = requestFactory.buildGetRequest(url);
-            HttpResponse response = doHttpRequest(request);
-            ReportInfo reportInfo = response.parseAs(ReportInfo.class);
-            return reportInfo;
+            return doGetReportInfoFromOpenUri(uri);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    ReportInfo doGetReportInfoFromOpenUri(String uri) throws IOException {
+        return doGet(new GenericUrl(uri), ReportInfo.class);
+    }
+
+    /**
+     * The open report of a ledger moves on whenever a report is closed, also
+     * by other clients, so the close flow must not read it from the cache.
+     */
+    private LedgerDetail getLedgerDetailUncached() {
+        try {
+            return doGet(baseUrl.ledgerDetail(ledger), LedgerDetail.class, false);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
+    /**
+     * Report status reads of the close flow must not be answered from the
+     * cache.
+     */
+    private ReportInfo getReportInfoUncached(String uri) {
+        try {
+            return doGet(new GenericUrl(uri), ReportInfo.class, false);
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Merchant specified in constructor
+     *
+     * @return
+     */
+    public Merchant getMerchant() {
+        try {
+            return doGetMerchant();
+        } catch (IOException ex) {
+            Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    Merchant doGetMerchant() throws IOException {
+        return doGet(baseUrl.merchant(merchantId), Merchant.class);
+    }
+
+    /**
+     * Lists the uris of all ledgers, following the pages of the ledger
+     * overview as the stream is consumed.
+     *
+     * @param prefetchExecutor fetches the following page in the background,
+     * or null to fetch pages on demand
+     * @return lazy stream; I/O errors surface as {@link UncheckedIOException}
+     */
+    public Stream<String> streamLedgerUris(Executor prefetchExecutor) {
+        return new PagedIterator<String>(baseUrl.ledger().build(), prefetchExecutor) {
+            @Override
+            Page<String> fetch(String uri) throws IOException {
+                LedgerOverview overview = doGet(new GenericUrl(uri), LedgerOverview.class);
+                return new Page<>(overview.uris, resolve(uri, overview.next));
+            }
+        }.stream();
+    }
+
+    /**
+     * Fetches the details of all ledgers, one at a time as the stream is
+     * consumed.
+     *
+     * @param prefetchExecutor fetches the following overview page in the
+     * background, or null to fetch pages on demand
+     * @return lazy stream; I/O errors surface as {@link UncheckedIOException}
+     */
+    public Stream<LedgerDetail> streamLedgers(Executor prefetchExecutor) {
+        return streamLedgerUris(prefetchExecutor).map(uri -> {
+            try {
+                return doGet(new GenericUrl(uri), LedgerDetail.class);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Walks the reports of a ledger from the open report back to the first,
+     * following previous_report_uri.
+     *
+     * @param ledgerDetail
+     * @param prefetchExecutor fetches the previous report in the background,
+     * or null to fetch reports on demand
+     * @return lazy stream, newest first; I/O errors surface as
+     * {@link UncheckedIOException}
+     */
+    public Stream<ReportInfo> streamReports(LedgerDetail ledgerDetail, Executor prefetchExecutor) {
+        String firstUri = ledgerDetail.open_report_uri != null ? ledgerDetail.open_report_uri : ledgerDetail.last_closed_report_uri;
+        return new PagedIterator<ReportInfo>(firstUri, prefetchExecutor) {
+            @Override
+            Page<ReportInfo> fetch(String uri) throws IOException {
+                ReportInfo reportInfo = doGet(new GenericUrl(uri), ReportInfo.class);
+                return new Page<>(Collections.singletonList(reportInfo), resolve(uri, reportInfo.previous_report_uri));
+            }
+        }.stream();
+    }
+
+    /**
+     * Opens a transaction log for reading entry by entry. Pages are fetched as
+     * the reader reaches them.
+     *
+     * @param uri one of {@link ReportInfo#transaction_log_uris}
+     * @return reader, to be closed if not read to the end
+     */
+    public TransactionLogReader<TransactionLogEntry> openTransactionLog(String uri) {
+        return openLog(uri, TransactionLogEntry.class);
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param uri transaction or scope log uri
+     * @param type entry type, e.g. {@link com.google.api.client.json.GenericJson}
+     * @return reader, to be closed if not read to the end
+     */
+    public <T> TransactionLogReader<T> openLog(String uri, Class<T> type) {
+        return new TransactionLogReader<>(this, uri, type);
+    }
+
+    /**
+     * Streams all transaction log entries of a report in constant memory.
+     *
+     * @param reportInfo
+     * @param parallel whether to read the logs of the report concurrently
+     * @return stream of entries, ordered by log; close it if not consumed to
+     * the end
+     */
+    public Stream<TransactionLogEntry> streamTransactionLogs(ReportInfo reportInfo, boolean parallel) {
+        return streamLogs(reportInfo.transaction_log_uris, TransactionLogEntry.class, parallel);
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param uris transaction or scope log uris
+     * @param type entry type
+     * @param parallel whether to read the logs concurrently
+     * @return stream of entries, ordered by log; close it if not consumed to
+     * the end
+     */
+    public <T> Stream<T> streamLogs(List<String> uris, Class<T> type, boolean parallel) {
+        List<String> logs = uris == null ? Collections.<String>emptyList() : uris;
+        return TransactionLogReader.stream(this, logs, type, parallel);
+    }
+
     /**
      *
      * @param ledger
      * @param reportId
      */
     public void closeReport(String ledger, String reportId) {
-        MCashUrl url = MCashUrl.Report(ledger, reportId);
         try {
-            HttpRequest request = requestFactory.buildPutRequest(url, null);
-            doHttpRequest(request);
+            doCloseReport(ledger, reportId);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    void doCloseReport(String ledger, String reportId) throws IOException {
+        MCashUrl url = baseUrl.report(ledger, reportId);
+        HttpRequest request = requestFactory.buildPutRequest(url, null);
+        try {
+            doHttpRequest(request);
+        } finally {
+            invalidateReport(url);
+        }
+    }
+
     /**
      * Uses ledger specified in constructor
      *
@@ -715,17 +1893,59 @@ public class MCashClient implements AutoCloseable {
     }
 
     public void closeReportFromOpenUri(String uri) {
-        GenericUrl url = new GenericUrl(uri);
+        closeReportFromOpenUri(uri, null);
+    }
+
+    /**
+     *
+     * @param uri
+     * @param callbackUri notified when the report is closed, may be null
+     */
+    public void closeReportFromOpenUri(String uri, String callbackUri) {
         try {
-            HttpRequest request = requestFactory.buildPutRequest(url, null);
-            doHttpRequest(request);
+            doCloseReportFromOpenUri(uri, callbackUri);
         } catch (IOException ex) {
             Logger.getLogger(MCashClient.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
-    private JsonHttpContent buildJsonContent(Object object) {
-        return new JsonHttpContent(JSON_FACTORY, object);
+    void doCloseReportFromOpenUri(String uri, String callbackUri) throws IOException {
+        GenericUrl url = new GenericUrl(uri);
+        ResourceContent content = null;
+        if (callbackUri != null) {
+            CallbackUri callback = new CallbackUri();
+            callback.callback_uri = callbackUri;
+            content = buildJsonContent(callback);
+        }
+        HttpRequest request = requestFactory.buildPutRequest(url, content);
+        try {
+            doHttpRequest(request);
+        } finally {
+            invalidateReport(url);
+        }
+    }
+
+    /**
+     * Closing a report changes it and the open report of its ledger.
+     */
+    private void invalidateReport(GenericUrl reportUrl) {
+        if (cache != null) {
+            cache.invalidate(reportUrl.build());
+            cache.invalidateAll(LedgerDetail.class);
+        }
+    }
+
+    /**
+     * Ledger specified in constructor
+     *
+     * @return
+     */
+    public String getLedger() {
+        return ledger;
+    }
+
+    private ResourceContent buildJsonContent(Object object) {
+        return new ResourceContent(JSON_FACTORY, object);
     }
 
     private HttpHeaders createHeaders(String merchantId, String userId, String authKey, String authMethod, String testbedToken) {
@@ -743,4 +1963,239 @@ public class MCashClient implements AutoCloseable {
         }
         return headers;
     }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mcash-batch-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Builder for clients which need more than the constructor arguments, e.g.
+     * a pooled transport or a shared polling engine.
+     */
+    public static final class Builder {
+
+        private String baseUrl = MCashUrl.getBaseUri();
+        private String merchantId;
+        private String userId;
+        private String authKey;
+        private String authMethod = "SECRET";
+        private String posId;
+        private String ledger;
+        private String testbedToken;
+        private PollingEngine pollingEngine;
+        private ListenerDispatcher listenerDispatcher;
+        private MCashTransport transport;
+        private TransportConfig transportConfig;
+        private RetryPolicy retryPolicy = RetryPolicy.defaults();
+        private CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.defaults();
+        private final EnumMap<EndpointFamily, Integer> bulkheadSizes = new EnumMap<>(EndpointFamily.class);
+        private long bulkheadMaxWaitMillis;
+        private CacheConfig cacheConfig;
+        private boolean coalesceGets;
+        private MetricsRecorder metrics = MetricsRecorder.NOOP;
+        private final List<RequestInterceptor> interceptors = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder merchantId(String merchantId) {
+            this.merchantId = merchantId;
+            return this;
+        }
+
+        public Builder userId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public Builder authKey(String authKey) {
+            this.authKey = authKey;
+            return this;
+        }
+
+        public Builder authMethod(String authMethod) {
+            this.authMethod = authMethod;
+            return this;
+        }
+
+        public Builder posId(String posId) {
+            this.posId = posId;
+            return this;
+        }
+
+        public Builder ledger(String ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
+        public Builder testbedToken(String testbedToken) {
+            this.testbedToken = testbedToken;
+            return this;
+        }
+
+        /**
+         *
+         * @param pollingEngine shared engine, not closed by the client, or
+         * null to let the client create its own
+         * @return
+         */
+        public Builder pollingEngine(PollingEngine pollingEngine) {
+            this.pollingEngine = pollingEngine;
+            return this;
+        }
+
+        /**
+         *
+         * @param transport shared transport, not closed by the client, or null
+         * for the default {@link java.net.HttpURLConnection} transport
+         * @return
+         */
+        public Builder transport(MCashTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Lets the client create its own transport, which is closed together
+         * with the client. Ignored if a shared transport is set.
+         *
+         * @param transportConfig
+         * @return
+         */
+        public Builder transportConfig(TransportConfig transportConfig) {
+            this.transportConfig = transportConfig;
+            return this;
+        }
+
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException("Retry policy is required");
+            }
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        public Builder circuitBreaker(CircuitBreakerConfig circuitBreakerConfig) {
+            if (circuitBreakerConfig == null) {
+                throw new IllegalArgumentException("Circuit breaker config is required");
+            }
+            this.circuitBreakerConfig = circuitBreakerConfig;
+            return this;
+        }
+
+        /**
+         * Limits the requests in flight to a family of endpoints. Families
+         * are not limited by default.
+         *
+         * @param family
+         * @param maxConcurrentCalls requests to the endpoint family allowed in
+         * flight at once
+         * @return
+         */
+        public Builder bulkhead(EndpointFamily family, int maxConcurrentCalls) {
+            if (maxConcurrentCalls < 1) {
+                throw new IllegalArgumentException("Invalid max concurrent calls " + maxConcurrentCalls);
+            }
+            bulkheadSizes.put(family, maxConcurrentCalls);
+            return this;
+        }
+
+        /**
+         *
+         * @param bulkheadMaxWaitMillis how long a request waits for a full
+         * bulkhead; 0, the default, fails fast
+         * @return
+         */
+        public Builder bulkheadMaxWaitMillis(long bulkheadMaxWaitMillis) {
+            if (bulkheadMaxWaitMillis < 0) {
+                throw new IllegalArgumentException("Invalid max wait " + bulkheadMaxWaitMillis);
+            }
+            this.bulkheadMaxWaitMillis = bulkheadMaxWaitMillis;
+            return this;
+        }
+
+        /**
+         * Enables caching of ledger, report and merchant responses.
+         *
+         * @param cacheConfig cache settings, or null to disable caching
+         * @return
+         */
+        public Builder cache(CacheConfig cacheConfig) {
+            this.cacheConfig = cacheConfig;
+            return this;
+        }
+
+        /**
+         * Concurrent identical GETs share one request and the same result
+         * object, so only enable this if callers do not modify results. Off
+         * by default.
+         *
+         * @param coalesceGets
+         * @return
+         */
+        public Builder coalesceGets(boolean coalesceGets) {
+            this.coalesceGets = coalesceGets;
+            return this;
+        }
+
+        /**
+         *
+         * @param metrics recorder of request latencies, status codes, retries
+         * and bytes, e.g. {@link net.brennheit.mcashapi.metrics.InMemoryMetrics}
+         * @return
+         */
+        public Builder metrics(MetricsRecorder metrics) {
+            if (metrics == null) {
+                throw new IllegalArgumentException("Metrics recorder is required");
+            }
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Adds an interceptor called around every HTTP attempt, after those
+         * added before it.
+         *
+         * @param interceptor
+         * @return
+         */
+        public Builder interceptor(RequestInterceptor interceptor) {
+            if (interceptor == null) {
+                throw new IllegalArgumentException("Interceptor is required");
+            }
+            interceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         *
+         * @param listenerDispatcher shared dispatcher notifying listeners, not
+         * closed by the client, or null to create one owned by the client
+         * @return
+         */
+        public Builder listenerDispatcher(ListenerDispatcher listenerDispatcher) {
+            this.listenerDispatcher = listenerDispatcher;
+            return this;
+        }
+
+        public MCashClient build() {
+            if (authMethod == null) {
+                throw new IllegalArgumentException("Auth method is required");
+            }
+            return new MCashClient(this);
+        }
+    }
 }
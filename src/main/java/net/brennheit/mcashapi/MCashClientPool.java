@@ -0,0 +1,444 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import net.brennheit.mcashapi.listener.ListenerDispatcher;
+import net.brennheit.mcashapi.poller.PollingEngine;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ * Clients of many merchants sharing one transport, one polling engine and
+ * one listener dispatcher.
+ * Clients are created on first use from the configuration of the merchant,
+ * and closed when they have been idle for too long or the pool is full.
+ * Closed clients stop polling and notifying listeners, but requests made
+ * through them still work.
+ *
+ * @author fiLLLip
+ */
+public class MCashClientPool implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CLIENTS = 1000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final Function<String, MCashClient.Builder> merchants;
+    private final MCashTransport transport;
+    private final boolean ownsTransport;
+    private final PollingEngine pollingEngine;
+    private final boolean ownsPollingEngine;
+    private final ListenerDispatcher listenerDispatcher;
+    private final boolean ownsListenerDispatcher;
+    private final int maxClients;
+    private final long idleTimeoutMillis;
+    private final LinkedHashMap<String, Entry> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private ScheduledFuture<?> idleSweep;
+    private boolean closed;
+
+    private MCashClientPool(Builder builder) {
+        this.merchants = builder.merchants;
+        this.ownsPollingEngine = builder.pollingEngine == null;
+        this.pollingEngine = builder.pollingEngine == null ? new PollingEngine() : builder.pollingEngine;
+        this.ownsListenerDispatcher = builder.listenerDispatcher == null;
+        this.listenerDispatcher = builder.listenerDispatcher == null ? new ListenerDispatcher() : builder.listenerDispatcher;
+        this.ownsTransport = builder.transport == null;
+        if (builder.transport != null) {
+            this.transport = builder.transport;
+        } else if (builder.transportConfig != null) {
+            this.transport = MCashTransport.create(builder.transportConfig);
+        } else {
+            this.transport = MCashTransport.create(TransportConfig.defaults());
+        }
+        this.maxClients = builder.maxClients;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        scheduleIdleSweep();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Client of the given merchant, created if it is not pooled yet.
+     *
+     * @param merchantId
+     * @return
+     * @throws IllegalStateException if the pool is closed
+     * @throws IllegalArgumentException if no configuration is known for the
+     * merchant
+     */
+    public MCashClient getClient(String merchantId) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            checkOpen();
+            entry = clients.get(merchantId);
+        }
+        if (entry != null) {
+            entry.stats.recordAccess(now);
+            return entry.client;
+        }
+        MCashClient client = createClient(merchantId);
+        List<Entry> evictions;
+        synchronized (this) {
+            if (closed) {
+                client.close();
+                checkOpen();
+            }
+            entry = clients.get(merchantId);
+            if (entry == null) {
+                entry = new Entry(client, new MerchantStats(merchantId, client, now));
+                clients.put(merchantId, entry);
+                created.incrementAndGet();
+                client = null;
+            }
+            evictions = evictOverflow(entry);
+        }
+        if (client != null) {
+            // another thread created the client first
+            client.close();
+        }
+        closeAll(evictions);
+        entry.stats.recordAccess(now);
+        return entry.client;
+    }
+
+    private MCashClient createClient(String merchantId) {
+        MCashClient.Builder builder = merchants.apply(merchantId);
+        if (builder == null) {
+            throw new IllegalArgumentException("Unknown merchant " + merchantId);
+        }
+        return builder.merchantId(merchantId).transport(transport).pollingEngine(pollingEngine).listenerDispatcher(listenerDispatcher).build();
+    }
+
+    /**
+     * Closes and drops the client of the given merchant, e.g. after its
+     * credentials changed.
+     *
+     * @param merchantId
+     * @return true if the merchant had a pooled client
+     */
+    public boolean remove(String merchantId) {
+        Entry entry;
+        synchronized (this) {
+            entry = clients.remove(merchantId);
+        }
+        if (entry == null) {
+            return false;
+        }
+        entry.client.close();
+        return true;
+    }
+
+    /**
+     *
+     * @param merchantId
+     * @return stats, or null if the merchant has no pooled client
+     */
+    public synchronized MerchantStats getStats(String merchantId) {
+        // a plain get would count as access and reorder the LRU list
+        for (Map.Entry<String, Entry> e : clients.entrySet()) {
+            if (e.getKey().equals(merchantId)) {
+                return e.getValue().stats;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @return stats of all pooled clients, least recently used first
+     */
+    public synchronized List<MerchantStats> getStats() {
+        List<MerchantStats> stats = new ArrayList<>(clients.size());
+        for (Entry entry : clients.values()) {
+            stats.add(entry.stats);
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    /**
+     *
+     * @return clients created since the pool was created
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     *
+     * @return clients closed because they were idle or the pool was full
+     */
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    public MCashTransport getTransport() {
+        return transport;
+    }
+
+    public PollingEngine getPollingEngine() {
+        return pollingEngine;
+    }
+
+    public ListenerDispatcher getListenerDispatcher() {
+        return listenerDispatcher;
+    }
+
+    /**
+     * Closes all clients, and the transport, engine and dispatcher if the
+     * pool created them.
+     */
+    @Override
+    public void close() {
+        List<Entry> entries;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (idleSweep != null) {
+                idleSweep.cancel(false);
+            }
+            entries = new ArrayList<>(clients.values());
+            clients.clear();
+        }
+        for (Entry entry : entries) {
+            entry.client.close();
+        }
+        if (ownsPollingEngine) {
+            pollingEngine.close();
+        }
+        if (ownsListenerDispatcher) {
+            listenerDispatcher.close();
+        }
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Client pool is closed");
+        }
+    }
+
+    /**
+     * Drops least recently used clients until the pool fits. Clients still
+     * waiting for payments or reports are kept, like in the idle sweep, so
+     * the pool may stay above its size until they finish.
+     */
+    private List<Entry> evictOverflow(Entry keep) {
+        List<Entry> evictions = new ArrayList<>();
+        Iterator<Entry> eldest = clients.values().iterator();
+        while (clients.size() > maxClients && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entry != keep && !entry.client.isListening()) {
+                evictions.add(entry);
+                eldest.remove();
+            }
+        }
+        return evictions;
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+        List<Entry> evictions = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Iterator<Entry> it = clients.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                // clients still waiting for payments or reports are kept
+                if (entry.stats.getLastAccessMillis() < idleSince && !entry.client.isListening()) {
+                    evictions.add(entry);
+                    it.remove();
+                }
+            }
+            // clients kept over the limit while they were listening
+            evictions.addAll(evictOverflow(null));
+            scheduleIdleSweep();
+        }
+        closeAll(evictions);
+    }
+
+    private synchronized void scheduleIdleSweep() {
+        if (idleTimeoutMillis > 0 && !closed) {
+            long delay = Math.max(idleTimeoutMillis / 2, 1000);
+            try {
+                idleSweep = pollingEngine.schedule(this::evictIdle, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // the shared engine was closed before the pool
+                idleSweep = null;
+            }
+        }
+    }
+
+    private void closeAll(List<Entry> entries) {
+        for (Entry entry : entries) {
+            evicted.incrementAndGet();
+            entry.client.close();
+        }
+    }
+
+    private static final class Entry {
+
+        private final MCashClient client;
+        private final MerchantStats stats;
+
+        Entry(MCashClient client, MerchantStats stats) {
+            this.client = client;
+            this.stats = stats;
+        }
+    }
+
+    public static final class Builder {
+
+        private Function<String, MCashClient.Builder> merchants;
+        private MCashTransport transport;
+        private TransportConfig transportConfig;
+        private PollingEngine pollingEngine;
+        private ListenerDispatcher listenerDispatcher;
+        private int maxClients = DEFAULT_MAX_CLIENTS;
+        private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+        private Builder() {
+        }
+
+        /**
+         * Configuration of each merchant, e.g. looked up from a database. The
+         * pool sets merchant id, transport, polling engine and listener
+         * dispatcher on the returned builder.
+         *
+         * @param merchants returns a client builder with the credentials,
+         * POS and ledger of the merchant, or null if the merchant is unknown
+         * @return
+         */
+        public Builder merchants(Function<String, MCashClient.Builder> merchants) {
+            this.merchants = merchants;
+            return this;
+        }
+
+        /**
+         *
+         * @param transport shared transport, not closed by the pool
+         * @return
+         */
+        public Builder transport(MCashTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Lets the pool create its own transport, which is closed together
+         * with the pool. Ignored if a shared transport is set.
+         *
+         * @param transportConfig
+         * @return
+         */
+        public Builder transportConfig(TransportConfig transportConfig) {
+            this.transportConfig = transportConfig;
+            return this;
+        }
+
+        /**
+         *
+         * @param pollingEngine shared engine, not closed by the pool, or null
+         * to let the pool create its own
+         * @return
+         */
+        public Builder pollingEngine(PollingEngine pollingEngine) {
+            this.pollingEngine = pollingEngine;
+            return this;
+        }
+
+        /**
+         *
+         * @param listenerDispatcher shared dispatcher, not closed by the pool,
+         * or null to let the pool create its own
+         * @return
+         */
+        public Builder listenerDispatcher(ListenerDispatcher listenerDispatcher) {
+            this.listenerDispatcher = listenerDispatcher;
+            return this;
+        }
+
+        /**
+         *
+         * @param maxClients clients kept before the least recently used idle
+         * ones are closed; clients waiting for payments or reports are never
+         * closed to make room
+         * @return
+         */
+        public Builder maxClients(int maxClients) {
+            if (maxClients < 1) {
+                throw new IllegalArgumentException("Invalid max clients " + maxClients);
+            }
+            this.maxClients = maxClients;
+            return this;
+        }
+
+        /**
+         *
+         * @param idleTimeoutMillis how long a client may go unused before it
+         * is closed; 0 keeps clients until the pool is full
+         * @return
+         */
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            if (idleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Invalid idle timeout " + idleTimeoutMillis);
+            }
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public MCashClientPool build() {
+            if (merchants == null) {
+                throw new IllegalArgumentException("Merchant configuration is required");
+            }
+            return new MCashClientPool(this);
+        }
+    }
+}
@@ -26,76 +26,266 @@
 package net.brennheit.mcashapi;
 
 import com.google.api.client.http.GenericUrl;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
+ * URL of an mCASH endpoint. The factories expand precompiled path templates
+ * onto the parsed components of the base URI, instead of formatting and
+ * re-parsing the whole URL string on every call.
  *
  * @author fiLLLip
  */
 public class MCashUrl extends GenericUrl {
 
+    private static final Template PAYMENT_REQUEST = Template.compile("/payment_request/");
+    private static final Template PAYMENT_REQUEST_TID = Template.compile("/payment_request/{tid}/");
+    private static final Template PAYMENT_REQUEST_OUTCOME = Template.compile("/payment_request/{tid}/outcome/");
+    private static final Template PAYMENT_REQUEST_TICKET = Template.compile("/payment_request/{tid}/ticket/");
+    private static final Template SHORTLINK = Template.compile("/shortlink/");
+    private static final Template SHORTLINK_ID = Template.compile("/shortlink/{shortlinkId}/");
+    private static final Template SHORTLINK_LAST_SCAN = Template.compile("/shortlink/{shortlinkId}/last_scan/");
+    private static final Template MERCHANT = Template.compile("/merchant/{merchantId}/");
+    private static final Template LEDGER = Template.compile("/ledger/");
+    private static final Template LEDGER_DETAIL = Template.compile("/ledger/{ledger}/");
+    private static final Template REPORT = Template.compile("/ledger/{ledger}/report/{reportId}/");
+
     public MCashUrl(String encodedUrl) {
-        super(baseUri + encodedUrl);
+        super(base.getUri() + encodedUrl);
+    }
+
+    private MCashUrl(Base base, List<String> pathParts) {
+        setScheme(base.scheme);
+        setHost(base.host);
+        setPort(base.port);
+        setUserInfo(base.userInfo);
+        setPathParts(pathParts);
     }
 
-    private static String baseUri = "https://api.mca.sh/merchant/v1";
+    private static volatile Base base = Base.parse("https://api.mca.sh/merchant/v1");
 
+    /**
+     * Default base URI of clients built without one.
+     *
+     * @return
+     */
     public static String getBaseUri() {
-        return baseUri;
+        return base.getUri();
     }
 
+    /**
+     * Changes the default base URI of clients built afterwards. Clients keep
+     * the base URI they were created with.
+     *
+     * @param baseUrl
+     */
     public static void setBaseUri(String baseUrl) {
-        MCashUrl.baseUri = baseUrl;
+        MCashUrl.base = Base.parse(baseUrl);
     }
 
     public static MCashUrl PaymentRequest() {
-        return new MCashUrl("/payment_request/");
+        return base.paymentRequest();
     }
 
     public static MCashUrl PaymentRequest(String tid) {
-        String url = String.format("/payment_request/%s/", tid);
-        return new MCashUrl(url);
+        return base.paymentRequest(tid);
     }
 
     public static MCashUrl PaymentRequestOutcome(String tid) {
-        String url = String.format("/payment_request/%s/outcome/", tid);
-        return new MCashUrl(url);
+        return base.paymentRequestOutcome(tid);
     }
 
     public static MCashUrl PaymentRequestTicket(String tid) {
-        String url = String.format("/payment_request/%s/ticket/", tid);
-        return new MCashUrl(url);
+        return base.paymentRequestTicket(tid);
     }
 
     public static MCashUrl Shortlink() {
-        return new MCashUrl("/shortlink/");
+        return base.shortlink();
     }
 
     public static MCashUrl Shortlink(String shortlinkId) {
-        String url = String.format("/shortlink/%s/", shortlinkId);
-        return new MCashUrl(url);
+        return base.shortlink(shortlinkId);
     }
 
     public static MCashUrl ShortlinkLastScan(String shortlinkId) {
-        String url = String.format("/shortlink/%s/last_scan/", shortlinkId);
-        return new MCashUrl(url);
+        return base.shortlinkLastScan(shortlinkId);
     }
 
     public static MCashUrl ShortlinkLastScan(String shortlinkId, long ttl) {
-        String url = String.format("/shortlink/%s/last_scan/?ttl=%s", shortlinkId, ttl);
-        return new MCashUrl(url);
+        return base.shortlinkLastScan(shortlinkId, ttl);
+    }
+
+    public static MCashUrl Merchant(String merchantId) {
+        return base.merchant(merchantId);
     }
-        
+
     public static MCashUrl Ledger() {
-        return new MCashUrl("/ledger/");
+        return base.ledger();
     }
-        
+
     public static MCashUrl LedgerDetail(String ledger) {
-        String url = String.format("/ledger/%s/", ledger);
-        return new MCashUrl(url);
+        return base.ledgerDetail(ledger);
     }
-        
+
     public static MCashUrl Report(String ledger, String reportId) {
-        String url = String.format("/ledger/%s/report/%s/", ledger, reportId);
-        return new MCashUrl(url);
+        return base.report(ledger, reportId);
+    }
+
+    /**
+     * Scheme, authority and path segments of a base URI, parsed once. Each
+     * client holds its own instance, so clients for different environments
+     * can live in one JVM.
+     */
+    static final class Base {
+
+        private final String uri;
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final String userInfo;
+        private final List<String> pathParts;
+
+        private Base(String uri, GenericUrl url) {
+            this.uri = uri;
+            this.scheme = url.getScheme();
+            this.host = url.getHost();
+            this.port = url.getPort();
+            this.userInfo = url.getUserInfo();
+            List<String> parts = url.getPathParts();
+            this.pathParts = parts == null ? null : Collections.unmodifiableList(new ArrayList<>(parts));
+        }
+
+        static Base parse(String uri) {
+            if (uri == null) {
+                throw new IllegalArgumentException("Base URI is required");
+            }
+            return new Base(uri, new GenericUrl(uri));
+        }
+
+        String getUri() {
+            return uri;
+        }
+
+        String getHost() {
+            return host;
+        }
+
+        MCashUrl paymentRequest() {
+            return PAYMENT_REQUEST.expand(this);
+        }
+
+        MCashUrl paymentRequest(String tid) {
+            return PAYMENT_REQUEST_TID.expand(this, tid);
+        }
+
+        MCashUrl paymentRequestOutcome(String tid) {
+            return PAYMENT_REQUEST_OUTCOME.expand(this, tid);
+        }
+
+        MCashUrl paymentRequestTicket(String tid) {
+            return PAYMENT_REQUEST_TICKET.expand(this, tid);
+        }
+
+        MCashUrl shortlink() {
+            return SHORTLINK.expand(this);
+        }
+
+        MCashUrl shortlink(String shortlinkId) {
+            return SHORTLINK_ID.expand(this, shortlinkId);
+        }
+
+        MCashUrl shortlinkLastScan(String shortlinkId) {
+            return SHORTLINK_LAST_SCAN.expand(this, shortlinkId);
+        }
+
+        MCashUrl shortlinkLastScan(String shortlinkId, long ttl) {
+            MCashUrl url = SHORTLINK_LAST_SCAN.expand(this, shortlinkId);
+            url.set("ttl", ttl);
+            return url;
+        }
+
+        MCashUrl merchant(String merchantId) {
+            return MERCHANT.expand(this, merchantId);
+        }
+
+        MCashUrl ledger() {
+            return LEDGER.expand(this);
+        }
+
+        MCashUrl ledgerDetail(String ledger) {
+            return LEDGER_DETAIL.expand(this, ledger);
+        }
+
+        MCashUrl report(String ledger, String reportId) {
+            return REPORT.expand(this, ledger, reportId);
+        }
+    }
+
+    /**
+     * Path relative to the base URI, with {@code {name}} in place of variable
+     * segments. Values are inserted as single decoded segments and encoded
+     * when the URL is built.
+     */
+    static final class Template {
+
+        private final String[] segments;
+        private final int[] variables;
+
+        private Template(String[] segments, int[] variables) {
+            this.segments = segments;
+            this.variables = variables;
+        }
+
+        static Template compile(String path) {
+            List<String> parts = GenericUrl.toPathParts(path);
+            // the leading empty part stands for the slash joining base and path
+            String[] segments = parts.subList(1, parts.size()).toArray(new String[parts.size() - 1]);
+            int count = 0;
+            for (String segment : segments) {
+                if (isVariable(segment)) {
+                    count++;
+                }
+            }
+            int[] variables = new int[count];
+            for (int i = 0, v = 0; i < segments.length; i++) {
+                if (isVariable(segments[i])) {
+                    variables[v++] = i;
+                }
+            }
+            return new Template(segments, variables);
+        }
+
+        private static boolean isVariable(String segment) {
+            return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+        }
+
+        MCashUrl expand(Base base, String... values) {
+            if (values.length != variables.length) {
+                throw new IllegalArgumentException("Expected " + variables.length + " values, got " + values.length);
+            }
+            for (int v = 0; v < variables.length; v++) {
+                if (values[v] == null) {
+                    String segment = segments[variables[v]];
+                    throw new IllegalArgumentException(segment.substring(1, segment.length() - 1) + " is required");
+                }
+            }
+            List<String> baseParts = base.pathParts;
+            int baseSize = baseParts == null ? 1 : baseParts.size();
+            List<String> pathParts = new ArrayList<>(baseSize + segments.length);
+            if (baseParts == null) {
+                pathParts.add("");
+            } else {
+                pathParts.addAll(baseParts);
+            }
+            for (int i = 0, v = 0; i < segments.length; i++) {
+                if (v < variables.length && variables[v] == i) {
+                    pathParts.add(values[v++]);
+                } else {
+                    pathParts.add(segments[i]);
+                }
+            }
+            return new MCashUrl(base, pathParts);
+        }
     }
 }
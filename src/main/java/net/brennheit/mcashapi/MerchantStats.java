@@ -0,0 +1,123 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import net.brennheit.mcashapi.cache.CacheStats;
+import net.brennheit.mcashapi.metrics.MetricsRecorder;
+import net.brennheit.mcashapi.retry.RetryStats;
+
+/**
+ * Usage of the client of one merchant in a {@link MCashClientPool}.
+ *
+ * @author fiLLLip
+ */
+public class MerchantStats {
+
+    private final String merchantId;
+    private final MCashClient client;
+    private final long createdMillis;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private volatile long lastAccessMillis;
+
+    MerchantStats(String merchantId, MCashClient client, long createdMillis) {
+        this.merchantId = merchantId;
+        this.client = client;
+        this.createdMillis = createdMillis;
+        this.lastAccessMillis = createdMillis;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+
+    /**
+     *
+     * @return when the client was created by the pool
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     *
+     * @return when the client was last handed out by the pool
+     */
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    /**
+     *
+     * @return times the client was handed out by the pool
+     */
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public RetryStats getRetryStats() {
+        return client.getRetryStats();
+    }
+
+    /**
+     *
+     * @return stats, or null if caching is not enabled
+     */
+    public CacheStats getCacheStats() {
+        return client.getCacheStats();
+    }
+
+    /**
+     *
+     * @return recorder set on the client builder of the merchant
+     */
+    public MetricsRecorder getMetrics() {
+        return client.getMetrics();
+    }
+
+    public long getCoalescedRequests() {
+        return client.getCoalescedRequests();
+    }
+
+    /**
+     *
+     * @return payment requests currently being polled
+     */
+    public int getTrackedPayments() {
+        return client.getTrackedPaymentRequests().size();
+    }
+
+    void recordAccess(long nowMillis) {
+        acquisitions.incrementAndGet();
+        lastAccessMillis = nowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "MerchantStats{merchantId=" + merchantId + ", acquisitions=" + acquisitions
+                + ", trackedPayments=" + getTrackedPayments() + ", " + getRetryStats() + '}';
+    }
+}
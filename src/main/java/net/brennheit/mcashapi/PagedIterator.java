@@ -0,0 +1,211 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.util.Data;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over items of a chain of linked pages, fetching a page only when
+ * the items of the previous one are used up. With a prefetch executor, the
+ * following page is fetched in the background while the current one is
+ * consumed.
+ *
+ * <p>
+ * Being an iterator, it reports I/O errors as {@link UncheckedIOException}.
+ * A link back to a page already fetched is reported as an
+ * {@link IllegalStateException} instead of looping forever.
+ * </p>
+ *
+ * @author fiLLLip
+ * @param <T> item type
+ */
+abstract class PagedIterator<T> implements Iterator<T> {
+
+    static final class Page<T> {
+
+        final List<T> items;
+        final String nextUri;
+
+        Page(List<T> items, String nextUri) {
+            this.items = items == null ? Collections.<T>emptyList() : items;
+            this.nextUri = nextUri;
+        }
+    }
+
+    private final Executor prefetchExecutor;
+    private final Set<String> visited = new HashSet<>();
+    private String nextUri;
+    private FutureTask<Page<T>> prefetched;
+    private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+    /**
+     *
+     * @param firstUri uri of the first page, or null for no pages
+     * @param prefetchExecutor runs background page fetches, or null to fetch
+     * on demand only
+     */
+    PagedIterator(String firstUri, Executor prefetchExecutor) {
+        this.nextUri = firstUri;
+        this.prefetchExecutor = prefetchExecutor;
+        if (firstUri != null) {
+            visited.add(firstUri);
+        }
+    }
+
+    /**
+     *
+     * @param uri
+     * @return the page, with its next uri resolved against {@code uri}
+     * @throws IOException
+     */
+    abstract Page<T> fetch(String uri) throws IOException;
+
+    /**
+     *
+     * @param baseUri
+     * @param uri link, possibly relative or a JSON null
+     * @return absolute uri, or null if there is no link
+     * @throws MalformedURLException
+     */
+    static String resolve(String baseUri, String uri) throws MalformedURLException {
+        if (uri == null || Data.isNull(uri) || uri.isEmpty()) {
+            return null;
+        }
+        return new URL(new URL(baseUri), uri).toString();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (prefetched == null && nextUri == null) {
+                return false;
+            }
+            Page<T> page = takePage();
+            current = page.items.iterator();
+            nextUri = page.nextUri;
+            if (nextUri != null && !visited.add(nextUri)) {
+                String loop = nextUri;
+                nextUri = null;
+                throw new IllegalStateException("Page " + loop + " links back to an earlier page");
+            }
+            if (nextUri != null && prefetchExecutor != null) {
+                try {
+                    prefetched = prefetch(nextUri);
+                    nextUri = null;
+                } catch (RejectedExecutionException ex) {
+                    // fetched on demand instead
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Cancels a background fetch in progress.
+     */
+    void cancel() {
+        if (prefetched != null) {
+            prefetched.cancel(true);
+            prefetched = null;
+        }
+        nextUri = null;
+        current = Collections.<T>emptyList().iterator();
+    }
+
+    Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        });
+    }
+
+    private Page<T> takePage() {
+        try {
+            if (prefetched == null) {
+                return fetch(nextUri);
+            }
+            FutureTask<Page<T>> task = prefetched;
+            prefetched = null;
+            return task.get();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while fetching page"));
+        }
+    }
+
+    private FutureTask<Page<T>> prefetch(final String uri) {
+        FutureTask<Page<T>> task = new FutureTask<>(new Callable<Page<T>>() {
+            @Override
+            public Page<T> call() throws IOException {
+                return fetch(uri);
+            }
+        });
+        prefetchExecutor.execute(task);
+        return task;
+    }
+}
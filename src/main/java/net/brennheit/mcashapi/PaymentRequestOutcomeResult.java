@@ -0,0 +1,71 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+
+/**
+ * Outcome of one payment request in a batch fetch, or the reason it could not
+ * be fetched.
+ *
+ * @author fiLLLip
+ */
+public final class PaymentRequestOutcomeResult {
+
+    private final String ticketId;
+    private final PaymentRequestOutcome outcome;
+    private final Exception error;
+
+    PaymentRequestOutcomeResult(String ticketId, PaymentRequestOutcome outcome, Exception error) {
+        this.ticketId = ticketId;
+        this.outcome = outcome;
+        this.error = error;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     *
+     * @return the outcome, or null if fetching it failed
+     */
+    public PaymentRequestOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     *
+     * @return why fetching the outcome failed, or null on success
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
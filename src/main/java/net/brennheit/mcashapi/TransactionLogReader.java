@@ -0,0 +1,287 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import net.brennheit.mcashapi.json.ResourceObjectParser;
+
+/**
+ * Reads the entries of a report log one at a time, holding only the current
+ * entry in memory. A log page is either a JSON array of entries, or an object
+ * whose first array field holds the entries and whose {@code next} field links
+ * to the following page, which is fetched when the current one is exhausted.
+ * A link back to a page already read is reported as an error.
+ *
+ * <p>
+ * Being an iterator, the reader reports I/O errors as
+ * {@link UncheckedIOException}. It closes itself when exhausted or failed.
+ * </p>
+ *
+ * @author fiLLLip
+ * @param <T> entry type
+ */
+public class TransactionLogReader<T> implements Iterator<T>, Closeable {
+
+    private final MCashClient client;
+    private final Class<T> type;
+    private final Set<String> visited = new HashSet<>();
+    private String pageUri;
+    private String nextPageUri;
+    private HttpResponse response;
+    private JsonParser parser;
+    private boolean inEntries;
+    private boolean entriesSeen;
+    private T next;
+    private boolean closed;
+
+    TransactionLogReader(MCashClient client, String uri, Class<T> type) {
+        this.client = client;
+        this.type = type;
+        this.nextPageUri = uri;
+    }
+
+    /**
+     * Streams the entries of several logs, reading each log sequentially.
+     * A parallel stream reads different logs concurrently. Close the stream
+     * to release connections of logs not read to the end.
+     */
+    static <T> Stream<T> stream(MCashClient client, List<String> uris, Class<T> type, boolean parallel) {
+        LogSpliterator<T> spliterator = new LogSpliterator<>(client, new ArrayList<>(uris), type);
+        final Queue<TransactionLogReader<T>> readers = spliterator.readers;
+        return StreamSupport.stream(spliterator, parallel).onClose(new Runnable() {
+            @Override
+            public void run() {
+                for (TransactionLogReader<T> reader : readers) {
+                    reader.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            next = readNext();
+        } catch (IOException ex) {
+            close();
+            throw new UncheckedIOException(ex);
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T entry = next;
+        next = null;
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closePage();
+    }
+
+    private T readNext() throws IOException {
+        while (true) {
+            if (parser == null) {
+                if (nextPageUri == null) {
+                    close();
+                    return null;
+                }
+                openPage(nextPageUri);
+            }
+            if (inEntries) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    return ResourceObjectParser.parse(parser, type);
+                }
+                if (token != JsonToken.END_ARRAY) {
+                    throw new IOException("Unexpected " + token + " in log entries of " + pageUri);
+                }
+                inEntries = false;
+            } else if (!findEntries()) {
+                closePage();
+            }
+        }
+    }
+
+    private void openPage(String uri) throws IOException {
+        if (!visited.add(uri)) {
+            throw new IOException("Log page " + pageUri + " links back to " + uri);
+        }
+        pageUri = uri;
+        nextPageUri = null;
+        entriesSeen = false;
+        response = client.doGetResponse(new GenericUrl(uri));
+        parser = MCashClient.JSON_FACTORY.createJsonParser(response.getContent(), response.getContentCharset());
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            inEntries = true;
+            entriesSeen = true;
+        } else if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected " + token + " at start of log " + uri);
+        }
+    }
+
+    /**
+     * Scans the fields of an object page up to its entries array, recording
+     * the next page link on the way.
+     *
+     * @return false at the end of the page
+     */
+    private boolean findEntries() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("next".equals(name) && value == JsonToken.VALUE_STRING) {
+                nextPageUri = new URL(new URL(pageUri), parser.getText()).toString();
+            } else if (value == JsonToken.START_ARRAY && !entriesSeen) {
+                inEntries = true;
+                entriesSeen = true;
+                return true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private void closePage() {
+        inEntries = false;
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException ex) {
+                // the response is disconnected below
+            }
+            parser = null;
+        }
+        if (response != null) {
+            try {
+                response.disconnect();
+            } catch (IOException ex) {
+                // nothing left to release
+            }
+            response = null;
+        }
+    }
+
+    private static class LogSpliterator<T> implements Spliterator<T> {
+
+        private final MCashClient client;
+        private final List<String> uris;
+        private final Class<T> type;
+        private final Queue<TransactionLogReader<T>> readers;
+        private int from;
+        private final int to;
+        private TransactionLogReader<T> reader;
+
+        LogSpliterator(MCashClient client, List<String> uris, Class<T> type) {
+            this(client, uris, type, new ConcurrentLinkedQueue<TransactionLogReader<T>>(), 0, uris.size());
+        }
+
+        private LogSpliterator(MCashClient client, List<String> uris, Class<T> type, Queue<TransactionLogReader<T>> readers, int from, int to) {
+            this.client = client;
+            this.uris = uris;
+            this.type = type;
+            this.readers = readers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (true) {
+                if (reader == null) {
+                    if (from >= to) {
+                        return false;
+                    }
+                    reader = new TransactionLogReader<>(client, uris.get(from++), type);
+                    readers.add(reader);
+                }
+                if (reader.hasNext()) {
+                    action.accept(reader.next());
+                    return true;
+                }
+                readers.remove(reader);
+                reader = null;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (from + to) >>> 1;
+            if (mid <= from) {
+                return null;
+            }
+            LogSpliterator<T> prefix = new LogSpliterator<>(client, uris, type, readers, from, mid);
+            prefix.reader = reader;
+            reader = null;
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from + (reader == null ? 0 : 1);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
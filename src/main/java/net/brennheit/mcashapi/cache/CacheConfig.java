@@ -0,0 +1,125 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.LedgerOverview;
+import net.brennheit.mcashapi.resource.Merchant;
+import net.brennheit.mcashapi.resource.ReportInfo;
+
+/**
+ * Immutable settings of a {@link ResponseCache}: its size and how long each
+ * resource type is served without asking the server.
+ *
+ * @author fiLLLip
+ */
+public final class CacheConfig {
+
+    private final int maxEntries;
+    private final Map<Class<?>, Long> ttlMillis;
+
+    private CacheConfig(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.ttlMillis = Collections.unmodifiableMap(new HashMap<>(builder.ttlMillis));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Caches up to 256 responses: merchants for an hour, ledger details for
+     * five minutes, ledger overviews for a minute and reports for ten
+     * seconds.
+     *
+     * @return
+     */
+    public static CacheConfig defaults() {
+        return new Builder().build();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     *
+     * @param type resource class
+     * @return time to live in milliseconds, or 0 if the type is not cached
+     */
+    public long getTtlMillis(Class<?> type) {
+        Long ttl = ttlMillis.get(type);
+        return ttl == null ? 0 : ttl;
+    }
+
+    public static final class Builder {
+
+        private int maxEntries = 256;
+        private final Map<Class<?>, Long> ttlMillis = new HashMap<>();
+
+        private Builder() {
+            ttlMillis.put(Merchant.class, 3600000L);
+            ttlMillis.put(LedgerDetail.class, 300000L);
+            ttlMillis.put(LedgerOverview.class, 60000L);
+            ttlMillis.put(ReportInfo.class, 10000L);
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("Invalid max entries " + maxEntries);
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Payment request outcomes and shortlink scans change while they are
+         * polled and should not be cached.
+         *
+         * @param type resource class
+         * @param ttlMillis time to live, or 0 to not cache the type
+         * @return
+         */
+        public Builder ttlMillis(Class<?> type, long ttlMillis) {
+            if (ttlMillis < 0) {
+                throw new IllegalArgumentException("Invalid TTL " + ttlMillis);
+            }
+            if (ttlMillis == 0) {
+                this.ttlMillis.remove(type);
+            } else {
+                this.ttlMillis.put(type, ttlMillis);
+            }
+            return this;
+        }
+
+        public CacheConfig build() {
+            return new CacheConfig(this);
+        }
+    }
+}
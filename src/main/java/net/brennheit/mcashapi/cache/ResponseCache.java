@@ -0,0 +1,247 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded, least recently used cache of parsed GET responses, keyed on
+ * the request URL. Entries expire after the TTL of their resource type and
+ * keep the ETag of the response, so an expired entry can be revalidated with
+ * If-None-Match instead of downloaded again.
+ *
+ * <p>
+ * Cached resources are shared between callers and must not be modified.
+ * </p>
+ *
+ * <p>
+ * A response is only stored if its key was not invalidated after the request
+ * started, see {@link #generation()}, so a GET racing with an update cannot
+ * put the old state back.
+ * </p>
+ *
+ * @author fiLLLip
+ */
+public class ResponseCache {
+
+    public static final class Entry<T> {
+
+        private final Class<T> type;
+        private final T value;
+        private final String etag;
+        private volatile long expiresAt;
+
+        private Entry(Class<T> type, T value, String etag, long expiresAt) {
+            this.type = type;
+            this.value = value;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         *
+         * @return ETag of the cached response, or null if it had none
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+
+    private final CacheConfig config;
+    private final CacheStats stats = new CacheStats();
+    private final LinkedHashMap<String, Entry<?>> entries;
+    // generation of the last invalidation of a key, type or everything
+    private final LinkedHashMap<String, Long> invalidatedKeys;
+    private final Map<Class<?>, Long> invalidatedTypes = new HashMap<>();
+    private long invalidatedAll;
+    private long generation;
+
+    public ResponseCache(final CacheConfig config) {
+        this.config = config;
+        this.entries = new LinkedHashMap<String, Entry<?>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<?>> eldest) {
+                if (size() > config.getMaxEntries()) {
+                    stats.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidatedKeys = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > config.getMaxEntries()) {
+                    // forgetting a key must not let an older response in
+                    invalidatedAll = Math.max(invalidatedAll, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CacheConfig getConfig() {
+        return config;
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    public boolean isCacheable(Class<?> type) {
+        return config.getTtlMillis(type) > 0;
+    }
+
+    /**
+     * Looks up a response, counting a hit if it is fresh.
+     *
+     * @param <T>
+     * @param key request URL
+     * @param type resource class
+     * @return fresh or expired entry, or null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Entry<T> lookup(String key, Class<T> type) {
+        Entry<?> entry = entries.get(key);
+        if (entry == null || entry.type != type) {
+            return null;
+        }
+        if (entry.isFresh()) {
+            stats.recordHit();
+        }
+        return (Entry<T>) entry;
+    }
+
+    /**
+     * Must be taken before the request of a response that may be stored.
+     *
+     * @return current invalidation generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a full response, counting a miss. The response is not stored if
+     * the key was invalidated since the request started.
+     *
+     * @param <T>
+     * @param key request URL
+     * @param type resource class
+     * @param value parsed response
+     * @param etag ETag of the response, or null
+     * @param startGeneration {@link #generation()} before the request
+     * @return value
+     */
+    public <T> T store(String key, Class<T> type, T value, String etag, long startGeneration) {
+        stats.recordMiss();
+        Entry<T> entry = new Entry<>(type, value, etag, System.currentTimeMillis() + config.getTtlMillis(type));
+        synchronized (this) {
+            if (!invalidatedSince(key, type, startGeneration)) {
+                entries.put(key, entry);
+            }
+        }
+        return value;
+    }
+
+    private boolean invalidatedSince(String key, Class<?> type, long startGeneration) {
+        if (invalidatedAll > startGeneration) {
+            return true;
+        }
+        Long keyGeneration = invalidatedKeys.get(key);
+        if (keyGeneration != null && keyGeneration > startGeneration) {
+            return true;
+        }
+        Long typeGeneration = invalidatedTypes.get(type);
+        return typeGeneration != null && typeGeneration > startGeneration;
+    }
+
+    /**
+     * Extends an expired entry the server reported unchanged.
+     *
+     * @param <T>
+     * @param entry
+     * @return the cached value
+     */
+    public <T> T revalidated(Entry<T> entry) {
+        stats.recordRevalidation();
+        entry.expiresAt = System.currentTimeMillis() + config.getTtlMillis(entry.type);
+        return entry.value;
+    }
+
+    public synchronized void invalidate(String key) {
+        invalidatedKeys.remove(key);
+        invalidatedKeys.put(key, ++generation);
+        if (entries.remove(key) != null) {
+            stats.recordInvalidations(1);
+        }
+    }
+
+    /**
+     * Drops all entries of a resource type.
+     *
+     * @param type resource class
+     */
+    public synchronized void invalidateAll(Class<?> type) {
+        invalidatedTypes.put(type, ++generation);
+        int count = 0;
+        for (Iterator<Entry<?>> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().type == type) {
+                it.remove();
+                count++;
+            }
+        }
+        stats.recordInvalidations(count);
+    }
+
+    public synchronized void clear() {
+        invalidatedAll = ++generation;
+        invalidatedKeys.clear();
+        invalidatedTypes.clear();
+        stats.recordInvalidations(entries.size());
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,264 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.callback;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.brennheit.mcashapi.json.ResourceObjectParser;
+import net.brennheit.mcashapi.resource.PaymentRequestCallback;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.resource.ReportCallback;
+import net.brennheit.mcashapi.resource.ReportInfo;
+import net.brennheit.mcashapi.resource.ShortlinkLastScan;
+import net.brennheit.mcashapi.resource.ShortlinkScanCallback;
+
+/**
+ * Embedded HTTP server receiving mCASH callbacks. Every registered
+ * {@link CallbackHandler} gets its own random key, and callback URIs look like
+ * {@code <publicUri>/<key>/<type>/}. The key routes callbacks to the right
+ * handler when several clients share one server, and makes the callback URIs
+ * hard to guess. Callback signatures are not verified, so handlers should
+ * treat a callback as a hint and fetch the resource from mCASH before acting
+ * on it.
+ *
+ * <p>
+ * Callbacks are accepted both wrapped in the mCASH envelope
+ * ({@code {"meta": {...}, "object": {...}}}) and as bare resources.
+ * </p>
+ *
+ * @author fiLLLip
+ */
+public class CallbackServer implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ResourceObjectParser PARSER = new ResourceObjectParser(JacksonFactory.getDefaultInstance());
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String publicUri;
+    private final ConcurrentMap<String, CallbackHandler> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Listens on all interfaces. Callback URIs point to localhost, which is
+     * only useful when mCASH (or a stub) runs on the same host.
+     *
+     * @param port
+     * @throws IOException
+     */
+    public CallbackServer(int port) throws IOException {
+        this(new InetSocketAddress(port), null, DEFAULT_THREADS);
+    }
+
+    /**
+     *
+     * @param address address to listen on
+     * @param publicUri base URI under which mCASH reaches this server, or null
+     * to use http://localhost:port
+     * @param threads number of threads decoding and dispatching callbacks
+     * @throws IOException if the server cannot bind to the address
+     */
+    public CallbackServer(InetSocketAddress address, String publicUri, int threads) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newFixedThreadPool(threads, new CallbackThreadFactory());
+        this.server.setExecutor(executor);
+        this.server.createContext("/", new DispatchingHandler());
+        if (publicUri == null) {
+            publicUri = "http://localhost:" + server.getAddress().getPort();
+        }
+        this.publicUri = publicUri.endsWith("/") ? publicUri.substring(0, publicUri.length() - 1) : publicUri;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public String getPublicUri() {
+        return publicUri;
+    }
+
+    /**
+     *
+     * @param handler
+     * @return key to use with {@link #getCallbackUri(String, CallbackType)}
+     */
+    public String register(CallbackHandler handler) {
+        String key = UUID.randomUUID().toString();
+        handlers.put(key, handler);
+        return key;
+    }
+
+    public void unregister(String key) {
+        handlers.remove(key);
+    }
+
+    /**
+     *
+     * @param key as returned by {@link #register(CallbackHandler)}
+     * @param type
+     * @return callback_uri to hand to mCASH
+     */
+    public String getCallbackUri(String key, CallbackType type) {
+        return publicUri + "/" + key + "/" + type.getPath() + "/";
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > MAX_BODY_SIZE) {
+                throw new IOException("Callback body too large");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static <T> T parse(byte[] body, Class<T> type) throws IOException {
+        T resource = PARSER.parseAndClose(new ByteArrayInputStream(body), UTF_8, type);
+        if (resource == null) {
+            throw new IOException("Empty callback body");
+        }
+        return resource;
+    }
+
+    private static Object decode(CallbackType type, byte[] body) throws IOException {
+        switch (type) {
+            case PAYMENT_REQUEST:
+                PaymentRequestOutcome outcome = parse(body, PaymentRequestCallback.class).object;
+                return outcome != null ? outcome : parse(body, PaymentRequestOutcome.class);
+            case SHORTLINK:
+                ShortlinkLastScan scan = parse(body, ShortlinkScanCallback.class).object;
+                return scan != null ? scan : parse(body, ShortlinkLastScan.class);
+            case REPORT:
+                ReportInfo reportInfo = parse(body, ReportCallback.class).object;
+                return reportInfo != null ? reportInfo : parse(body, ReportInfo.class);
+            default:
+                throw new IllegalArgumentException("Unknown callback type " + type);
+        }
+    }
+
+    private static void dispatch(CallbackHandler handler, CallbackType type, Object resource) {
+        switch (type) {
+            case PAYMENT_REQUEST:
+                handler.paymentRequestUpdated((PaymentRequestOutcome) resource);
+                break;
+            case SHORTLINK:
+                handler.shortlinkScanned((ShortlinkLastScan) resource);
+                break;
+            case REPORT:
+                handler.reportUpdated((ReportInfo) resource);
+                break;
+        }
+    }
+
+    private class DispatchingHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod()) && !"PUT".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                // Path is /<key>/<type>/
+                String[] parts = exchange.getRequestURI().getPath().split("/");
+                CallbackHandler handler = parts.length >= 3 ? handlers.get(parts[parts.length - 2]) : null;
+                CallbackType type = parts.length >= 3 ? CallbackType.fromPath(parts[parts.length - 1]) : null;
+                if (handler == null || type == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                Object resource;
+                try {
+                    // Decode before acknowledging so that garbage is rejected
+                    resource = decode(type, readBody(exchange.getRequestBody()));
+                } catch (IOException | IllegalArgumentException ex) {
+                    Logger.getLogger(CallbackServer.class.getName()).log(Level.WARNING, null, ex);
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+                try {
+                    dispatch(handler, type, resource);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(CallbackServer.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static class CallbackThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mcash-callback-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
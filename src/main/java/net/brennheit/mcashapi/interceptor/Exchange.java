@@ -0,0 +1,113 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.interceptor;
+
+import com.google.api.client.http.HttpRequest;
+import java.util.HashMap;
+import java.util.Map;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * One HTTP attempt as seen by the {@link RequestInterceptor}s of a client.
+ * Only created when interceptors are registered.
+ *
+ * @author fiLLLip
+ */
+public final class Exchange {
+
+    private final HttpRequest request;
+    private final EndpointFamily family;
+    private final int attempt;
+    private long startNanos;
+    private long endNanos;
+    private Map<String, Object> attributes;
+
+    Exchange(HttpRequest request, EndpointFamily family, int attempt) {
+        this.request = request;
+        this.family = family;
+        this.attempt = attempt;
+    }
+
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    public EndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     *
+     * @return number of the attempt, starting at 1 and increasing with retries
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     *
+     * @return {@link System#nanoTime()} right before the attempt was sent, or
+     * 0 before it was sent
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     *
+     * @return time from sending the attempt until its response or error, or 0
+     * before then
+     */
+    public long getElapsedNanos() {
+        return endNanos == 0 ? 0 : endNanos - startNanos;
+    }
+
+    /**
+     * Value stored by an interceptor, e.g. in {@code beforeSend} for use in
+     * {@code afterResponse}.
+     *
+     * @param name
+     * @return
+     */
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>(4);
+        }
+        attributes.put(name, value);
+    }
+
+    void markSent(long nanos) {
+        this.startNanos = nanos;
+    }
+
+    void markDone(long nanos) {
+        this.endNanos = nanos;
+    }
+}
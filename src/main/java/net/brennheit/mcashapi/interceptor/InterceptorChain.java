@@ -0,0 +1,124 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.interceptor;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import java.io.IOException;
+import java.util.List;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Ordered, immutable list of the {@link RequestInterceptor}s of a client.
+ * With no interceptors every call returns at once without allocating.
+ *
+ * @author fiLLLip
+ */
+public final class InterceptorChain {
+
+    public static final InterceptorChain EMPTY = new InterceptorChain(new RequestInterceptor[0]);
+
+    private final RequestInterceptor[] interceptors;
+
+    private InterceptorChain(RequestInterceptor[] interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    public static InterceptorChain of(List<RequestInterceptor> interceptors) {
+        if (interceptors.isEmpty()) {
+            return EMPTY;
+        }
+        return new InterceptorChain(interceptors.toArray(new RequestInterceptor[interceptors.size()]));
+    }
+
+    public boolean isEmpty() {
+        return interceptors.length == 0;
+    }
+
+    /**
+     * Calls {@link RequestInterceptor#beforeSend} of all interceptors. If one
+     * fails, those already called get {@link RequestInterceptor#onError}.
+     *
+     * @param request
+     * @param family
+     * @param attempt
+     * @return exchange to pass to the other methods, or null if the chain is
+     * empty
+     * @throws IOException
+     */
+    public Exchange beforeSend(HttpRequest request, EndpointFamily family, int attempt) throws IOException {
+        if (interceptors.length == 0) {
+            return null;
+        }
+        Exchange exchange = new Exchange(request, family, attempt);
+        for (int i = 0; i < interceptors.length; i++) {
+            try {
+                interceptors[i].beforeSend(exchange);
+            } catch (IOException ex) {
+                exchange.markDone(System.nanoTime());
+                for (int j = i - 1; j >= 0; j--) {
+                    interceptors[j].onError(exchange, ex);
+                }
+                throw ex;
+            }
+        }
+        exchange.markSent(System.nanoTime());
+        return exchange;
+    }
+
+    /**
+     *
+     * @param exchange as returned by {@link #beforeSend}
+     * @param response
+     * @param nanos {@link System#nanoTime()} when the response arrived
+     * @throws IOException if an interceptor failed the request
+     */
+    public void afterResponse(Exchange exchange, HttpResponse response, long nanos) throws IOException {
+        if (exchange == null) {
+            return;
+        }
+        exchange.markDone(nanos);
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            interceptors[i].afterResponse(exchange, response);
+        }
+    }
+
+    /**
+     *
+     * @param exchange as returned by {@link #beforeSend}
+     * @param error
+     * @param nanos {@link System#nanoTime()} when the attempt failed
+     */
+    public void onError(Exchange exchange, IOException error, long nanos) {
+        if (exchange == null) {
+            return;
+        }
+        exchange.markDone(nanos);
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            interceptors[i].onError(exchange, error);
+        }
+    }
+}
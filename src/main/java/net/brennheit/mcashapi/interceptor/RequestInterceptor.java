@@ -0,0 +1,70 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.interceptor;
+
+import com.google.api.client.http.HttpResponse;
+import java.io.IOException;
+
+/**
+ * Hooks around every HTTP attempt of a client, e.g. for tracing ids, extra
+ * headers, timing or sampling responses. Interceptors are called in the order
+ * they were added before sending, and in reverse order after the response or
+ * error. Called on the requesting thread, so implementations must be thread
+ * safe.
+ *
+ * @author fiLLLip
+ */
+public interface RequestInterceptor {
+
+    /**
+     * The attempt is about to be sent. Headers of the request may be changed.
+     *
+     * @param exchange
+     * @throws IOException to fail the request without sending it
+     */
+    default void beforeSend(Exchange exchange) throws IOException {
+    }
+
+    /**
+     * The attempt got a response, successful or not. The content must not be
+     * consumed.
+     *
+     * @param exchange
+     * @param response
+     * @throws IOException to fail the request
+     */
+    default void afterResponse(Exchange exchange, HttpResponse response) throws IOException {
+    }
+
+    /**
+     * The attempt failed without a response, or an interceptor failed it.
+     *
+     * @param exchange
+     * @param error
+     */
+    default void onError(Exchange exchange, IOException error) {
+    }
+}
@@ -0,0 +1,418 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.json;
+
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonPolymorphicTypeMap;
+import com.google.api.client.json.JsonString;
+import com.google.api.client.json.JsonToken;
+import com.google.api.client.util.Data;
+import com.google.api.client.util.Key;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the {@link Key} fields of one resource class. Fields,
+ * their JSON names and how to convert them are resolved once per class, so
+ * parsing a response is a loop over tokens with a map lookup per field. The
+ * result is the same as with {@link JsonParser#parse(Class)} and
+ * {@link JsonGenerator#serialize(Object)}, which are used for values of any
+ * other type.
+ *
+ * @param <T> resource class
+ * @author fiLLLip
+ */
+public final class ResourceCodec<T> {
+
+    private static final ResourceCodec<?> UNSUPPORTED = new ResourceCodec<>(Object.class, null, new Property[0]);
+
+    private static final ClassValue<ResourceCodec<?>> CODECS = new ClassValue<ResourceCodec<?>>() {
+        @Override
+        protected ResourceCodec<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    private final Property[] properties;
+    private final Map<String, Property> byName;
+
+    private ResourceCodec(Class<T> type, Constructor<T> constructor, Property[] properties) {
+        this.type = type;
+        this.constructor = constructor;
+        this.properties = properties;
+        this.byName = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            byName.put(property.name, property);
+        }
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param type
+     * @return codec of the class, or null if it must be handled by the
+     * generic parser, e.g. maps and {@link com.google.api.client.util.GenericData}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResourceCodec<T> of(Class<T> type) {
+        ResourceCodec<?> codec = CODECS.get(type);
+        return codec == UNSUPPORTED ? null : (ResourceCodec<T>) codec;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Reads an object, starting at its {@link JsonToken#START_OBJECT} and
+     * ending at its {@link JsonToken#END_OBJECT}.
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    public T read(JsonParser parser) throws IOException {
+        T target = newInstance();
+        JsonToken token = parser.nextToken();
+        while (token == JsonToken.FIELD_NAME) {
+            String name = parser.getText();
+            parser.nextToken();
+            Property property = byName.get(name);
+            if (property == null) {
+                parser.skipChildren();
+            } else {
+                try {
+                    property.read(parser, target);
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException(type.getName() + '.' + name + ": " + ex.getMessage(), ex);
+                }
+            }
+            token = parser.nextToken();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IllegalArgumentException("Expected end of object but got " + token);
+        }
+        return target;
+    }
+
+    /**
+     * Writes the non-null fields of the resource as an object.
+     *
+     * @param generator
+     * @param resource
+     * @throws IOException
+     */
+    public void write(JsonGenerator generator, T resource) throws IOException {
+        generator.writeStartObject();
+        for (Property property : properties) {
+            property.write(generator, resource);
+        }
+        generator.writeEndObject();
+    }
+
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalArgumentException("Unable to create " + type.getName(), ex);
+        }
+    }
+
+    private static ResourceCodec<?> create(Class<?> type) {
+        if (!isResourceClass(type)) {
+            return UNSUPPORTED;
+        }
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return UNSUPPORTED;
+        }
+        Map<String, Property> properties = new HashMap<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                Key key = field.getAnnotation(Key.class);
+                if (key == null || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (Modifier.isFinal(field.getModifiers()) || field.getAnnotation(JsonString.class) != null
+                        || field.getAnnotation(JsonPolymorphicTypeMap.class) != null) {
+                    return UNSUPPORTED;
+                }
+                String name = "##default".equals(key.value()) ? field.getName() : key.value();
+                if (properties.containsKey(name)) {
+                    // the generic parser rejects such classes
+                    return UNSUPPORTED;
+                }
+                field.setAccessible(true);
+                properties.put(name, new Property(name, field));
+            }
+        }
+        Property[] sorted = properties.values().toArray(new Property[properties.size()]);
+        // same order as the generic serializer
+        Arrays.sort(sorted, Comparator.comparing((Property p) -> p.name));
+        return newCodec(type, constructor, sorted);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResourceCodec<T> newCodec(Class<T> type, Constructor<?> constructor, Property[] properties) {
+        return new ResourceCodec<>(type, (Constructor<T>) constructor, properties);
+    }
+
+    private static boolean isResourceClass(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        if (type.getName().startsWith("java.") || Map.class.isAssignableFrom(type)
+                || Collection.class.isAssignableFrom(type)) {
+            return false;
+        }
+        return type.getEnclosingClass() == null || Modifier.isStatic(type.getModifiers());
+    }
+
+    private enum Kind {
+        STRING, INT, LONG, FLOAT, DOUBLE, BOOLEAN, RESOURCE, STRING_LIST, RESOURCE_LIST, GENERIC
+    }
+
+    private static final class Property {
+
+        private final String name;
+        private final Field field;
+        private final Type genericType;
+        private final Kind kind;
+        private final Class<?> elementClass;
+        private final Class<?> resourceClass;
+        private final Object nullValue;
+        private ResourceCodec<?> codec;
+
+        Property(String name, Field field) {
+            this.name = name;
+            this.field = field;
+            this.genericType = field.getGenericType();
+            Class<?> fieldClass = field.getType();
+            this.elementClass = listElementClass(genericType);
+            if (fieldClass == String.class) {
+                kind = Kind.STRING;
+            } else if (fieldClass == int.class) {
+                kind = Kind.INT;
+            } else if (fieldClass == long.class) {
+                kind = Kind.LONG;
+            } else if (fieldClass == float.class) {
+                kind = Kind.FLOAT;
+            } else if (fieldClass == double.class) {
+                kind = Kind.DOUBLE;
+            } else if (fieldClass == boolean.class) {
+                kind = Kind.BOOLEAN;
+            } else if (elementClass == String.class) {
+                kind = Kind.STRING_LIST;
+            } else if (elementClass != null && isResourceClass(elementClass)) {
+                kind = Kind.RESOURCE_LIST;
+            } else if (elementClass == null && isResourceClass(fieldClass)) {
+                kind = Kind.RESOURCE;
+            } else {
+                kind = Kind.GENERIC;
+            }
+            this.resourceClass = kind == Kind.RESOURCE_LIST ? elementClass : fieldClass;
+            if (fieldClass.isPrimitive()) {
+                nullValue = null;
+            } else if (kind == Kind.STRING_LIST || kind == Kind.RESOURCE_LIST) {
+                nullValue = Data.nullOf(ArrayList.class);
+            } else if (kind == Kind.GENERIC) {
+                // resolved by the generic parser
+                nullValue = null;
+            } else {
+                nullValue = Data.nullOf(fieldClass);
+            }
+        }
+
+        private static Class<?> listElementClass(Type type) {
+            if (!(type instanceof ParameterizedType)) {
+                return null;
+            }
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type element = parameterized.getActualTypeArguments()[0];
+            if (parameterized.getRawType() != List.class || !(element instanceof Class)) {
+                return null;
+            }
+            return (Class<?>) element;
+        }
+
+        private ResourceCodec<?> codec() {
+            // resolved lazily, resources may refer to their own class
+            ResourceCodec<?> c = codec;
+            if (c == null) {
+                c = CODECS.get(resourceClass);
+                codec = c;
+            }
+            return c == UNSUPPORTED ? null : c;
+        }
+
+        void read(JsonParser parser, Object target) throws IOException {
+            JsonToken token = parser.getCurrentToken();
+            try {
+                if (token == JsonToken.VALUE_NULL && nullValue != null) {
+                    field.set(target, nullValue);
+                    return;
+                }
+                switch (kind) {
+                    case STRING:
+                        if (token == JsonToken.VALUE_STRING) {
+                            field.set(target, parser.getText());
+                            return;
+                        }
+                        break;
+                    case INT:
+                        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                            field.setInt(target, parser.getIntValue());
+                            return;
+                        }
+                        break;
+                    case LONG:
+                        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                            field.setLong(target, parser.getLongValue());
+                            return;
+                        }
+                        break;
+                    case FLOAT:
+                        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                            field.setFloat(target, parser.getFloatValue());
+                            return;
+                        }
+                        break;
+                    case DOUBLE:
+                        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                            field.setDouble(target, parser.getDoubleValue());
+                            return;
+                        }
+                        break;
+                    case BOOLEAN:
+                        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                            field.setBoolean(target, token == JsonToken.VALUE_TRUE);
+                            return;
+                        }
+                        break;
+                    case RESOURCE:
+                        if (token == JsonToken.START_OBJECT && codec() != null) {
+                            field.set(target, codec().read(parser));
+                            return;
+                        }
+                        break;
+                    case STRING_LIST:
+                    case RESOURCE_LIST:
+                        if (token == JsonToken.START_ARRAY) {
+                            field.set(target, readList(parser));
+                            return;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                // anything unusual gets the conversions of the generic parser
+                field.set(target, parser.parse(genericType, false));
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+        }
+
+        private List<Object> readList(JsonParser parser) throws IOException {
+            List<Object> list = new ArrayList<>();
+            ResourceCodec<?> elementCodec = kind == Kind.RESOURCE_LIST ? codec() : null;
+            JsonToken token = parser.nextToken();
+            while (token != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING && kind == Kind.STRING_LIST) {
+                    list.add(parser.getText());
+                } else if (token == JsonToken.START_OBJECT && elementCodec != null) {
+                    list.add(elementCodec.read(parser));
+                } else {
+                    list.add(parser.parse(elementClass, false));
+                }
+                token = parser.nextToken();
+            }
+            return list;
+        }
+
+        void write(JsonGenerator generator, Object source) throws IOException {
+            try {
+                switch (kind) {
+                    case INT:
+                        generator.writeFieldName(name);
+                        generator.writeNumber(field.getInt(source));
+                        return;
+                    case LONG:
+                        generator.writeFieldName(name);
+                        generator.writeNumber(field.getLong(source));
+                        return;
+                    case BOOLEAN:
+                        generator.writeFieldName(name);
+                        generator.writeBoolean(field.getBoolean(source));
+                        return;
+                    default:
+                        break;
+                }
+                Object value = field.get(source);
+                if (value == null) {
+                    return;
+                }
+                generator.writeFieldName(name);
+                if (kind == Kind.STRING) {
+                    if (Data.isNull(value)) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeString((String) value);
+                    }
+                } else if (kind == Kind.RESOURCE && codec() != null && !Data.isNull(value) && value.getClass() == resourceClass) {
+                    writeResource(generator, codec(), value);
+                } else {
+                    generator.serialize(value);
+                }
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> void writeResource(JsonGenerator generator, ResourceCodec<T> codec, Object value) throws IOException {
+            codec.write(generator, (T) value);
+        }
+    }
+}
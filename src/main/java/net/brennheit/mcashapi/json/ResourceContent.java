@@ -0,0 +1,83 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.json;
+
+import com.google.api.client.http.AbstractHttpContent;
+import com.google.api.client.http.HttpMediaType;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON request body written by the {@link ResourceCodec} of its class, or by
+ * the generic {@link JsonGenerator} for other values. Same output as
+ * {@link com.google.api.client.http.json.JsonHttpContent}.
+ *
+ * @author fiLLLip
+ */
+public class ResourceContent extends AbstractHttpContent {
+
+    private final JsonFactory jsonFactory;
+    private final Object data;
+
+    public ResourceContent(JsonFactory jsonFactory, Object data) {
+        super(Json.MEDIA_TYPE);
+        if (jsonFactory == null || data == null) {
+            throw new IllegalArgumentException("JSON factory and data are required");
+        }
+        this.jsonFactory = jsonFactory;
+        this.data = data;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    @Override
+    public ResourceContent setMediaType(HttpMediaType mediaType) {
+        super.setMediaType(mediaType);
+        return this;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createJsonGenerator(out, getCharset());
+        write(generator, data);
+        generator.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(JsonGenerator generator, T data) throws IOException {
+        ResourceCodec<T> codec = ResourceCodec.of((Class<T>) data.getClass());
+        if (codec == null) {
+            generator.serialize(data);
+        } else {
+            codec.write(generator, data);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.json;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+import com.google.api.client.util.ObjectParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+/**
+ * Stateless parser of JSON responses, shared by all requests. Objects of
+ * resource classes are read by their {@link ResourceCodec}, everything else
+ * by the generic {@link JsonParser}.
+ *
+ * @author fiLLLip
+ */
+public class ResourceObjectParser implements ObjectParser {
+
+    private final JsonFactory jsonFactory;
+
+    public ResourceObjectParser(JsonFactory jsonFactory) {
+        if (jsonFactory == null) {
+            throw new IllegalArgumentException("JSON factory is required");
+        }
+        this.jsonFactory = jsonFactory;
+    }
+
+    public JsonFactory getJsonFactory() {
+        return jsonFactory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T parseAndClose(InputStream in, Charset charset, Class<T> dataClass) throws IOException {
+        return (T) parseAndClose(jsonFactory.createJsonParser(in, charset), dataClass);
+    }
+
+    @Override
+    public Object parseAndClose(InputStream in, Charset charset, Type dataType) throws IOException {
+        return parseAndClose(jsonFactory.createJsonParser(in, charset), dataType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T parseAndClose(Reader reader, Class<T> dataClass) throws IOException {
+        return (T) parseAndClose(jsonFactory.createJsonParser(reader), dataClass);
+    }
+
+    @Override
+    public Object parseAndClose(Reader reader, Type dataType) throws IOException {
+        return parseAndClose(jsonFactory.createJsonParser(reader), dataType);
+    }
+
+    /**
+     * Parses the next value of the parser.
+     *
+     * @param <T>
+     * @param parser
+     * @param dataClass
+     * @return
+     * @throws IOException
+     */
+    public static <T> T parse(JsonParser parser, Class<T> dataClass) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        ResourceCodec<T> codec = ResourceCodec.of(dataClass);
+        if (token == JsonToken.START_OBJECT && codec != null) {
+            return codec.read(parser);
+        }
+        return parser.parse(dataClass);
+    }
+
+    private static Object parseAndClose(JsonParser parser, Type dataType) throws IOException {
+        try {
+            if (dataType instanceof Class) {
+                return parse(parser, (Class<?>) dataType);
+            }
+            return parser.parse(dataType, false);
+        } finally {
+            parser.close();
+        }
+    }
+}
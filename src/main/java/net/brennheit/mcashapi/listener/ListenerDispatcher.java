@@ -0,0 +1,588 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.listener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Notifies listeners off the polling threads. Events with the same key, e.g.
+ * the ticket id of a payment request, are delivered one at a time in the
+ * order they were fired; events with different keys may be delivered in
+ * parallel. At most the queue capacity of events wait for delivery, beyond
+ * that the {@link OverflowPolicy} applies.
+ *
+ * Exceptions thrown by a listener are logged and do not keep other listeners
+ * from being notified. Listeners running longer than the slow listener
+ * threshold are logged and counted.
+ *
+ * One dispatcher can be owned by a single client or shared by several
+ * clients, in which case the caller is responsible for closing it.
+ *
+ * @author fiLLLip
+ */
+public class ListenerDispatcher implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final long DEFAULT_SLOW_LISTENER_MILLIS = 1000;
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    private static final int BATCH_SIZE = 32;
+    // released on close so producers blocked on a full queue wake up
+    private static final int WAKE_UP_PERMITS = Integer.MAX_VALUE / 2;
+    private static final AtomicInteger DISPATCHER_COUNT = new AtomicInteger();
+
+    private final Executor executor;
+    private final ThreadPoolExecutor ownedExecutor;
+    private final int queueCapacity;
+    private final Semaphore slots;
+    private final OverflowPolicy overflowPolicy;
+    private final long slowListenerNanos;
+    private final long drainTimeoutMillis;
+    private final ConcurrentMap<Object, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong slowCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private volatile boolean closed;
+    private volatile boolean abandoned;
+
+    public ListenerDispatcher() {
+        this(builder());
+    }
+
+    private ListenerDispatcher(Builder builder) {
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = new ThreadPoolExecutor(builder.threads, builder.threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DispatcherThreadFactory(DISPATCHER_COUNT.incrementAndGet()));
+            // idle clients should not hold on to threads
+            this.ownedExecutor.allowCoreThreadTimeOut(true);
+            this.executor = ownedExecutor;
+        }
+        this.queueCapacity = builder.queueCapacity;
+        this.slots = new Semaphore(builder.queueCapacity);
+        this.overflowPolicy = builder.overflowPolicy;
+        this.slowListenerNanos = TimeUnit.MILLISECONDS.toNanos(builder.slowListenerMillis);
+        this.drainTimeoutMillis = builder.drainTimeoutMillis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Queues an event for the given listeners.
+     *
+     * @param <L> listener type
+     * @param <E> event type
+     * @param key events with equal keys are delivered in order; must keep its
+     * hash code while events are queued
+     * @param listeners listeners to notify, copied before returning
+     * @param event
+     * @param call invokes one listener
+     * @return false if the event was dropped because the queue was full or
+     * the dispatcher is closed
+     */
+    public <L, E> boolean dispatch(Object key, List<? extends L> listeners, E event, BiConsumer<? super L, ? super E> call) {
+        if (listeners.isEmpty()) {
+            return true;
+        }
+        if (closed) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        Event<L, E> task = new Event<>(listeners.toArray(), event, call);
+        if (slots.tryAcquire()) {
+            task.holdsSlot = true;
+        } else {
+            switch (overflowPolicy) {
+                case DROP:
+                    long count = dropped.incrementAndGet();
+                    // log at 1, 2, 4, 8... drops so a stuck listener cannot flood the log
+                    if ((count & (count - 1)) == 0) {
+                        Logger.getLogger(ListenerDispatcher.class.getName()).log(Level.WARNING, "Listener queue full, dropped {0} events", count);
+                    }
+                    return false;
+                case CALLER_RUNS:
+                    return runInCaller(key, task);
+                default:
+                    try {
+                        slots.acquire();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    if (closed) {
+                        slots.release();
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    task.holdsSlot = true;
+            }
+        }
+        pending.incrementAndGet();
+        task.queued = true;
+        enqueue(key, task);
+        return true;
+    }
+
+    private void enqueue(Object key, Event<?, ?> task) {
+        for (;;) {
+            KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                queue.events.add(task);
+                if (queue.running) {
+                    return;
+                }
+                queue.running = true;
+            }
+            execute(queue);
+            return;
+        }
+    }
+
+    private boolean runInCaller(Object key, Event<?, ?> task) {
+        for (;;) {
+            KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                if (queue.running) {
+                    // earlier events of this key are queued; keep the order
+                    // and let the queue grow past its capacity
+                    pending.incrementAndGet();
+                    task.queued = true;
+                    queue.events.add(task);
+                    return true;
+                }
+                queue.running = true;
+            }
+            callerRuns.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                release(queue);
+            }
+            return true;
+        }
+    }
+
+    private void execute(KeyQueue queue) {
+        try {
+            executor.execute(queue);
+        } catch (RejectedExecutionException ex) {
+            // closing or saturated executor; deliver rather than lose events
+            // unless the drain timeout has passed
+            if (abandoned) {
+                queue.discard();
+            } else {
+                queue.run();
+            }
+        }
+    }
+
+    /**
+     * Hands a queue that has run out of its turn back to the executor, or
+     * removes it if it is empty.
+     */
+    private void release(KeyQueue queue) {
+        synchronized (queue) {
+            if (queue.events.isEmpty()) {
+                queue.running = false;
+                queue.removed = true;
+                queues.remove(queue.key, queue);
+                return;
+            }
+        }
+        execute(queue);
+    }
+
+    /**
+     * Number of events waiting for or in delivery.
+     *
+     * @return
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     *
+     * @return events delivered to all their listeners
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     *
+     * @return events delivered on the firing thread because the queue was
+     * full
+     */
+    public long getCallerRuns() {
+        return callerRuns.get();
+    }
+
+    /**
+     *
+     * @return listener calls slower than the slow listener threshold
+     */
+    public long getSlowCalls() {
+        return slowCalls.get();
+    }
+
+    /**
+     *
+     * @return listener calls that threw an exception
+     */
+    public long getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops accepting events and waits for queued ones to be delivered.
+     * Events still queued after the drain timeout are dropped. A shared
+     * executor is left running.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        slots.release(WAKE_UP_PERMITS);
+        if (ownedExecutor == null) {
+            return;
+        }
+        ownedExecutor.shutdown();
+        try {
+            if (!ownedExecutor.awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                abandon();
+            }
+        } catch (InterruptedException ex) {
+            abandon();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void abandon() {
+        abandoned = true;
+        for (Runnable queue : ownedExecutor.shutdownNow()) {
+            ((KeyQueue) queue).discard();
+        }
+        // queues whose thread was interrupted mid-batch
+        for (KeyQueue queue : queues.values()) {
+            queue.discard();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerDispatcher{pending=" + getPending() + ", delivered=" + getDelivered() + ", dropped=" + getDropped()
+                + ", callerRuns=" + getCallerRuns() + ", slowCalls=" + getSlowCalls() + ", failedCalls=" + getFailedCalls() + '}';
+    }
+
+    /**
+     * Events of one key, delivered by at most one thread at a time.
+     */
+    private class KeyQueue implements Runnable {
+
+        private final Object key;
+        private final ArrayDeque<Event<?, ?>> events = new ArrayDeque<>();
+        private boolean running;
+        private boolean removed;
+
+        KeyQueue(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            boolean drained = false;
+            try {
+                // yield after a batch so one busy key cannot starve the others
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Event<?, ?> task;
+                    if (abandoned) {
+                        discard();
+                        drained = true;
+                        return;
+                    }
+                    synchronized (this) {
+                        task = events.poll();
+                        if (task == null) {
+                            running = false;
+                            removed = true;
+                            queues.remove(key, this);
+                            drained = true;
+                            return;
+                        }
+                    }
+                    task.run();
+                }
+            } finally {
+                // also hands the queue on if a task died, so the key is not stuck
+                if (!drained) {
+                    release(this);
+                }
+            }
+        }
+
+        /**
+         * Drops all queued events, giving back their queue slots.
+         */
+        void discard() {
+            List<Event<?, ?>> discarded;
+            synchronized (this) {
+                discarded = new ArrayList<>(events);
+                events.clear();
+                running = false;
+                removed = true;
+                queues.remove(key, this);
+            }
+            for (Event<?, ?> task : discarded) {
+                task.drop();
+            }
+        }
+    }
+
+    private class Event<L, E> implements Runnable {
+
+        private final Object[] listeners;
+        private final E event;
+        private final BiConsumer<? super L, ? super E> call;
+        private boolean holdsSlot;
+        private boolean queued;
+
+        Event(Object[] listeners, E event, BiConsumer<? super L, ? super E> call) {
+            this.listeners = listeners;
+            this.event = event;
+            this.call = call;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                for (Object listener : listeners) {
+                    notify((L) listener);
+                }
+                delivered.incrementAndGet();
+            } finally {
+                if (queued) {
+                    pending.decrementAndGet();
+                }
+                if (holdsSlot) {
+                    slots.release();
+                }
+            }
+        }
+
+        void drop() {
+            dropped.incrementAndGet();
+            if (queued) {
+                pending.decrementAndGet();
+            }
+            if (holdsSlot) {
+                slots.release();
+            }
+        }
+
+        private void notify(L listener) {
+            long start = System.nanoTime();
+            try {
+                call.accept(listener, event);
+            } catch (VirtualMachineError ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                failedCalls.incrementAndGet();
+                Logger.getLogger(ListenerDispatcher.class.getName()).log(Level.SEVERE, "Listener " + listener + " failed", ex);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > slowListenerNanos) {
+                slowCalls.incrementAndGet();
+                Logger.getLogger(ListenerDispatcher.class.getName()).log(Level.WARNING, "Slow listener {0} took {1} ms",
+                        new Object[]{listener, TimeUnit.NANOSECONDS.toMillis(elapsed)});
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private Executor executor;
+        private int threads = DEFAULT_THREADS;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+        private long slowListenerMillis = DEFAULT_SLOW_LISTENER_MILLIS;
+        private long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
+
+        private Builder() {
+        }
+
+        /**
+         *
+         * @param executor runs listeners instead of threads owned by the
+         * dispatcher; not shut down by {@link ListenerDispatcher#close()}
+         * @return
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         *
+         * @param threads threads notifying listeners, ignored if an executor
+         * is set
+         * @return
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Invalid threads " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         *
+         * @param queueCapacity events that may wait for delivery before the
+         * overflow policy applies
+         * @return
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Invalid queue capacity " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         *
+         * @param overflowPolicy what to do when the queue is full, by default
+         * {@link OverflowPolicy#CALLER_RUNS}
+         * @return
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("Overflow policy is required");
+            }
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         *
+         * @param slowListenerMillis listener calls taking longer are logged
+         * @return
+         */
+        public Builder slowListenerMillis(long slowListenerMillis) {
+            if (slowListenerMillis < 0) {
+                throw new IllegalArgumentException("Invalid slow listener threshold " + slowListenerMillis);
+            }
+            this.slowListenerMillis = slowListenerMillis;
+            return this;
+        }
+
+        /**
+         *
+         * @param drainTimeoutMillis how long {@link ListenerDispatcher#close()}
+         * waits for queued events to be delivered
+         * @return
+         */
+        public Builder drainTimeoutMillis(long drainTimeoutMillis) {
+            if (drainTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Invalid drain timeout " + drainTimeoutMillis);
+            }
+            this.drainTimeoutMillis = drainTimeoutMillis;
+            return this;
+        }
+
+        public ListenerDispatcher build() {
+            return new ListenerDispatcher(this);
+        }
+    }
+
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final int dispatcherId;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        DispatcherThreadFactory(int dispatcherId) {
+            this.dispatcherId = dispatcherId;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mcash-listener-" + dispatcherId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.metrics;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Passes measurements on to several recorders, e.g. the in-memory default and
+ * a bridge to an external monitoring system. A recorder throwing an exception
+ * does not keep the others from being called, nor fail the request.
+ *
+ * @author fiLLLip
+ */
+public class CompositeMetricsRecorder implements MetricsRecorder {
+
+    private final MetricsRecorder[] recorders;
+
+    public CompositeMetricsRecorder(MetricsRecorder... recorders) {
+        this.recorders = recorders.clone();
+    }
+
+    @Override
+    public void onRequestStart(EndpointFamily family) {
+        for (MetricsRecorder recorder : recorders) {
+            try {
+                recorder.onRequestStart(family);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CompositeMetricsRecorder.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    @Override
+    public void onResponse(EndpointFamily family, int statusCode, long latencyNanos, long bytesOut, long bytesIn) {
+        for (MetricsRecorder recorder : recorders) {
+            try {
+                recorder.onResponse(family, statusCode, latencyNanos, bytesOut, bytesIn);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CompositeMetricsRecorder.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    @Override
+    public void onError(EndpointFamily family, IOException error, long latencyNanos, long bytesOut) {
+        for (MetricsRecorder recorder : recorders) {
+            try {
+                recorder.onError(family, error, latencyNanos, bytesOut);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CompositeMetricsRecorder.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    @Override
+    public void onRetry(EndpointFamily family, int attempt) {
+        for (MetricsRecorder recorder : recorders) {
+            try {
+                recorder.onRetry(family, attempt);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CompositeMetricsRecorder.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    @Override
+    public void onRejected(EndpointFamily family) {
+        for (MetricsRecorder recorder : recorders) {
+            try {
+                recorder.onRejected(family);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CompositeMetricsRecorder.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+}
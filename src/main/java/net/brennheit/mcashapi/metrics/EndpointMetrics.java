@@ -0,0 +1,223 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Measurements of the requests to one endpoint family, collected by
+ * {@link InMemoryMetrics}.
+ *
+ * @author fiLLLip
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean {
+
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final EndpointFamily family;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS - MIN_STATUS + 2);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    EndpointMetrics(EndpointFamily family) {
+        this.family = family;
+    }
+
+    public EndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     *
+     * @return latencies of all attempts, with and without a response
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     *
+     * @return attempts sent
+     */
+    @Override
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    /**
+     *
+     * @return attempts failed without a response
+     */
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     *
+     * @return requests rejected by the bulkhead or circuit breaker
+     */
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     *
+     * @return response body bytes, as far as the server sent a content length
+     */
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     *
+     * @param statusCode
+     * @return responses with the given status code
+     */
+    public long getStatusCount(int statusCode) {
+        return statusCounts.get(statusIndex(statusCode));
+    }
+
+    @Override
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (int i = 0; i < statusCounts.length() - 1; i++) {
+            long count = statusCounts.get(i);
+            if (count != 0) {
+                counts.put(MIN_STATUS + i, count);
+            }
+        }
+        long other = statusCounts.get(statusCounts.length() - 1);
+        if (other != 0) {
+            counts.put(-1, other);
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP999Millis() {
+        return latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    void recordStart() {
+        inFlight.incrementAndGet();
+    }
+
+    void recordResponse(int statusCode, long latencyNanos, long bytesOut, long bytesIn) {
+        inFlight.decrementAndGet();
+        latency.record(latencyNanos);
+        statusCounts.incrementAndGet(statusIndex(statusCode));
+        addBytes(bytesOut, bytesIn);
+    }
+
+    void recordError(long latencyNanos, long bytesOut) {
+        inFlight.decrementAndGet();
+        latency.record(latencyNanos);
+        errors.increment();
+        addBytes(bytesOut, -1);
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    private void addBytes(long out, long in) {
+        if (out > 0) {
+            bytesOut.add(out);
+        }
+        if (in > 0) {
+            bytesIn.add(in);
+        }
+    }
+
+    private static int statusIndex(int statusCode) {
+        if (statusCode < MIN_STATUS || statusCode > MAX_STATUS) {
+            // unusual codes share the last counter
+            return MAX_STATUS - MIN_STATUS + 1;
+        }
+        return statusCode - MIN_STATUS;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetrics{family=" + family + ", requests=" + getRequests() + ", errors=" + getErrors()
+                + ", retries=" + getRetries() + ", inFlight=" + getInFlight() + ", " + latency + '}';
+    }
+}
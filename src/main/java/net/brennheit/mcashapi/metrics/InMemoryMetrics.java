@@ -0,0 +1,86 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.metrics;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Default {@link MetricsRecorder}, keeping lock-free counters and latency
+ * histograms per endpoint family in memory.
+ *
+ * @author fiLLLip
+ */
+public class InMemoryMetrics implements MetricsRecorder {
+
+    private final EnumMap<EndpointFamily, EndpointMetrics> endpoints = new EnumMap<>(EndpointFamily.class);
+
+    public InMemoryMetrics() {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            endpoints.put(family, new EndpointMetrics(family));
+        }
+    }
+
+    /**
+     *
+     * @param family
+     * @return measurements of the requests to the endpoint family
+     */
+    public EndpointMetrics getEndpoint(EndpointFamily family) {
+        return endpoints.get(family);
+    }
+
+    @Override
+    public void onRequestStart(EndpointFamily family) {
+        endpoints.get(family).recordStart();
+    }
+
+    @Override
+    public void onResponse(EndpointFamily family, int statusCode, long latencyNanos, long bytesOut, long bytesIn) {
+        endpoints.get(family).recordResponse(statusCode, latencyNanos, bytesOut, bytesIn);
+    }
+
+    @Override
+    public void onError(EndpointFamily family, IOException error, long latencyNanos, long bytesOut) {
+        endpoints.get(family).recordError(latencyNanos, bytesOut);
+    }
+
+    @Override
+    public void onRetry(EndpointFamily family, int attempt) {
+        endpoints.get(family).recordRetry();
+    }
+
+    @Override
+    public void onRejected(EndpointFamily family) {
+        endpoints.get(family).recordRejected();
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryMetrics" + endpoints.values();
+    }
+}
@@ -0,0 +1,90 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Publishes {@link InMemoryMetrics} as MXBeans named
+ * {@code net.brennheit.mcashapi:type=Metrics,name=<name>,endpoint=<family>},
+ * for monitoring systems which read JMX.
+ *
+ * @author fiLLLip
+ */
+public class JmxMetricsExporter implements AutoCloseable {
+
+    private final MBeanServer server;
+    private final List<ObjectName> names = new ArrayList<>();
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     *
+     * @param name distinguishes the clients of one JVM, e.g. the merchant id
+     * @param metrics
+     * @throws JMException if the name is invalid or already registered
+     */
+    public JmxMetricsExporter(String name, InMemoryMetrics metrics) throws JMException {
+        this(ManagementFactory.getPlatformMBeanServer(), name, metrics);
+    }
+
+    public JmxMetricsExporter(MBeanServer server, String name, InMemoryMetrics metrics) throws JMException {
+        this.server = server;
+        try {
+            for (EndpointFamily family : EndpointFamily.values()) {
+                ObjectName objectName = new ObjectName("net.brennheit.mcashapi:type=Metrics,name="
+                        + ObjectName.quote(name) + ",endpoint=" + family.name());
+                server.registerMBean(metrics.getEndpoint(family), objectName);
+                names.add(objectName);
+            }
+        } catch (JMException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Unregisters the MXBeans.
+     */
+    @Override
+    public void close() {
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                Logger.getLogger(JmxMetricsExporter.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        names.clear();
+    }
+}
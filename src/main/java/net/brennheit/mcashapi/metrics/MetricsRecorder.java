@@ -0,0 +1,96 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.metrics;
+
+import java.io.IOException;
+import net.brennheit.mcashapi.EndpointFamily;
+
+/**
+ * Receives measurements of the HTTP requests of a client. Every attempt,
+ * including retried ones, is reported once through {@link #onResponse} or
+ * {@link #onError}. Called on the requesting thread, so implementations must
+ * be thread safe and should not block.
+ *
+ * @author fiLLLip
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Recorder which ignores all measurements.
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+    };
+
+    /**
+     * An attempt is about to be sent.
+     *
+     * @param family
+     */
+    default void onRequestStart(EndpointFamily family) {
+    }
+
+    /**
+     * An attempt got a response, successful or not.
+     *
+     * @param family
+     * @param statusCode
+     * @param latencyNanos time from sending the request until the response
+     * headers were read
+     * @param bytesOut length of the request body
+     * @param bytesIn length of the response body, or -1 if not known
+     */
+    default void onResponse(EndpointFamily family, int statusCode, long latencyNanos, long bytesOut, long bytesIn) {
+    }
+
+    /**
+     * An attempt failed without a response.
+     *
+     * @param family
+     * @param error
+     * @param latencyNanos
+     * @param bytesOut length of the request body
+     */
+    default void onError(EndpointFamily family, IOException error, long latencyNanos, long bytesOut) {
+    }
+
+    /**
+     * A failed attempt is going to be retried.
+     *
+     * @param family
+     * @param attempt number of the failed attempt, starting at 1
+     */
+    default void onRetry(EndpointFamily family, int attempt) {
+    }
+
+    /**
+     * A request was rejected by the bulkhead or circuit breaker without being
+     * sent.
+     *
+     * @param family
+     */
+    default void onRejected(EndpointFamily family) {
+    }
+}
@@ -0,0 +1,67 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.poller;
+
+/**
+ * Wraps another strategy and never waits past the expiry of the polled
+ * resource, so the final state of an expiring payment request is picked up
+ * right after it expires instead of up to a full delay later. Past the
+ * deadline the delegate's delay is used as is.
+ *
+ * @author fiLLLip
+ */
+public class DeadlinePollingStrategy implements PollingStrategy {
+
+    private final PollingStrategy delegate;
+    private final long graceMillis;
+
+    /**
+     *
+     * @param delegate strategy used while the deadline is far away
+     * @param graceMillis time to wait after the deadline before polling
+     */
+    public DeadlinePollingStrategy(PollingStrategy delegate, long graceMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate strategy is required");
+        }
+        if (graceMillis < 0) {
+            throw new IllegalArgumentException("Invalid grace " + graceMillis);
+        }
+        this.delegate = delegate;
+        this.graceMillis = graceMillis;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long elapsedMillis, long remainingMillis) {
+        long delay = delegate.nextDelay(attempt, elapsedMillis, remainingMillis);
+        // once the deadline has passed, e.g. because of clock skew, keep the
+        // delegate's pace instead of polling every grace period
+        if (remainingMillis > 0 && delay > remainingMillis + graceMillis) {
+            return remainingMillis + graceMillis;
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,59 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.poller;
+
+/**
+ * Polls fast while an answer is likely to arrive soon and slowly after that,
+ * e.g. while the customer is looking at the payment request on the phone.
+ *
+ * @author fiLLLip
+ */
+public class FastThenSlowPollingStrategy implements PollingStrategy {
+
+    private final long fastDelayMillis;
+    private final long fastPeriodMillis;
+    private final long slowDelayMillis;
+
+    /**
+     *
+     * @param fastDelayMillis delay used during the fast period
+     * @param fastPeriodMillis how long to poll fast after polling started
+     * @param slowDelayMillis delay used after the fast period
+     */
+    public FastThenSlowPollingStrategy(long fastDelayMillis, long fastPeriodMillis, long slowDelayMillis) {
+        if (fastDelayMillis < 0 || fastPeriodMillis < 0 || slowDelayMillis < 0) {
+            throw new IllegalArgumentException("Delays and period must not be negative");
+        }
+        this.fastDelayMillis = fastDelayMillis;
+        this.fastPeriodMillis = fastPeriodMillis;
+        this.slowDelayMillis = slowDelayMillis;
+    }
+
+    @Override
+    public long nextDelay(int attempt, long elapsedMillis, long remainingMillis) {
+        return elapsedMillis < fastPeriodMillis ? fastDelayMillis : slowDelayMillis;
+    }
+}
@@ -0,0 +1,172 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.poller;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared scheduler for all payment, shortlink and report polls. One engine
+ * can be owned by a single client or injected into several clients, in which
+ * case the caller is responsible for closing it.
+ *
+ * @author fiLLLip
+ */
+public class PollingEngine implements AutoCloseable {
+
+    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    private static final AtomicInteger ENGINE_COUNT = new AtomicInteger();
+    // engine whose poll the current thread is running, if any
+    private static final ThreadLocal<PollingEngine> RUNNING = new ThreadLocal<>();
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long drainTimeoutMillis;
+
+    public PollingEngine() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     *
+     * @param poolSize number of threads shared by all polls
+     */
+    public PollingEngine(int poolSize) {
+        this(poolSize, DEFAULT_DRAIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     *
+     * @param poolSize number of threads shared by all polls
+     * @param drainTimeoutMillis how long {@link #close()} waits for running
+     * polls to finish
+     */
+    public PollingEngine(int poolSize, long drainTimeoutMillis) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Invalid pool size " + poolSize);
+        }
+        this.executor = new ScheduledThreadPoolExecutor(poolSize, new PollerThreadFactory(ENGINE_COUNT.incrementAndGet()));
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    /**
+     * Schedules a single poll. Exceptions thrown by the task are logged so a
+     * failing poll never takes down a pool thread.
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @return handle that can be used to cancel the poll
+     * @throws RejectedExecutionException if the engine is closed, which may
+     * happen right after {@link #isShutdown()} returned false
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(new GuardedTask(this, task), delay, unit);
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Number of polls waiting for their next run.
+     *
+     * @return
+     */
+    public int getPendingPolls() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Drops all pending polls and waits for running ones to finish. Called
+     * from a poll of this engine, it does not wait, as that poll cannot finish
+     * before close returns.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (RUNNING.get() == this) {
+            return;
+        }
+        try {
+            if (!executor.awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class GuardedTask implements Runnable {
+
+        private final PollingEngine engine;
+        private final Runnable task;
+
+        GuardedTask(PollingEngine engine, Runnable task) {
+            this.engine = engine;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            RUNNING.set(engine);
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(PollingEngine.class.getName()).log(Level.SEVERE, null, ex);
+            } finally {
+                RUNNING.remove();
+            }
+        }
+    }
+
+    private static class PollerThreadFactory implements ThreadFactory {
+
+        private final int engineId;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        PollerThreadFactory(int engineId) {
+            this.engineId = engineId;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mcash-poller-" + engineId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
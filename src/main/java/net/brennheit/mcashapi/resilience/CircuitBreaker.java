@@ -0,0 +1,211 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.resilience;
+
+/**
+ * Count based circuit breaker. Closed, it records the outcome of the most
+ * recent calls and opens when the failure rate crosses the threshold. Open, it
+ * rejects all calls until the open duration has passed, then lets a few trial
+ * calls through (half-open) and closes again if they all succeed.
+ *
+ * @author fiLLLip
+ */
+public class CircuitBreaker {
+
+    public enum State {
+
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Permission for one call, tied to the state it was granted in. Outcomes
+     * reported after the breaker changed state are ignored.
+     */
+    public static final class Permit {
+
+        private final long generation;
+        private final boolean halfOpen;
+        private boolean done;
+
+        private Permit(long generation, boolean halfOpen) {
+            this.generation = generation;
+            this.halfOpen = halfOpen;
+        }
+    }
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    // bumped on every state change so outcomes of older permits are dropped
+    private long generation;
+    private long openUntil;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long rejected;
+
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+        this.window = new boolean[config.getWindowSize()];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     *
+     * @return number of calls rejected while open
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * A granted permit must be passed to {@link #onSuccess(Permit)},
+     * {@link #onFailure(Permit)} or {@link #onIgnored(Permit)}. Only the first
+     * of these calls counts, so {@link #onIgnored(Permit)} can be called in a
+     * finally block to release the permit whatever happened.
+     *
+     * @return permit for the call, or null if the call is rejected
+     */
+    public synchronized Permit tryAcquire() {
+        if (!config.isEnabled()) {
+            return new Permit(generation, false);
+        }
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            transition(State.HALF_OPEN);
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN && halfOpenInFlight < config.getHalfOpenCalls()) {
+            halfOpenInFlight++;
+            return new Permit(generation, true);
+        }
+        if (state == State.CLOSED) {
+            return new Permit(generation, false);
+        }
+        rejected++;
+        return null;
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (!complete(permit)) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (!complete(permit)) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= config.getMinimumCalls()
+                    && windowFailures >= config.getFailureRateThreshold() * windowCount) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Releases a permit without recording an outcome, e.g. when the call was
+     * never made. Does nothing if an outcome was already recorded.
+     *
+     * @param permit
+     */
+    public synchronized void onIgnored(Permit permit) {
+        complete(permit);
+    }
+
+    /**
+     * Marks the permit as used and gives back its half-open slot.
+     *
+     * @return whether the outcome of the call should be recorded
+     */
+    private boolean complete(Permit permit) {
+        if (permit.done) {
+            return false;
+        }
+        permit.done = true;
+        if (permit.generation != generation) {
+            return false;
+        }
+        if (permit.halfOpen) {
+            halfOpenInFlight--;
+        }
+        return config.isEnabled();
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openUntil = System.currentTimeMillis() + config.getOpenDurationMillis();
+    }
+
+    private void close() {
+        transition(State.CLOSED);
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
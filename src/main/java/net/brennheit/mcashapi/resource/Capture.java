@@ -39,4 +39,12 @@ public class Capture {
     public String id;
     @Key
     public String additional_amount;
+
+    public Money getAmount() {
+        return Money.parseOrNull(amount, null);
+    }
+
+    public Money getAdditional_amount() {
+        return Money.parseOrNull(additional_amount, null);
+    }
 }
@@ -31,8 +31,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  *
@@ -45,11 +43,23 @@ public final class DateTime implements Serializable {
     private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
     /**
-     * Regular expression for parsing RFC3339 date/times.
+     * Length of a date and time in mCASH format, "yyyy-MM-dd HH:mm:ss".
      */
-    private static final Pattern MCASH_DATETIME_PATTERN = Pattern.compile(
-            "^(\\d{4})-(\\d{2})-(\\d{2})" // yyyy-MM-dd
-            + "( (\\d{2}):(\\d{2}):(\\d{2}))?"); // 'T'HH:mm:ss.milliseconds
+    public static final int MCASH_DATETIME_LENGTH = 19;
+
+    private static final int MCASH_DATE_LENGTH = 10;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Values from 1583-01-01 up to, but not including, 10000-01-01 are parsed
+     * and formatted arithmetically. Outside this range GregorianCalendar is
+     * used, to keep its Julian calendar and year width behaviour.
+     */
+    private static final int FAST_MIN_YEAR = 1583;
+    private static final int FAST_MAX_YEAR = 9999;
+    private static final long FAST_MIN_MILLIS = daysFromCivil(FAST_MIN_YEAR, 1, 1) * MILLIS_PER_DAY;
+    private static final long FAST_MAX_MILLIS = daysFromCivil(FAST_MAX_YEAR + 1, 1, 1) * MILLIS_PER_DAY;
 
     /**
      * Date/time value expressed as the number of ms since the Unix epoch.
@@ -176,6 +186,58 @@ public final class DateTime implements Serializable {
      * Formats the value as an mCASH UTC date and time format string.
      */
     public String toStringMCashDateTime() {
+        if (value < FAST_MIN_MILLIS || value >= FAST_MAX_MILLIS) {
+            return toStringCalendar();
+        }
+        char[] buf = new char[dateOnly ? MCASH_DATE_LENGTH : MCASH_DATETIME_LENGTH];
+        writeMCashDateTime(buf, 0);
+        return new String(buf);
+    }
+
+    /**
+     * Writes the value in mCASH UTC date and time format into a caller owned
+     * buffer, without allocating.
+     *
+     * @param buf buffer with room for {@link #MCASH_DATETIME_LENGTH} chars
+     * (10 for a date-only value) from {@code offset}
+     * @param offset
+     * @return offset after the last written char
+     */
+    public int writeMCashDateTime(char[] buf, int offset) {
+        if (value < FAST_MIN_MILLIS || value >= FAST_MAX_MILLIS) {
+            String str = toStringCalendar();
+            str.getChars(0, str.length(), buf, offset);
+            return offset + str.length();
+        }
+        long days = Math.floorDiv(value, MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(value, MILLIS_PER_DAY) / 1000);
+        // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        offset = writeDigits(buf, offset, year, 4);
+        buf[offset++] = '-';
+        offset = writeDigits(buf, offset, month, 2);
+        buf[offset++] = '-';
+        offset = writeDigits(buf, offset, day, 2);
+        if (!dateOnly) {
+            buf[offset++] = ' ';
+            offset = writeDigits(buf, offset, secondOfDay / 3600, 2);
+            buf[offset++] = ':';
+            offset = writeDigits(buf, offset, secondOfDay / 60 % 60, 2);
+            buf[offset++] = ':';
+            offset = writeDigits(buf, offset, secondOfDay % 60, 2);
+        }
+        return offset;
+    }
+
+    private String toStringCalendar() {
         StringBuilder sb = new StringBuilder();
         Calendar dateTime = new GregorianCalendar(GMT);
         long localTime = value;
@@ -231,40 +293,86 @@ public final class DateTime implements Serializable {
     /**
      * Parses an mCASH UTC date and time value.
      *
+     * <p>
+     * Out of range fields roll over like in a lenient calendar, e.g. month 13
+     * is January of the following year.
+     * </p>
+     *
      * @param str Date/time string in mCASH UTC date and time format
-     * @throws NumberFormatException if {@code str} doesn't match the mCASH UTC date and time
-     * format; an exception is thrown if {@code str} doesn't match
-     * {@code MCASH_DATETIME_PATTERN}.
+     * @throws NumberFormatException if {@code str} doesn't match the mCASH UTC
+     * date and time format "yyyy-MM-dd HH:mm:ss".
      */
     public static DateTime parseMCashFormat(String str) throws NumberFormatException {
-        Matcher matcher = MCASH_DATETIME_PATTERN.matcher(str);
-        if (!matcher.matches()) {
+        if (str.length() == MCASH_DATE_LENGTH && isDate(str)) {
+            throw new NumberFormatException("Invalid date/time format, cannot specify time zone shift"
+                    + " without specifying time: " + str);
+        }
+        if (str.length() != MCASH_DATETIME_LENGTH || !isDate(str) || str.charAt(10) != ' '
+                || str.charAt(13) != ':' || str.charAt(16) != ':') {
+            throw new NumberFormatException("Invalid date/time format: " + str);
+        }
+        int year = readDigits(str, 0, 4); // yyyy
+        int month = readDigits(str, 5, 2); // MM
+        int day = readDigits(str, 8, 2); // dd
+        int hourOfDay = readDigits(str, 11, 2); // HH
+        int minute = readDigits(str, 14, 2); // mm
+        int second = readDigits(str, 17, 2); // ss
+        if ((hourOfDay | minute | second) < 0) {
             throw new NumberFormatException("Invalid date/time format: " + str);
         }
+        if (year < FAST_MIN_YEAR) {
+            Calendar dateTime = new GregorianCalendar(GMT);
+            dateTime.clear();
+            dateTime.set(year, month - 1, day, hourOfDay, minute, second);
+            return new DateTime(false, dateTime.getTimeInMillis());
+        }
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+        long days = daysFromCivil(year, month, 1) + day - 1;
+        long value = days * MILLIS_PER_DAY + hourOfDay * 3600000L + minute * 60000L + second * 1000L;
+        return new DateTime(false, value);
+    }
 
-        int year = Integer.parseInt(matcher.group(1)); // yyyy
-        int month = Integer.parseInt(matcher.group(2)) - 1; // MM
-        int day = Integer.parseInt(matcher.group(3)); // dd
-        boolean isTimeGiven = matcher.group(4) != null; // HH:mm:ss.milliseconds
-        int hourOfDay = 0;
-        int minute = 0;
-        int second = 0;
+    private static boolean isDate(String str) {
+        return str.charAt(4) == '-' && str.charAt(7) == '-'
+                && (readDigits(str, 0, 4) | readDigits(str, 5, 2) | readDigits(str, 8, 2)) >= 0;
+    }
 
-        if (!isTimeGiven) {
-            throw new NumberFormatException("Invalid date/time format, cannot specify time zone shift"
-                    + " without specifying time: " + str);
+    /**
+     *
+     * @return the number, or -1 if a char is not an ASCII digit
+     */
+    private static int readDigits(String str, int offset, int count) {
+        int num = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = str.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            num = num * 10 + digit;
         }
+        return num;
+    }
 
-        if (isTimeGiven) {
-            hourOfDay = Integer.parseInt(matcher.group(5)); // HH
-            minute = Integer.parseInt(matcher.group(6)); // mm
-            second = Integer.parseInt(matcher.group(7)); // ss
+    private static int writeDigits(char[] buf, int offset, int num, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            buf[i] = (char) ('0' + num % 10);
+            num /= 10;
         }
-        Calendar dateTime = new GregorianCalendar(GMT);
-        dateTime.set(year, month, day, hourOfDay, minute, second);
-        long value = dateTime.getTimeInMillis();
+        return offset + count;
+    }
 
-        return new DateTime(!isTimeGiven, value);
+    /**
+     * Days since the Unix epoch of a proleptic Gregorian date, see
+     * http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
     }
 
     /**
@@ -37,4 +37,8 @@ public class Fee {
     public String type;
     @Key
     public String amount;
+
+    public Money getAmount() {
+        return Money.parseOrNull(amount, null);
+    }
 }
@@ -0,0 +1,269 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.resource;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exact amount of money, stored as a number of minor units (1/100) and a
+ * currency. Converts to and from the mCASH wire format "#0.00" without
+ * intermediate objects.
+ *
+ * @author fiLLLip
+ */
+public final class Money implements Serializable, Comparable<Money> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of decimals in the mCASH wire format.
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * Longest wire format amount, e.g. "-92233720368547758.08".
+     */
+    public static final int MAX_MCASH_AMOUNT_LENGTH = 21;
+
+    private final long minorUnits;
+
+    /**
+     * ISO 4217 currency code, or null where the API leaves it implicit.
+     */
+    private final String currency;
+
+    private Money(long minorUnits, String currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    /**
+     *
+     * @param minorUnits amount in 1/100 of the currency unit, e.g. 12345 for
+     * 123.45
+     * @param currency
+     * @return
+     */
+    public static Money of(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Converts an amount in currency units, rounding half-even to two
+     * decimals of its exact binary value, like the DecimalFormat previously
+     * used for payment requests.
+     *
+     * @param amount
+     * @param currency
+     * @return
+     */
+    public static Money ofMajor(double amount, String currency) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount " + amount);
+        }
+        long minorUnits = new BigDecimal(amount).setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        return new Money(minorUnits, currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * Formats the amount in mCASH wire format, e.g. "1234.50".
+     */
+    public String toStringMCashAmount() {
+        char[] buf = new char[MAX_MCASH_AMOUNT_LENGTH];
+        int end = writeMCashAmount(buf, 0);
+        return new String(buf, 0, end);
+    }
+
+    /**
+     * Writes the amount in mCASH wire format into a caller owned buffer,
+     * without allocating.
+     *
+     * @param buf buffer with room for {@link #MAX_MCASH_AMOUNT_LENGTH} chars
+     * from {@code offset}
+     * @param offset
+     * @return offset after the last written char
+     */
+    public int writeMCashAmount(char[] buf, int offset) {
+        long units = minorUnits;
+        if (units < 0) {
+            buf[offset++] = '-';
+        }
+        int digits = 1;
+        for (long x = units / 10; x != 0; x /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, SCALE + 1);
+        int end = offset + digits + 1;
+        int pos = end;
+        for (int i = 0; i < digits; i++) {
+            if (i == SCALE) {
+                buf[--pos] = '.';
+            }
+            buf[--pos] = (char) ('0' + Math.abs(units % 10));
+            units /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Parses an amount in mCASH wire format: an optional minus sign, digits
+     * and up to two decimals.
+     *
+     * @param str
+     * @param currency
+     * @return
+     * @throws NumberFormatException if {@code str} is not a valid amount or
+     * has more than two decimals
+     */
+    public static Money parseMCashAmount(CharSequence str, String currency) throws NumberFormatException {
+        return new Money(parseMinorUnits(str), currency);
+    }
+
+    /**
+     * Parses an amount in mCASH wire format without allocating.
+     *
+     * @param str
+     * @return the amount in minor units
+     * @throws NumberFormatException if {@code str} is not a valid amount or
+     * has more than two decimals
+     */
+    public static long parseMinorUnits(CharSequence str) throws NumberFormatException {
+        int length = str.length();
+        int pos = 0;
+        boolean negative = length > 0 && str.charAt(0) == '-';
+        if (negative) {
+            pos++;
+        }
+        long units = 0;
+        int integerDigits = 0;
+        int decimals = -1;
+        for (; pos < length; pos++) {
+            char c = str.charAt(pos);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || decimals == SCALE) {
+                throw new NumberFormatException("Invalid amount: " + str);
+            }
+            if (decimals < 0) {
+                integerDigits++;
+            } else {
+                decimals++;
+            }
+            // accumulate negatively so Long.MIN_VALUE minor units fit
+            if (units < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Amount out of range: " + str);
+            }
+            units = units * 10 - digit;
+        }
+        if (integerDigits == 0 || decimals == 0) {
+            throw new NumberFormatException("Invalid amount: " + str);
+        }
+        for (int i = Math.max(decimals, 0); i < SCALE; i++) {
+            if (units < Long.MIN_VALUE / 10) {
+                throw new NumberFormatException("Amount out of range: " + str);
+            }
+            units *= 10;
+        }
+        if (!negative) {
+            if (units == Long.MIN_VALUE) {
+                throw new NumberFormatException("Amount out of range: " + str);
+            }
+            units = -units;
+        }
+        return units;
+    }
+
+    /**
+     * Parses an optional amount of a resource.
+     *
+     * @return null if {@code str} is null
+     */
+    static Money parseOrNull(String str, String currency) {
+        return str == null ? null : parseMCashAmount(str, currency);
+    }
+
+    private void checkCurrency(Money other) {
+        if (currency == null ? other.currency != null : !currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + ", " + other.currency);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits
+                && (currency == null ? other.currency == null : currency.equals(other.currency));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + (currency == null ? 0 : currency.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return currency == null ? toStringMCashAmount() : toStringMCashAmount() + " " + currency;
+    }
+}
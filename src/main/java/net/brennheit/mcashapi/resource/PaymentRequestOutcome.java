@@ -93,4 +93,28 @@ public class PaymentRequestOutcome {
     public String pos_tid;
     @Key
     public String tid;
+
+    public Money getAmount() {
+        return Money.parseOrNull(amount, currency);
+    }
+
+    public Money getAdditional_amount() {
+        return Money.parseOrNull(additional_amount, currency);
+    }
+
+    public Money getAuth_amount() {
+        return Money.parseOrNull(auth_amount, currency);
+    }
+
+    public Money getAuth_additional_amount() {
+        return Money.parseOrNull(auth_additional_amount, currency);
+    }
+
+    public Money getInterchange_fee() {
+        return Money.parseOrNull(interchange_fee, currency);
+    }
+
+    public Money getTransaction_fee() {
+        return Money.parseOrNull(transaction_fee, currency);
+    }
 }
@@ -49,4 +49,28 @@ public class PayoutDetail {
     public String billed;
     @Key
     public String invoice_id;
+
+    public Money getUnsettled_fees_before() {
+        return Money.parseOrNull(unsettled_fees_before, currency);
+    }
+
+    public Money getUnsettled_fees_after() {
+        return Money.parseOrNull(unsettled_fees_after, currency);
+    }
+
+    public Money getPayout() {
+        return Money.parseOrNull(payout, currency);
+    }
+
+    public Money getNet() {
+        return Money.parseOrNull(net, currency);
+    }
+
+    public Money getGross() {
+        return Money.parseOrNull(gross, currency);
+    }
+
+    public Money getBilled() {
+        return Money.parseOrNull(billed, currency);
+    }
 }
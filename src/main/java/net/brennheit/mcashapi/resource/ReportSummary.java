@@ -48,4 +48,24 @@ public class ReportSummary {
     public String currency;
     @Key
     public String net;
+
+    public Money getGross() {
+        return Money.parseOrNull(gross, currency);
+    }
+
+    public Money getTransaction_fee() {
+        return Money.parseOrNull(transaction_fee, currency);
+    }
+
+    public Money getScope_fee() {
+        return Money.parseOrNull(scope_fee, currency);
+    }
+
+    public Money getInterchange() {
+        return Money.parseOrNull(interchange, currency);
+    }
+
+    public Money getNet() {
+        return Money.parseOrNull(net, currency);
+    }
 }
@@ -52,4 +52,28 @@ public class SettlementSummary {
     public String taxcode;
     @Key
     public String settlement_fee;
+
+    public Money getGross() {
+        return Money.parseOrNull(gross, currency);
+    }
+
+    public Money getTransaction_fee() {
+        return Money.parseOrNull(transaction_fee, currency);
+    }
+
+    public Money getScope_fee() {
+        return Money.parseOrNull(scope_fee, currency);
+    }
+
+    public Money getInterchange() {
+        return Money.parseOrNull(interchange, currency);
+    }
+
+    public Money getNet() {
+        return Money.parseOrNull(net, currency);
+    }
+
+    public Money getSettlement_fee() {
+        return Money.parseOrNull(settlement_fee, currency);
+    }
 }
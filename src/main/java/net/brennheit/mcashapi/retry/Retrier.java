@@ -0,0 +1,193 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.retry;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies a {@link RetryPolicy} for one client: decides whether a failed
+ * attempt is retried, how long to back off, and keeps the retry budget and
+ * counters.
+ *
+ * @author fiLLLip
+ */
+public class Retrier {
+
+    private static final long TOKEN_SCALE = 1000;
+
+    private final RetryPolicy policy;
+    private final RetryStats stats = new RetryStats();
+    private final Object budgetLock = new Object();
+    /**
+     * Retry tokens in thousandths, so fractional earnings are not lost.
+     */
+    private long budgetTokens;
+
+    public Retrier(RetryPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Retry policy is required");
+        }
+        this.policy = policy;
+        this.budgetTokens = policy.getBudgetMaxTokens() * TOKEN_SCALE;
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    public RetryStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Earns retry tokens; called once per request, not per attempt.
+     */
+    public void onRequest() {
+        long earned = (long) (policy.getBudgetRatio() * TOKEN_SCALE);
+        if (earned == 0) {
+            return;
+        }
+        synchronized (budgetLock) {
+            budgetTokens = Math.min(budgetTokens + earned, policy.getBudgetMaxTokens() * TOKEN_SCALE);
+        }
+    }
+
+    /**
+     *
+     * @param method HTTP method
+     * @param hasDedupeKey whether the request carries a key letting the server
+     * drop duplicates
+     * @return whether failed attempts of the request may be repeated
+     */
+    public boolean isRetryable(String method, boolean hasDedupeKey) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            case "POST":
+                return hasDedupeKey && policy.isRetryPostWithDedupeKey();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     *
+     * @param statusCode
+     * @return whether the status is worth another attempt
+     */
+    public boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || (statusCode / 100 == 5 && statusCode != 501);
+    }
+
+    /**
+     * Decides whether another attempt is made, taking a budget token if so.
+     * Records a give-up otherwise.
+     *
+     * @param attempt number of attempts made so far
+     * @return
+     */
+    public boolean tryRetry(int attempt) {
+        if (attempt >= policy.getMaxAttempts()) {
+            stats.recordGiveUp(false);
+            return false;
+        }
+        synchronized (budgetLock) {
+            if (budgetTokens >= TOKEN_SCALE) {
+                budgetTokens -= TOKEN_SCALE;
+                return true;
+            }
+        }
+        stats.recordGiveUp(true);
+        return false;
+    }
+
+    /**
+     *
+     * @param attempt number of attempts made so far
+     * @param retryAfter value of the Retry-After header, may be null
+     * @return milliseconds to wait before the next attempt
+     */
+    public long backoffMillis(int attempt, String retryAfter) {
+        if (policy.isHonourRetryAfter() && retryAfter != null) {
+            long retryAfterMillis = parseRetryAfter(retryAfter);
+            if (retryAfterMillis >= 0) {
+                return Math.min(retryAfterMillis, policy.getMaxRetryAfterMillis());
+            }
+        }
+        double delay = policy.getInitialBackoffMillis() * Math.pow(policy.getMultiplier(), attempt - 1);
+        if (delay > policy.getMaxBackoffMillis()) {
+            delay = policy.getMaxBackoffMillis();
+        }
+        delay -= delay * policy.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return (long) delay;
+    }
+
+    /**
+     * Waits before the next attempt.
+     *
+     * @param millis
+     * @throws InterruptedException
+     */
+    public void backoff(long millis) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            if (millis > 0) {
+                Thread.sleep(millis);
+            }
+        } finally {
+            stats.recordRetry(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     *
+     * @param retryAfter delay in seconds or an HTTP date
+     * @return delay in milliseconds, or -1 if the value cannot be parsed
+     */
+    static long parseRetryAfter(String retryAfter) {
+        String value = retryAfter.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            // huge values are capped by the policy anyway
+            return seconds > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : Math.max(0, seconds * 1000);
+        } catch (NumberFormatException ex) {
+            // Not seconds, try HTTP date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.retry;
+
+/**
+ * Immutable description of when and how failed requests are retried.
+ *
+ * @author fiLLLip
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final double jitter;
+    private final double budgetRatio;
+    private final int budgetMaxTokens;
+    private final boolean honourRetryAfter;
+    private final long maxRetryAfterMillis;
+    private final boolean retryPostWithDedupeKey;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.budgetRatio = builder.budgetRatio;
+        this.budgetMaxTokens = builder.budgetMaxTokens;
+        this.honourRetryAfter = builder.honourRetryAfter;
+        this.maxRetryAfterMillis = builder.maxRetryAfterMillis;
+        this.retryPostWithDedupeKey = builder.retryPostWithDedupeKey;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Three attempts with exponential backoff from 200 ms, a retry budget of
+     * 20% of the requests and Retry-After honoured up to 30 seconds.
+     *
+     * @return
+     */
+    public static RetryPolicy defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     *
+     * @return policy which never retries
+     */
+    public static RetryPolicy none() {
+        return new Builder().maxAttempts(1).build();
+    }
+
+    /**
+     * Total number of attempts, including the first one.
+     *
+     * @return
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Retry tokens earned per request.
+     *
+     * @return
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * Upper bound of saved retry tokens, i.e. the largest burst of retries.
+     *
+     * @return
+     */
+    public int getBudgetMaxTokens() {
+        return budgetMaxTokens;
+    }
+
+    public boolean isHonourRetryAfter() {
+        return honourRetryAfter;
+    }
+
+    public long getMaxRetryAfterMillis() {
+        return maxRetryAfterMillis;
+    }
+
+    /**
+     * Whether POST requests carrying a dedupe key (pos_tid of payment
+     * requests) may be retried. Off by default: nothing guarantees that the
+     * server drops a duplicate, and a retry after a lost response cannot
+     * return the resource the first attempt created.
+     *
+     * @return
+     */
+    public boolean isRetryPostWithDedupeKey() {
+        return retryPostWithDedupeKey;
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 200;
+        private long maxBackoffMillis = 5000;
+        private double multiplier = 2;
+        private double jitter = 0.5;
+        private double budgetRatio = 0.2;
+        private int budgetMaxTokens = 10;
+        private boolean honourRetryAfter = true;
+        private long maxRetryAfterMillis = 30000;
+        private boolean retryPostWithDedupeKey;
+
+        private Builder() {
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("Invalid max attempts " + maxAttempts);
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder backoff(long initialBackoffMillis, long maxBackoffMillis, double multiplier) {
+            if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+                throw new IllegalArgumentException("Invalid backoff " + initialBackoffMillis + ", " + maxBackoffMillis);
+            }
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("Invalid multiplier " + multiplier);
+            }
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         *
+         * @param jitter fraction of the backoff that is randomized, between 0
+         * and 1
+         * @return
+         */
+        public Builder jitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("Invalid jitter " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         *
+         * @param budgetRatio retry tokens earned per request
+         * @param budgetMaxTokens largest number of saved tokens
+         * @return
+         */
+        public Builder budget(double budgetRatio, int budgetMaxTokens) {
+            if (budgetRatio < 0 || budgetMaxTokens < 0) {
+                throw new IllegalArgumentException("Invalid budget " + budgetRatio + ", " + budgetMaxTokens);
+            }
+            this.budgetRatio = budgetRatio;
+            this.budgetMaxTokens = budgetMaxTokens;
+            return this;
+        }
+
+        public Builder honourRetryAfter(boolean honourRetryAfter, long maxRetryAfterMillis) {
+            if (maxRetryAfterMillis < 0) {
+                throw new IllegalArgumentException("Invalid max Retry-After " + maxRetryAfterMillis);
+            }
+            this.honourRetryAfter = honourRetryAfter;
+            this.maxRetryAfterMillis = maxRetryAfterMillis;
+            return this;
+        }
+
+        public Builder retryPostWithDedupeKey(boolean retryPostWithDedupeKey) {
+            this.retryPostWithDedupeKey = retryPostWithDedupeKey;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry counters of a client.
+ *
+ * @author fiLLLip
+ */
+public class RetryStats {
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong givenUp = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+    private final AtomicLong backoffNanos = new AtomicLong();
+
+    void recordRetry(long backoffNanos) {
+        this.retries.incrementAndGet();
+        this.backoffNanos.addAndGet(backoffNanos);
+    }
+
+    void recordGiveUp(boolean budgetExhausted) {
+        this.givenUp.incrementAndGet();
+        if (budgetExhausted) {
+            this.budgetExhausted.incrementAndGet();
+        }
+    }
+
+    /**
+     *
+     * @return number of retried attempts
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     *
+     * @return number of retryable requests which failed after all attempts or
+     * because the retry budget was exhausted
+     */
+    public long getGivenUp() {
+        return givenUp.get();
+    }
+
+    /**
+     *
+     * @return number of give-ups caused by an exhausted retry budget
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     *
+     * @return total time spent waiting between attempts
+     */
+    public long getBackoffNanos() {
+        return backoffNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{retries=" + getRetries() + ", givenUp=" + getGivenUp()
+                + ", budgetExhausted=" + getBudgetExhausted() + ", backoffMillis=" + getBackoffNanos() / 1000000 + '}';
+    }
+}
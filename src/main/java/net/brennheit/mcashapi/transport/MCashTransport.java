@@ -0,0 +1,179 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.transport;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+
+/**
+ * HTTP transport plus the settings requests sent over it should use. One
+ * transport can be shared by any number of clients; closing it releases its
+ * connection pool.
+ *
+ * @author fiLLLip
+ */
+public class MCashTransport implements AutoCloseable {
+
+    private final HttpTransport httpTransport;
+    private final TransportConfig config;
+    private final ClientConnectionManager connectionManager;
+    private final ScheduledExecutorService idleEvictor;
+
+    /**
+     * Wraps an existing transport, e.g. a mock transport in tests. Only the
+     * timeouts of the config are used.
+     *
+     * @param httpTransport
+     * @param config
+     */
+    public MCashTransport(HttpTransport httpTransport, TransportConfig config) {
+        this(httpTransport, config, null);
+    }
+
+    private MCashTransport(HttpTransport httpTransport, TransportConfig config, ClientConnectionManager connectionManager) {
+        this.httpTransport = httpTransport;
+        this.config = config;
+        this.connectionManager = connectionManager;
+        if (connectionManager != null && config.getIdleTimeoutMillis() > 0) {
+            this.idleEvictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mcash-idle-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000, config.getIdleTimeoutMillis() / 2);
+            this.idleEvictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.idleEvictor = null;
+        }
+    }
+
+    /**
+     *
+     * @param config
+     * @return new transport as described by the config
+     */
+    public static MCashTransport create(TransportConfig config) {
+        SSLContext sslContext = createSslContext(config);
+        switch (config.getType()) {
+            case APACHE_POOLED:
+                HttpParams params = new BasicHttpParams();
+                // the transport does not retry, so a pooled connection the
+                // server already closed must be caught before it is used
+                HttpConnectionParams.setStaleCheckingEnabled(params, true);
+                HttpConnectionParams.setSocketBufferSize(params, 8192);
+                HttpConnectionParams.setConnectionTimeout(params, config.getConnectTimeoutMillis());
+                HttpConnectionParams.setSoTimeout(params, config.getReadTimeoutMillis());
+                HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+                ConnManagerParams.setMaxTotalConnections(params, config.getMaxConnections());
+                ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(config.getMaxConnectionsPerRoute()));
+                SchemeRegistry registry = new SchemeRegistry();
+                registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+                registry.register(new Scheme("https", sslContext == null ? SSLSocketFactory.getSocketFactory() : new SSLSocketFactory(sslContext), 443));
+                ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager(params, registry);
+                DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager, params);
+                // Retries are done by the client, not by the transport
+                httpClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+                return new MCashTransport(new ApacheHttpTransport(httpClient), config, connectionManager);
+            case NET_HTTP:
+            default:
+                NetHttpTransport.Builder builder = new NetHttpTransport.Builder();
+                if (sslContext != null) {
+                    builder.setSslSocketFactory(sslContext.getSocketFactory());
+                }
+                return new MCashTransport(builder.build(), config);
+        }
+    }
+
+    private static SSLContext createSslContext(TransportConfig config) {
+        if (config.getTlsSessionCacheSize() == 0 && config.getTlsSessionTimeoutSeconds() == 0) {
+            return null;
+        }
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (config.getTlsSessionCacheSize() > 0) {
+                sessionContext.setSessionCacheSize(config.getTlsSessionCacheSize());
+            }
+            if (config.getTlsSessionTimeoutSeconds() > 0) {
+                sessionContext.setSessionTimeout(config.getTlsSessionTimeoutSeconds());
+            }
+            return sslContext;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not create TLS context", ex);
+        }
+    }
+
+    public HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    private void evictIdleConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (idleEvictor != null) {
+            idleEvictor.shutdownNow();
+        }
+        try {
+            httpTransport.shutdown();
+        } catch (IOException ex) {
+            Logger.getLogger(MCashTransport.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+}
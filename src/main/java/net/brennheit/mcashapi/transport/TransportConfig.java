@@ -0,0 +1,225 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.transport;
+
+/**
+ * Immutable settings of a {@link MCashTransport}.
+ *
+ * @author fiLLLip
+ */
+public final class TransportConfig {
+
+    private final TransportType type;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeoutSeconds;
+
+    private TransportConfig(Builder builder) {
+        this.type = builder.type;
+        this.maxConnections = builder.maxConnections;
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.tlsSessionCacheSize = builder.tlsSessionCacheSize;
+        this.tlsSessionTimeoutSeconds = builder.tlsSessionTimeoutSeconds;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link TransportType#NET_HTTP} with default timeouts, as used by clients
+     * without an explicit transport.
+     *
+     * @return
+     */
+    public static TransportConfig defaults() {
+        return new Builder().build();
+    }
+
+    public TransportType getType() {
+        return type;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+
+    public static final class Builder {
+
+        private TransportType type = TransportType.NET_HTTP;
+        private int maxConnections = 20;
+        private int maxConnectionsPerRoute = 20;
+        private int connectTimeoutMillis = 20000;
+        private int readTimeoutMillis = 20000;
+        private long idleTimeoutMillis = 30000;
+        private int tlsSessionCacheSize;
+        private int tlsSessionTimeoutSeconds;
+
+        private Builder() {
+        }
+
+        public Builder type(TransportType type) {
+            if (type == null) {
+                throw new IllegalArgumentException("Transport type is required");
+            }
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Size of the connection pool. Only used by
+         * {@link TransportType#APACHE_POOLED}.
+         *
+         * @param maxConnections
+         * @return
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = requirePositive(maxConnections, "max connections");
+            return this;
+        }
+
+        /**
+         * Pooled connections per host. Only used by
+         * {@link TransportType#APACHE_POOLED}.
+         *
+         * @param maxConnectionsPerRoute
+         * @return
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = requirePositive(maxConnectionsPerRoute, "max connections per route");
+            return this;
+        }
+
+        /**
+         *
+         * @param connectTimeoutMillis 0 for no timeout
+         * @return
+         */
+        public Builder connectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = requireNotNegative(connectTimeoutMillis, "connect timeout");
+            return this;
+        }
+
+        /**
+         *
+         * @param readTimeoutMillis 0 for no timeout
+         * @return
+         */
+        public Builder readTimeoutMillis(int readTimeoutMillis) {
+            this.readTimeoutMillis = requireNotNegative(readTimeoutMillis, "read timeout");
+            return this;
+        }
+
+        /**
+         * Pooled connections unused for this long are closed. Only used by
+         * {@link TransportType#APACHE_POOLED}; 0 disables eviction.
+         *
+         * @param idleTimeoutMillis
+         * @return
+         */
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            if (idleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Invalid idle timeout " + idleTimeoutMillis);
+            }
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Number of TLS sessions kept for resumption. 0 keeps the JDK default.
+         *
+         * @param tlsSessionCacheSize
+         * @return
+         */
+        public Builder tlsSessionCacheSize(int tlsSessionCacheSize) {
+            this.tlsSessionCacheSize = requireNotNegative(tlsSessionCacheSize, "TLS session cache size");
+            return this;
+        }
+
+        /**
+         * How long TLS sessions can be resumed. 0 keeps the JDK default.
+         *
+         * @param tlsSessionTimeoutSeconds
+         * @return
+         */
+        public Builder tlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+            this.tlsSessionTimeoutSeconds = requireNotNegative(tlsSessionTimeoutSeconds, "TLS session timeout");
+            return this;
+        }
+
+        public TransportConfig build() {
+            if (maxConnectionsPerRoute > maxConnections) {
+                throw new IllegalArgumentException("Max connections per route exceeds max connections");
+            }
+            return new TransportConfig(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value < 1) {
+                throw new IllegalArgumentException("Invalid " + name + " " + value);
+            }
+            return value;
+        }
+
+        private static int requireNotNegative(int value, String name) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid " + name + " " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.callback.CallbackServer;
+import net.brennheit.mcashapi.callback.CallbackType;
+import net.brennheit.mcashapi.poller.FixedPollingStrategy;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class CallbackTest extends TestCase {
+
+    private volatile String status = "pending";
+    private final AtomicInteger outcomeGets = new AtomicInteger();
+    private final AtomicInteger captures = new AtomicInteger();
+    private CallbackServer server;
+    private MCashClient client;
+
+    @Override
+    protected void setUp() throws IOException {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() throws IOException {
+                        if ("PUT".equals(method)) {
+                            captures.incrementAndGet();
+                            return new MockLowLevelHttpResponse().setStatusCode(204);
+                        }
+                        outcomeGets.incrementAndGet();
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"tid\":\"t1\",\"status\":\"" + status + "\"}");
+                    }
+                };
+            }
+        };
+        server = new CallbackServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, 1);
+        server.start();
+        client = MCashClient.builder().baseUrl("http://mcash.test/merchant/v1").merchantId("m").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults())).build();
+        client.enableCallbacks(server, 60000);
+    }
+
+    @Override
+    protected void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    public void testForgedCallbackOnlyTriggersPoll() throws Exception {
+        BlockingQueue<PaymentRequestOutcome> finished = new LinkedBlockingQueue<>();
+        client.startPaymentFinishedListener("t1", finished::add);
+
+        post("{\"object\":{\"tid\":\"t1\",\"status\":\"ok\"}}");
+        waitFor(outcomeGets, 1);
+        assertNull(finished.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, captures.get());
+        assertTrue(client.getTrackedPaymentRequests().contains("t1"));
+
+        status = "auth";
+        post("{\"object\":{\"tid\":\"t1\",\"status\":\"pending\"}}");
+        PaymentRequestOutcome outcome = finished.poll(5, TimeUnit.SECONDS);
+        assertNotNull(outcome);
+        assertEquals("auth", outcome.status);
+        assertEquals(1, captures.get());
+    }
+
+    public void testCallbackKeepsFallbackRate() throws Exception {
+        client.setPaymentPollingStrategy(new FixedPollingStrategy(10));
+        client.startPaymentFinishedListener("t1");
+        post("{\"object\":{\"tid\":\"t1\",\"status\":\"pending\"}}");
+        waitFor(outcomeGets, 1);
+        Thread.sleep(200);
+        // still pending, the next check waits for the next callback
+        assertEquals(1, outcomeGets.get());
+        assertTrue(client.getTrackedPaymentRequests().contains("t1"));
+    }
+
+    public void testShortlinkCallbackKeepsFallbackRate() throws Exception {
+        client.setShortlinkPollingStrategy(new FixedPollingStrategy(10));
+        client.startShortlinkScannedListener("s1", new Date());
+        post(CallbackType.SHORTLINK, "{\"object\":{\"id\":\"s1\"}}");
+        waitFor(outcomeGets, 1);
+        Thread.sleep(200);
+        assertEquals(1, outcomeGets.get());
+    }
+
+    private void post(String body) throws IOException {
+        post(CallbackType.PAYMENT_REQUEST, body);
+    }
+
+    private void post(CallbackType type, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(client.getCallbackUri(type)).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes("UTF-8"));
+        }
+        assertEquals(204, connection.getResponseCode());
+    }
+
+    private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.get() < value && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(counter.get() >= value);
+    }
+}
@@ -0,0 +1,178 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MCashAsyncClientTest extends TestCase {
+
+    private final CountDownLatch polled = new CountDownLatch(1);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile Thread pollingThread;
+    private MCashClient client;
+    private MCashAsyncClient async;
+
+    @Override
+    protected void setUp() {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() throws IOException {
+                        if (url.endsWith("/outcome/")) {
+                            pollingThread = Thread.currentThread();
+                            polled.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException ex) {
+                                throw new InterruptedIOException();
+                            }
+                        }
+                        String content = url.endsWith("/merchant/m1/")
+                                ? "{\"id\":\"m1\",\"business_name\":\"Shop\"}"
+                                : "{\"tid\":\"t1\",\"status\":\"pending\"}";
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent(content);
+                    }
+                };
+            }
+        };
+        client = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").merchantId("m1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .build();
+        async = new MCashAsyncClient(client);
+    }
+
+    @Override
+    protected void tearDown() {
+        async.close();
+        client.close();
+    }
+
+    public void testGetMerchant() throws Exception {
+        assertEquals("Shop", async.getMerchant().get(5, TimeUnit.SECONDS).business_name);
+    }
+
+    public void testCloseCancelsPaymentFinished() throws Exception {
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1");
+        client.close();
+        try {
+            finished.get(5, TimeUnit.SECONDS);
+            fail("Expected cancellation");
+        } catch (CancellationException ex) {
+            // polling stopped
+        }
+    }
+
+    public void testStopCancelsPaymentFinished() throws Exception {
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1");
+        assertTrue(client.stopPaymentFinishedListener("t1"));
+        assertTrue(finished.isCompletedExceptionally());
+    }
+
+    public void testCancelStopsPolling() {
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1");
+        assertTrue(client.getTrackedPaymentRequests().contains("t1"));
+        finished.cancel(false);
+        assertTrue(client.getTrackedPaymentRequests().isEmpty());
+    }
+
+    public void testClosedEngineCancelsPaymentFinished() throws Exception {
+        client.getPollingEngine().close();
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1");
+        assertTrue(finished.isCompletedExceptionally());
+        assertTrue(client.getTrackedPaymentRequests().isEmpty());
+    }
+
+    public void testTimeout() throws Exception {
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1", 100, TimeUnit.MILLISECONDS);
+        try {
+            finished.get(5, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        assertTrue(client.getTrackedPaymentRequests().isEmpty());
+    }
+
+    public void testPaymentFinishedReturnsBeforeFirstPoll() throws Exception {
+        release = new CountDownLatch(1);
+        try {
+            CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1");
+            assertFalse(finished.isDone());
+            assertTrue(polled.await(5, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), pollingThread);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    public void testCancelKeepsOtherListeners() {
+        CompletableFuture<PaymentRequestOutcome> first = async.paymentFinished("t1");
+        CompletableFuture<PaymentRequestOutcome> second = async.paymentFinished("t1");
+        first.cancel(false);
+        assertTrue(client.getTrackedPaymentRequests().contains("t1"));
+        assertFalse(second.isDone());
+        second.cancel(false);
+        assertTrue(client.getTrackedPaymentRequests().isEmpty());
+    }
+
+    public void testTimeoutKeepsListenersOfTheClient() throws Exception {
+        client.startPaymentFinishedListener("t1", outcome -> {
+        });
+        CompletableFuture<PaymentRequestOutcome> finished = async.paymentFinished("t1", 50, TimeUnit.MILLISECONDS);
+        try {
+            finished.get(5, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        assertTrue(client.getTrackedPaymentRequests().contains("t1"));
+    }
+}
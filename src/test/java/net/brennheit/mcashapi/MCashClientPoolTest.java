@@ -0,0 +1,111 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MCashClientPoolTest extends TestCase {
+
+    private MCashClientPool pool;
+
+    @Override
+    protected void setUp() {
+        MockHttpTransport pending = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"tid\":\"t1\",\"status\":\"pending\"}");
+                    }
+                };
+            }
+        };
+        pool = MCashClientPool.builder()
+                .merchants(merchantId -> MCashClient.builder().baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l"))
+                .transport(new MCashTransport(pending, TransportConfig.defaults()))
+                .maxClients(1)
+                .idleTimeoutMillis(0)
+                .build();
+    }
+
+    @Override
+    protected void tearDown() {
+        pool.close();
+    }
+
+    public void testOverflowKeepsListeningClients() {
+        MCashClient listening = pool.getClient("a");
+        listening.startPaymentFinishedListener("t1");
+        assertTrue(listening.isListening());
+
+        MCashClient other = pool.getClient("b");
+        assertEquals(2, pool.size());
+        assertEquals(0, pool.getEvicted());
+        assertTrue(listening.isListening());
+        assertNotNull(pool.getStats("a"));
+
+        listening.stopPaymentFinishedListener("t1");
+        pool.getClient("c");
+        assertEquals(1, pool.size());
+        assertEquals(2, pool.getEvicted());
+        assertNull(pool.getStats("a"));
+        assertNull(pool.getStats("b"));
+        assertNotSame(other, pool.getClient("c"));
+    }
+
+    public void testOverflowEvictsLeastRecentlyUsed() {
+        pool.getClient("a");
+        pool.getClient("b");
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getEvicted());
+        assertNotNull(pool.getStats("b"));
+    }
+
+    public void testUnknownMerchant() {
+        MCashClientPool unknown = MCashClientPool.builder().merchants(merchantId -> null).build();
+        try {
+            unknown.getClient("x");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        } finally {
+            unknown.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resilience.BulkheadFullException;
+import net.brennheit.mcashapi.resource.Merchant;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MCashClientTest extends TestCase {
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch sent = new CountDownLatch(1);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private final MCashTransport transport = new MCashTransport(new MockHttpTransport() {
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, final String url) {
+            return new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    requests.add(url + " " + getFirstHeaderValue("X-Mcash-Merchant") + " " + getFirstHeaderValue("Authorization"));
+                    sent.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        throw new InterruptedIOException();
+                    }
+                    return new MockLowLevelHttpResponse()
+                            .setContentType("application/json")
+                            .setContent("{\"id\":\"m\"}");
+                }
+            };
+        }
+    }, TransportConfig.defaults());
+
+    public void testClientsKeepTheirOwnBaseUrlAndHeaders() {
+        String defaultBase = MCashUrl.getBaseUri();
+        MCashClient production = client("https://api.mcash.test/merchant/v1", "m1", "k1");
+        MCashClient testbed = client("https://testbed.mcash.test/merchant/v1", "m2", "k2");
+        try {
+            assertNotNull(production.getMerchant());
+            assertNotNull(testbed.getMerchant());
+            assertNotNull(production.getMerchant());
+        } finally {
+            production.close();
+            testbed.close();
+        }
+        assertEquals(Arrays.asList(
+                "https://api.mcash.test/merchant/v1/merchant/m1/ m1 SECRET k1",
+                "https://testbed.mcash.test/merchant/v1/merchant/m2/ m2 SECRET k2",
+                "https://api.mcash.test/merchant/v1/merchant/m1/ m1 SECRET k1"), requests);
+        assertEquals(defaultBase, MCashUrl.getBaseUri());
+    }
+
+    public void testRequestsGetTheirOwnHeaders() throws Exception {
+        MCashClient client = client("https://api.mcash.test/merchant/v1", "m1", "k1");
+        try {
+            HttpRequest first = client.doGetResponse(new GenericUrl("https://api.mcash.test/merchant/v1/merchant/m1/")).getRequest();
+            first.getHeaders().set("X-Mcash-Merchant", "changed");
+            assertNotNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        assertEquals("https://api.mcash.test/merchant/v1/merchant/m1/ m1 SECRET k1", requests.get(1));
+    }
+
+    public void testNoBulkheadsByDefault() throws Exception {
+        MCashClient client = client("https://api.mcash.test/merchant/v1", "m1", "k1");
+        try {
+            for (EndpointFamily family : EndpointFamily.values()) {
+                assertNull(client.getBulkhead(family));
+            }
+            assertEquals(2, concurrentMerchantGets(client, 2));
+        } finally {
+            client.close();
+        }
+    }
+
+    public void testConfiguredBulkheadFailsFast() throws Exception {
+        MCashClient client = client(MCashClient.builder().bulkhead(EndpointFamily.OTHER, 1),
+                "https://api.mcash.test/merchant/v1", "m1", "k1");
+        try {
+            assertNull(client.getBulkhead(EndpointFamily.LEDGER));
+            assertEquals(1, client.getBulkhead(EndpointFamily.OTHER).getMaxConcurrentCalls());
+            assertEquals(1, concurrentMerchantGets(client, 2));
+            assertEquals(1, client.getBulkhead(EndpointFamily.OTHER).getAvailable());
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * Gets the merchant from several threads while the first request is held
+     * in the transport.
+     *
+     * @return requests which got a response
+     */
+    private int concurrentMerchantGets(final MCashClient client, int threads) throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Merchant>> merchants = new ArrayList<>();
+            merchants.add(executor.submit(client::doGetMerchant));
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                merchants.add(executor.submit(client::doGetMerchant));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            int succeeded = 0;
+            for (Future<Merchant> merchant : merchants) {
+                try {
+                    assertNotNull(merchant.get(5, TimeUnit.SECONDS));
+                    succeeded++;
+                } catch (ExecutionException ex) {
+                    assertTrue(ex.getCause() instanceof BulkheadFullException);
+                }
+            }
+            return succeeded;
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private MCashClient client(String baseUrl, String merchantId, String authKey) {
+        return client(MCashClient.builder(), baseUrl, merchantId, authKey);
+    }
+
+    private MCashClient client(MCashClient.Builder builder, String baseUrl, String merchantId, String authKey) {
+        return builder
+                .baseUrl(baseUrl).merchantId(merchantId).userId("u").authKey(authKey).posId("p").ledger("l")
+                .transport(transport)
+                .build();
+    }
+}
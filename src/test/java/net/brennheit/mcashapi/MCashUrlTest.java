@@ -0,0 +1,78 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.GenericUrl;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MCashUrlTest extends TestCase {
+
+    private final MCashUrl.Base base = MCashUrl.Base.parse("https://mcash.test/merchant/v1");
+
+    public void testExpandsTemplates() {
+        assertEquals("https://mcash.test/merchant/v1/payment_request/", base.paymentRequest().build());
+        assertEquals("https://mcash.test/merchant/v1/payment_request/t1/outcome/", base.paymentRequestOutcome("t1").build());
+        assertEquals("https://mcash.test/merchant/v1/shortlink/s1/last_scan/?ttl=60", base.shortlinkLastScan("s1", 60).build());
+        assertEquals("https://mcash.test/merchant/v1/ledger/l%201/report/r1/", base.report("l 1", "r1").build());
+    }
+
+    public void testMatchesParsedUrl() {
+        GenericUrl parsed = new GenericUrl("https://mcash.test/merchant/v1/merchant/m1/");
+        assertEquals(parsed, base.merchant("m1"));
+        assertEquals(parsed.build(), base.merchant("m1").build());
+    }
+
+    public void testRejectsNullArgument() {
+        try {
+            base.report("l1", null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("reportId is required", ex.getMessage());
+        }
+        try {
+            base.paymentRequest(null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("tid is required", ex.getMessage());
+        }
+    }
+
+    public void testEndpointFamily() {
+        assertEquals(EndpointFamily.PAYMENT_REQUEST, EndpointFamily.of(base.paymentRequestTicket("t1")));
+        assertEquals(EndpointFamily.LEDGER, EndpointFamily.of(base.report("l1", "r1")));
+        assertEquals(EndpointFamily.OTHER, EndpointFamily.of(base.merchant("m1")));
+        try {
+            EndpointFamily.of(null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("url is required", ex.getMessage());
+        }
+    }
+}
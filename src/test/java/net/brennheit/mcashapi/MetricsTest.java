@@ -0,0 +1,95 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.metrics.EndpointMetrics;
+import net.brennheit.mcashapi.metrics.InMemoryMetrics;
+import net.brennheit.mcashapi.retry.RetryPolicy;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MetricsTest extends TestCase {
+
+    private final InMemoryMetrics metrics = new InMemoryMetrics();
+
+    public void testResponseIsRecorded() {
+        try (MCashClient client = client(new MockLowLevelHttpResponse()
+                .setContentType("application/json")
+                .setContent("{\"uri\":\"http://mcash.test/merchant/v1/ledger/l/\"}"), null)) {
+            assertNotNull(client.getLedgerOverview());
+        }
+        EndpointMetrics ledger = metrics.getEndpoint(EndpointFamily.LEDGER);
+        assertEquals(1, ledger.getRequests());
+        assertEquals(1, ledger.getStatusCount(200));
+        assertEquals(0, ledger.getInFlight());
+        assertEquals(1, ledger.getLatency().getCount());
+    }
+
+    public void testRuntimeExceptionEndsRequest() {
+        try (MCashClient client = client(null, new IllegalStateException("transport bug"))) {
+            client.getLedgerOverview();
+            fail("Expected the runtime exception");
+        } catch (IllegalStateException ex) {
+            assertEquals("transport bug", ex.getMessage());
+        }
+        EndpointMetrics ledger = metrics.getEndpoint(EndpointFamily.LEDGER);
+        assertEquals(1, ledger.getErrors());
+        assertEquals(0, ledger.getInFlight());
+    }
+
+    private MCashClient client(final MockLowLevelHttpResponse response, final RuntimeException failure) {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        return response;
+                    }
+                };
+            }
+        };
+        return MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .retryPolicy(RetryPolicy.none())
+                .metrics(metrics)
+                .build();
+    }
+}
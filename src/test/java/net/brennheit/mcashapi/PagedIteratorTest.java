@@ -0,0 +1,140 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class PagedIteratorTest extends TestCase {
+
+    private static final String BASE = "https://mcash.test/merchant/v1/ledger/";
+
+    private final Map<String, PagedIterator.Page<String>> pages = new HashMap<>();
+    private final List<String> fetched = new ArrayList<>();
+
+    public void testReadsAllPages() {
+        page("", "?page=2", "a", "b");
+        page("?page=2", "?page=3");
+        page("?page=3", null, "c");
+        assertEquals(Arrays.asList("a", "b", "c"), readAll(null));
+        assertEquals(3, fetched.size());
+    }
+
+    public void testPrefetchesInOrder() throws Exception {
+        page("", "?page=2", "a");
+        page("?page=2", "?page=3", "b");
+        page("?page=3", null, "c");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(Arrays.asList("a", "b", "c"), readAll(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testNoPages() {
+        assertFalse(iterator(null, null).hasNext());
+    }
+
+    public void testResolvesLinks() throws Exception {
+        assertEquals(BASE + "?page=2", PagedIterator.resolve(BASE, "?page=2"));
+        assertEquals("https://mcash.test/other/", PagedIterator.resolve(BASE, "/other/"));
+        assertNull(PagedIterator.resolve(BASE, ""));
+        assertNull(PagedIterator.resolve(BASE, null));
+    }
+
+    public void testLoopIsReported() {
+        page("", "?page=2", "a");
+        page("?page=2", "", "b");
+        PagedIterator<String> iterator = iterator(BASE, null);
+        assertEquals("a", iterator.next());
+        try {
+            iterator.next();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertEquals(2, fetched.size());
+        }
+    }
+
+    public void testSelfLinkIsReported() {
+        page("", "", "a");
+        PagedIterator<String> iterator = iterator(BASE, Runnable::run);
+        try {
+            iterator.next();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertEquals(1, fetched.size());
+        }
+    }
+
+    public void testFetchErrorIsUnchecked() {
+        PagedIterator<String> iterator = iterator(BASE + "missing/", null);
+        try {
+            iterator.hasNext();
+            fail("Expected UncheckedIOException");
+        } catch (UncheckedIOException ex) {
+            assertTrue(ex.getCause().getMessage().contains("missing"));
+        }
+    }
+
+    private void page(String query, String nextQuery, String... items) {
+        pages.put(BASE + query, new PagedIterator.Page<>(Arrays.asList(items), nextQuery == null ? null : BASE + nextQuery));
+    }
+
+    private List<String> readAll(Executor prefetchExecutor) {
+        return iterator(BASE, prefetchExecutor).stream().collect(Collectors.toList());
+    }
+
+    private PagedIterator<String> iterator(String firstUri, Executor prefetchExecutor) {
+        return new PagedIterator<String>(firstUri, prefetchExecutor) {
+            @Override
+            Page<String> fetch(String uri) throws IOException {
+                synchronized (fetched) {
+                    fetched.add(uri);
+                }
+                Page<String> page = pages.get(uri);
+                if (page == null) {
+                    throw new IOException("No page " + uri);
+                }
+                return page;
+            }
+        };
+    }
+}
@@ -0,0 +1,196 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.listener.IListenForPaymentUpdated;
+import net.brennheit.mcashapi.poller.FixedPollingStrategy;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ * Joining and limiting the per-ticket payment polls of a client.
+ *
+ * @author fiLLLip
+ */
+public class PaymentPollRegistryTest extends TestCase {
+
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+    private MCashClient client;
+
+    @Override
+    protected void setUp() {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        String tid = url.replaceAll(".*/payment_request/([^/]+)/outcome/", "$1");
+                        String status = statuses.containsKey(tid) ? statuses.get(tid) : "pending";
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"tid\":\"" + tid + "\",\"status\":\"" + status + "\"}");
+                    }
+                };
+            }
+        };
+        client = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .build();
+        client.setPaymentPollingStrategy(new FixedPollingStrategy(10));
+    }
+
+    @Override
+    protected void tearDown() {
+        client.close();
+    }
+
+    public void testJoinedListenersAllNotified() throws Exception {
+        CountDownLatch notified = new CountDownLatch(2);
+        AtomicInteger calls = new AtomicInteger();
+        IListenForPaymentUpdated listener = outcome -> {
+            calls.incrementAndGet();
+            notified.countDown();
+        };
+        client.startPaymentFinishedListener("t1", listener);
+        client.startPaymentFinishedListener("t1", listener);
+        assertEquals(Collections.singleton("t1"), client.getTrackedPaymentRequests());
+        statuses.put("t1", "ok");
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        waitUntilUntracked();
+        assertEquals(2, calls.get());
+    }
+
+    public void testOverflowIsRejected() {
+        client.setMaxTrackedPayments(2);
+        client.startPaymentFinishedListener("t1");
+        client.startPaymentFinishedListener("t2");
+        try {
+            client.startPaymentFinishedListener("t3");
+            fail("Expected the limit to be enforced");
+        } catch (IllegalStateException expected) {
+            // not tracked
+        }
+        assertFalse(client.getTrackedPaymentRequests().contains("t3"));
+        // joining a tracked ticket takes no slot
+        client.startPaymentFinishedListener("t1");
+        assertEquals(2, client.getTrackedPaymentRequests().size());
+        assertTrue(client.stopPaymentFinishedListener("t2"));
+        client.startPaymentFinishedListener("t3");
+        assertTrue(client.getTrackedPaymentRequests().contains("t3"));
+    }
+
+    public void testOverflowNeverPublishesPoll() throws Exception {
+        client.setMaxTrackedPayments(1);
+        client.startPaymentFinishedListener("t0");
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 200; j++) {
+                        try {
+                            client.startPaymentFinishedListener("t1", outcome -> {
+                            });
+                            // joined a poll which is not tracked
+                            return false;
+                        } catch (IllegalStateException expected) {
+                            // over the limit
+                        }
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singleton("t0"), client.getTrackedPaymentRequests());
+    }
+
+    public void testConcurrentStartsShareOnePoll() throws Exception {
+        client.setMaxTrackedPayments(1);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch notified = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    client.startPaymentFinishedListener("t1", (PaymentRequestOutcome outcome) -> notified.countDown());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singleton("t1"), client.getTrackedPaymentRequests());
+        statuses.put("t1", "ok");
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        waitUntilUntracked();
+        client.startPaymentFinishedListener("t2");
+        assertEquals(Collections.singleton("t2"), client.getTrackedPaymentRequests());
+    }
+
+    private void waitUntilUntracked() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!client.getTrackedPaymentRequests().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(client.getTrackedPaymentRequests().isEmpty());
+    }
+}
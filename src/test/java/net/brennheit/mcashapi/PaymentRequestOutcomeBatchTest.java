@@ -0,0 +1,174 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class PaymentRequestOutcomeBatchTest extends TestCase {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private MCashClient client;
+
+    @Override
+    protected void setUp() {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        int current = inFlight.incrementAndGet();
+                        maxInFlight.accumulateAndGet(current, Math::max);
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                        String tid = url.replaceAll(".*/payment_request/([^/]+)/outcome/", "$1");
+                        if (tid.startsWith("missing")) {
+                            return new MockLowLevelHttpResponse().setStatusCode(404).setContent("{}");
+                        }
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"tid\":\"" + tid + "\",\"status\":\"ok\"}");
+                    }
+                };
+            }
+        };
+        client = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .build();
+    }
+
+    @Override
+    protected void tearDown() {
+        client.close();
+    }
+
+    public void testFetchesAllWithinConcurrencyLimit() {
+        List<String> tids = tids(20);
+        List<PaymentRequestOutcomeResult> results = client.getPaymentRequestOutcomes(tids, 3);
+        assertEquals(tids.size(), results.size());
+        Set<String> seen = new HashSet<>();
+        for (PaymentRequestOutcomeResult result : results) {
+            assertTrue(result.isSuccess());
+            assertEquals(result.getTicketId(), result.getOutcome().tid);
+            seen.add(result.getTicketId());
+        }
+        assertEquals(new HashSet<>(tids), seen);
+        assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 3);
+    }
+
+    public void testFailureDoesNotStopBatch() {
+        List<PaymentRequestOutcomeResult> results = client.getPaymentRequestOutcomes(
+                Arrays.asList("t1", "missing1", "t2"), 2);
+        assertEquals(3, results.size());
+        for (PaymentRequestOutcomeResult result : results) {
+            if (result.getTicketId().equals("missing1")) {
+                assertFalse(result.isSuccess());
+                assertNull(result.getOutcome());
+                assertTrue(result.getError() instanceof HttpResponseException);
+            } else {
+                assertTrue(result.isSuccess());
+                assertNull(result.getError());
+            }
+        }
+    }
+
+    public void testCallsBackOnCallingThreadWithGivenExecutor() {
+        final Thread caller = Thread.currentThread();
+        final List<String> called = Collections.synchronizedList(new ArrayList<String>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<PaymentRequestOutcomeResult> results = client.getPaymentRequestOutcomes(tids(8), 2,
+                    new Consumer<PaymentRequestOutcomeResult>() {
+                @Override
+                public void accept(PaymentRequestOutcomeResult result) {
+                    assertSame(caller, Thread.currentThread());
+                    called.add(result.getTicketId());
+                }
+            }, executor);
+            assertEquals(8, called.size());
+            assertEquals(8, results.size());
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    public void testRejectedExecutionBecomesResult() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        List<PaymentRequestOutcomeResult> results = client.getPaymentRequestOutcomes(tids(2), 2, null, executor);
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isSuccess());
+    }
+
+    public void testEmptyAndInvalid() {
+        assertTrue(client.getPaymentRequestOutcomes(Collections.<String>emptyList(), 1).isEmpty());
+        try {
+            client.getPaymentRequestOutcomes(tids(1), 0);
+            fail("Expected invalid concurrency to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // nothing fetched
+        }
+    }
+
+    private static List<String> tids(int count) {
+        List<String> tids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tids.add("t" + i);
+        }
+        return tids;
+    }
+}
@@ -0,0 +1,123 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.cache.CacheConfig;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.ReportInfo;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class ReportCloseTest extends TestCase {
+
+    private static final String BASE = "http://mcash.test/merchant/v1";
+    private static final String REPORT_1 = BASE + "/ledger/l/report/r1/";
+    private static final String REPORT_2 = BASE + "/ledger/l/report/r2/";
+
+    private final Map<String, String> reportStatus = new ConcurrentHashMap<>();
+    private volatile String openReportUri = REPORT_1;
+    private MCashClient client;
+
+    @Override
+    protected void setUp() {
+        reportStatus.put(REPORT_1, "open");
+        reportStatus.put(REPORT_2, "open");
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() throws IOException {
+                        if ("PUT".equals(method)) {
+                            closeReport(url);
+                            return new MockLowLevelHttpResponse().setStatusCode(204);
+                        }
+                        String content;
+                        if (url.equals(BASE + "/ledger/")) {
+                            content = "{\"uris\":[\"" + BASE + "/ledger/l/\"]}";
+                        } else if (url.equals(BASE + "/ledger/l/")) {
+                            content = "{\"id\":\"l\",\"open_report_uri\":\"" + openReportUri + "\"}";
+                        } else {
+                            content = "{\"status\":\"" + reportStatus.get(url) + "\"}";
+                        }
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent(content);
+                    }
+                };
+            }
+        };
+        client = MCashClient.builder()
+                .baseUrl(BASE).userId("u").authKey("k").posId("p").ledger("l")
+                .cache(CacheConfig.defaults())
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .build();
+    }
+
+    @Override
+    protected void tearDown() {
+        client.close();
+    }
+
+    private void closeReport(String uri) {
+        reportStatus.put(uri, "closed");
+        if (uri.equals(openReportUri)) {
+            openReportUri = REPORT_2;
+        }
+    }
+
+    public void testClosesReportOpenNow() throws Exception {
+        LedgerDetail cached = client.getLedgerDetail();
+        assertEquals(REPORT_1, cached.open_report_uri);
+        // another client closes the report the cached ledger detail points at
+        closeReport(REPORT_1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final String[] closedStatus = new String[1];
+        client.addReportClosedEventListener((ReportInfo reportInfo) -> {
+            closedStatus[0] = reportInfo.status;
+            closed.countDown();
+        });
+        client.startReportClosedListener();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals("closed", closedStatus[0]);
+        assertEquals("closed", reportStatus.get(REPORT_2));
+    }
+}
@@ -0,0 +1,91 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resilience.Bulkhead;
+import net.brennheit.mcashapi.retry.RetryPolicy;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class RetryTest extends TestCase {
+
+    public void testBulkheadIsFreeWhileBackingOff() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        MockHttpTransport unavailableOnce = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        if (requests.incrementAndGet() == 1) {
+                            return new MockLowLevelHttpResponse().setStatusCode(503);
+                        }
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"uri\":\"http://mcash.test/merchant/v1/ledger/l/\"}");
+                    }
+                };
+            }
+        };
+        try (MCashClient client = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(unavailableOnce, TransportConfig.defaults()))
+                .retryPolicy(RetryPolicy.builder().backoff(500, 500, 1).jitter(0).build())
+                .bulkhead(EndpointFamily.LEDGER, 1)
+                .build()) {
+            final Bulkhead bulkhead = client.getBulkhead(EndpointFamily.LEDGER);
+            final int[] availableDuringBackoff = {-1};
+            Thread watcher = new Thread(() -> {
+                while (requests.get() == 0) {
+                    Thread.yield();
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                availableDuringBackoff[0] = bulkhead.getAvailable();
+            });
+            watcher.start();
+            assertNotNull(client.getLedgerOverview());
+            watcher.join();
+            assertEquals(2, requests.get());
+            assertEquals(1, availableDuringBackoff[0]);
+            assertEquals(1, bulkhead.getAvailable());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class SingleFlightTest extends TestCase {
+
+    private static final int FOLLOWERS = 4;
+
+    private final SingleFlight flights = new SingleFlight();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void testCoalescesConcurrentCalls() throws Exception {
+        List<Future<String>> results = startFlight(new SingleFlight.Call<String>() {
+            @Override
+            public String call() throws IOException {
+                calls.incrementAndGet();
+                await();
+                return "result";
+            }
+        });
+        for (Future<String> result : results) {
+            assertEquals("result", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(FOLLOWERS, flights.getShared());
+    }
+
+    public void testFansOutFailure() throws Exception {
+        List<Future<String>> results = startFlight(new SingleFlight.Call<String>() {
+            @Override
+            public String call() throws IOException {
+                calls.incrementAndGet();
+                await();
+                throw new IOException("boom");
+            }
+        });
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the leader's exception");
+            } catch (ExecutionException ex) {
+                assertEquals("boom", ex.getCause().getMessage());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    public void testFansOutRuntimeException() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("bad");
+        List<Future<String>> results = startFlight(new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                await();
+                throw failure;
+            }
+        });
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the leader's exception");
+            } catch (ExecutionException ex) {
+                assertSame(failure, ex.getCause());
+            }
+        }
+    }
+
+    public void testCallsAgainOnceSettled() throws IOException {
+        try {
+            flights.execute("k", new SingleFlight.Call<String>() {
+                @Override
+                public String call() throws IOException {
+                    throw new IOException("first");
+                }
+            });
+            fail("Expected the call's exception");
+        } catch (IOException expected) {
+            // not remembered
+        }
+        for (int i = 0; i < 2; i++) {
+            assertEquals("again", flights.execute("k", new SingleFlight.Call<String>() {
+                @Override
+                public String call() {
+                    calls.incrementAndGet();
+                    return "again";
+                }
+            }));
+        }
+        assertEquals(2, calls.get());
+        assertEquals(0, flights.getShared());
+    }
+
+    public void testKeysAreIndependent() throws Exception {
+        Future<String> blocked = submit("a", new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                await();
+                return "a";
+            }
+        });
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        assertEquals("b", flights.execute("b", new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                return "b";
+            }
+        }));
+        release.countDown();
+        assertEquals("a", blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Starts a leader blocked in the call and followers for the same key,
+     * and releases the leader once all followers wait for it.
+     */
+    private List<Future<String>> startFlight(SingleFlight.Call<String> call) throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(submit("k", call));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < FOLLOWERS; i++) {
+            results.add(submit("k", call));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flights.getShared() < FOLLOWERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        return results;
+    }
+
+    private Future<String> submit(final String key, final SingleFlight.Call<String> call) {
+        return executor.submit(() -> flights.execute(key, call));
+    }
+
+    private void await() {
+        leaderStarted.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resource.TransactionLogEntry;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class TransactionLogReaderTest extends TestCase {
+
+    private static final String LOG = "http://mcash.test/merchant/v1/ledger/l/report/1/log/";
+
+    private final Map<String, String> pages = new HashMap<>();
+    private final List<String> fetched = new ArrayList<>();
+    private MCashClient client;
+
+    @Override
+    protected void setUp() {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        fetched.add(url);
+                        String content = pages.get(url);
+                        if (content == null) {
+                            return new MockLowLevelHttpResponse().setStatusCode(404).setContent("{}");
+                        }
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent(content);
+                    }
+                };
+            }
+        };
+        client = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()))
+                .build();
+    }
+
+    @Override
+    protected void tearDown() {
+        client.close();
+    }
+
+    public void testReadsArrayPage() {
+        pages.put(LOG, "[{\"tid\":\"t1\"},{\"tid\":\"t2\"}]");
+        assertEquals(Arrays.asList("t1", "t2"), tids(client.openTransactionLog(LOG)));
+        assertEquals(1, fetched.size());
+    }
+
+    public void testFollowsNextLinks() {
+        pages.put(LOG, "{\"next\":\"?page=2\",\"entries\":[{\"tid\":\"t1\"}],\"ignored\":[{\"tid\":\"x\"}]}");
+        pages.put(LOG + "?page=2", "{\"meta\":{\"count\":2},\"entries\":[{\"tid\":\"t2\"},{\"tid\":\"t3\"}],\"next\":\"/other/log/\"}");
+        pages.put("http://mcash.test/other/log/", "{\"entries\":[],\"next\":null}");
+        assertEquals(Arrays.asList("t1", "t2", "t3"), tids(client.openTransactionLog(LOG)));
+        assertEquals(Arrays.asList(LOG, LOG + "?page=2", "http://mcash.test/other/log/"), fetched);
+    }
+
+    public void testReadsGenericEntries() {
+        pages.put(LOG, "[{\"tid\":\"t1\",\"custom\":1}]");
+        TransactionLogReader<GenericJson> reader = client.openLog(LOG, GenericJson.class);
+        assertEquals(BigDecimal.ONE, reader.next().get("custom"));
+        assertFalse(reader.hasNext());
+    }
+
+    public void testEmptyLog() {
+        pages.put(LOG, "[]");
+        TransactionLogReader<TransactionLogEntry> reader = client.openTransactionLog(LOG);
+        assertFalse(reader.hasNext());
+        assertFalse(reader.hasNext());
+        assertEquals(1, fetched.size());
+    }
+
+    public void testStopsAtLinkBackToEarlierPage() {
+        pages.put(LOG, "{\"entries\":[{\"tid\":\"t1\"}],\"next\":\"?page=2\"}");
+        pages.put(LOG + "?page=2", "{\"entries\":[{\"tid\":\"t2\"}],\"next\":\"" + LOG + "\"}");
+        TransactionLogReader<TransactionLogEntry> reader = client.openTransactionLog(LOG);
+        assertEquals("t1", reader.next().tid);
+        assertEquals("t2", reader.next().tid);
+        try {
+            reader.hasNext();
+            fail("Expected loop to be reported");
+        } catch (UncheckedIOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("links back"));
+        }
+        assertFalse(reader.hasNext());
+        assertEquals(2, fetched.size());
+    }
+
+    public void testFailedPageClosesReader() {
+        TransactionLogReader<TransactionLogEntry> reader = client.openTransactionLog(LOG);
+        try {
+            reader.hasNext();
+            fail("Expected missing log to fail");
+        } catch (UncheckedIOException expected) {
+            // 404
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    public void testRejectsMalformedPage() {
+        pages.put(LOG, "[{\"tid\":\"t1\"},1]");
+        TransactionLogReader<TransactionLogEntry> reader = client.openTransactionLog(LOG);
+        assertEquals("t1", reader.next().tid);
+        try {
+            reader.hasNext();
+            fail("Expected malformed entry to fail");
+        } catch (UncheckedIOException expected) {
+            // number in entries
+        }
+    }
+
+    public void testStreamsLogsInOrder() {
+        List<String> logs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String log = LOG + i + "/";
+            logs.add(log);
+            pages.put(log, "[{\"tid\":\"" + i + "a\"},{\"tid\":\"" + i + "b\"}]");
+            expected.add(i + "a");
+            expected.add(i + "b");
+        }
+        for (boolean parallel : new boolean[]{false, true}) {
+            try (Stream<TransactionLogEntry> entries = client.streamLogs(logs, TransactionLogEntry.class, parallel)) {
+                assertEquals(expected, entries.map(entry -> entry.tid).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    private static List<String> tids(TransactionLogReader<TransactionLogEntry> reader) {
+        List<String> tids = new ArrayList<>();
+        while (reader.hasNext()) {
+            tids.add(reader.next().tid);
+        }
+        return tids;
+    }
+}
@@ -0,0 +1,87 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.cache;
+
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.ReportInfo;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class ResponseCacheTest extends TestCase {
+
+    private static final String REPORT_URL = "https://mcash.no/api/merchant/v1/ledger/l1/report/r1/";
+
+    private final ResponseCache cache = new ResponseCache(CacheConfig.builder().maxEntries(2).build());
+
+    public void testStoresResponse() {
+        ReportInfo report = new ReportInfo();
+        cache.store(REPORT_URL, ReportInfo.class, report, "\"v1\"", cache.generation());
+        ResponseCache.Entry<ReportInfo> entry = cache.lookup(REPORT_URL, ReportInfo.class);
+        assertSame(report, entry.getValue());
+        assertEquals("\"v1\"", entry.getETag());
+        assertTrue(entry.isFresh());
+    }
+
+    public void testDropsResponseInvalidatedDuringRequest() {
+        long generation = cache.generation();
+        cache.invalidate(REPORT_URL);
+        cache.store(REPORT_URL, ReportInfo.class, new ReportInfo(), null, generation);
+        assertNull(cache.lookup(REPORT_URL, ReportInfo.class));
+        cache.store(REPORT_URL, ReportInfo.class, new ReportInfo(), null, cache.generation());
+        assertNotNull(cache.lookup(REPORT_URL, ReportInfo.class));
+    }
+
+    public void testOtherKeysAreStillStored() {
+        long generation = cache.generation();
+        cache.invalidate("https://mcash.no/api/merchant/v1/ledger/l1/report/r2/");
+        cache.store(REPORT_URL, ReportInfo.class, new ReportInfo(), null, generation);
+        assertNotNull(cache.lookup(REPORT_URL, ReportInfo.class));
+    }
+
+    public void testDropsResponseOfInvalidatedType() {
+        String ledgerUrl = "https://mcash.no/api/merchant/v1/ledger/l1/";
+        long generation = cache.generation();
+        cache.invalidateAll(LedgerDetail.class);
+        cache.store(ledgerUrl, LedgerDetail.class, new LedgerDetail(), null, generation);
+        cache.store(REPORT_URL, ReportInfo.class, new ReportInfo(), null, generation);
+        assertNull(cache.lookup(ledgerUrl, LedgerDetail.class));
+        assertNotNull(cache.lookup(REPORT_URL, ReportInfo.class));
+    }
+
+    public void testForgottenInvalidationStillDropsResponse() {
+        long generation = cache.generation();
+        cache.invalidate(REPORT_URL);
+        // more invalidations than the cache holds entries
+        for (int i = 0; i < 5; i++) {
+            cache.invalidate("https://mcash.no/api/merchant/v1/ledger/l1/report/x" + i + "/");
+        }
+        cache.store(REPORT_URL, ReportInfo.class, new ReportInfo(), null, generation);
+        assertNull(cache.lookup(REPORT_URL, ReportInfo.class));
+    }
+}
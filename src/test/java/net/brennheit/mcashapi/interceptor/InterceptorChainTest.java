@@ -0,0 +1,210 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.interceptor;
+
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.EndpointFamily;
+import net.brennheit.mcashapi.MCashClient;
+import net.brennheit.mcashapi.transport.MCashTransport;
+import net.brennheit.mcashapi.transport.TransportConfig;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class InterceptorChainTest extends TestCase {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> traceIds = new ArrayList<>();
+    private int sent;
+    private IOException transportError;
+
+    public void testEmptyChain() throws IOException {
+        InterceptorChain chain = InterceptorChain.of(Collections.<RequestInterceptor>emptyList());
+        assertSame(InterceptorChain.EMPTY, chain);
+        assertTrue(chain.isEmpty());
+        assertNull(chain.beforeSend(null, EndpointFamily.OTHER, 1));
+        chain.afterResponse(null, null, 0);
+        chain.onError(null, new IOException(), 0);
+    }
+
+    public void testCallsInOrderAndReverseOrder() {
+        MCashClient client = client(new Recorder("a"), new Recorder("b"), new Recorder("c"));
+        try {
+            assertNotNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        assertEquals(Arrays.asList("a.before", "b.before", "c.before", "c.after", "b.after", "a.after"), events);
+        assertEquals(1, sent);
+    }
+
+    public void testHeadersAndAttributesOfAnAttempt() {
+        RequestInterceptor tracing = new RequestInterceptor() {
+            @Override
+            public void beforeSend(Exchange exchange) {
+                assertEquals(1, exchange.getAttempt());
+                assertEquals(EndpointFamily.OTHER, exchange.getFamily());
+                exchange.getRequest().getHeaders().set("X-Trace-Id", "trace-1");
+                exchange.setAttribute("trace", "trace-1");
+            }
+
+            @Override
+            public void afterResponse(Exchange exchange, HttpResponse response) {
+                assertEquals("trace-1", exchange.getAttribute("trace"));
+                assertTrue(exchange.getStartNanos() != 0);
+                assertTrue(exchange.getElapsedNanos() >= 0);
+                events.add("after " + response.getStatusCode());
+            }
+        };
+        MCashClient client = client(tracing);
+        try {
+            assertNotNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        assertEquals(Collections.singletonList("trace-1"), traceIds);
+        assertEquals(Collections.singletonList("after 200"), events);
+    }
+
+    public void testFailingBeforeSendUnwindsEarlierInterceptors() {
+        RequestInterceptor failing = new Recorder("b") {
+            @Override
+            public void beforeSend(Exchange exchange) throws IOException {
+                super.beforeSend(exchange);
+                throw new IOException("denied");
+            }
+        };
+        MCashClient client = client(new Recorder("a"), failing, new Recorder("c"));
+        try {
+            assertNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        assertEquals(Arrays.asList("a.before", "b.before", "a.error denied"), events);
+        assertEquals(0, sent);
+    }
+
+    public void testFailingAfterResponseFailsTheRequest() {
+        RequestInterceptor failing = new Recorder("b") {
+            @Override
+            public void afterResponse(Exchange exchange, HttpResponse response) throws IOException {
+                super.afterResponse(exchange, response);
+                throw new IOException("rejected");
+            }
+        };
+        MCashClient client = client(new Recorder("a"), failing);
+        try {
+            assertNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        assertEquals(Arrays.asList("a.before", "b.before", "b.after"), events);
+    }
+
+    public void testTransportErrorInReverseOrder() {
+        transportError = new IOException("reset");
+        MCashClient client = client(new Recorder("a"), new Recorder("b"));
+        try {
+            assertNull(client.getMerchant());
+        } finally {
+            client.close();
+        }
+        // once per attempt, the GET is retried
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < sent; i++) {
+            expected.addAll(Arrays.asList("a.before", "b.before", "b.error reset", "a.error reset"));
+        }
+        assertTrue(sent > 0);
+        assertEquals(expected, events);
+    }
+
+    private MCashClient client(RequestInterceptor... interceptors) {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, final String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() throws IOException {
+                        sent++;
+                        String traceId = getFirstHeaderValue("X-Trace-Id");
+                        if (traceId != null) {
+                            traceIds.add(traceId);
+                        }
+                        if (transportError != null) {
+                            throw transportError;
+                        }
+                        return new MockLowLevelHttpResponse()
+                                .setContentType("application/json")
+                                .setContent("{\"id\":\"m1\"}");
+                    }
+                };
+            }
+        };
+        MCashClient.Builder builder = MCashClient.builder()
+                .baseUrl("http://mcash.test/merchant/v1").merchantId("m1").userId("u").authKey("k").posId("p").ledger("l")
+                .transport(new MCashTransport(transport, TransportConfig.defaults()));
+        for (RequestInterceptor interceptor : interceptors) {
+            builder.interceptor(interceptor);
+        }
+        return builder.build();
+    }
+
+    private class Recorder implements RequestInterceptor {
+
+        private final String name;
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void beforeSend(Exchange exchange) throws IOException {
+            events.add(name + ".before");
+        }
+
+        @Override
+        public void afterResponse(Exchange exchange, HttpResponse response) throws IOException {
+            events.add(name + ".after");
+        }
+
+        @Override
+        public void onError(Exchange exchange, IOException error) {
+            events.add(name + ".error " + error.getMessage());
+        }
+    }
+}
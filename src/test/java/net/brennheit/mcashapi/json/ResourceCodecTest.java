@@ -0,0 +1,147 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.json;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.JsonObjectParser;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.Data;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.resource.CreatePaymentRequest;
+import net.brennheit.mcashapi.resource.LedgerDetail;
+import net.brennheit.mcashapi.resource.PaymentRequestLink;
+import net.brennheit.mcashapi.resource.PaymentRequestOutcome;
+import net.brennheit.mcashapi.resource.ReportInfo;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class ResourceCodecTest extends TestCase {
+
+    private static final JsonFactory JSON_FACTORY = new JacksonFactory();
+
+    private static final String OUTCOME = "{\"currency\":\"NOK\",\"amount\":\"100.00\",\"additional_amount\":\"0.00\","
+            + "\"captures\":[{\"amount\":\"60.00\",\"id\":\"c1\"},{\"amount\":\"40.00\",\"id\":\"c2\",\"unknown\":[1,{\"a\":2}]}],"
+            + "\"status\":\"ok\",\"status_code\":2000,\"customer\":null,\"credit\":true,"
+            + "\"date_modified\":\"2016-03-01 12:00:00\",\"extra\":{\"nested\":[true,null]},\"tid\":\"t1\"}";
+
+    private static final String REPORT = "{\"transaction_log_uris\":[\"a\",\"b\"],\"scope_log_uris\":[],"
+            + "\"status\":\"closed\",\"report_summary\":{\"ignored\":1},\"payment_request_count\":3,"
+            + "\"payment_capture_count\":-1,\"callback_uri\":null}";
+
+    private static final String LEDGER = "{\"id\":\"l1\",\"currency\":\"NOK\",\"description\":\"\\u00e6\\u00f8\\u00e5 \\\"q\\\"\","
+            + "\"open_report_uri\":\"https://mcash.test/report/1/\"}";
+
+    public void testReadMatchesJsonObjectParser() throws IOException {
+        assertSameAsGeneric(PaymentRequestOutcome.class, OUTCOME);
+        assertSameAsGeneric(ReportInfo.class, REPORT);
+        assertSameAsGeneric(LedgerDetail.class, LEDGER);
+        assertSameAsGeneric(LedgerDetail.class, "{}");
+    }
+
+    public void testReadFields() throws IOException {
+        PaymentRequestOutcome outcome = readCodec(PaymentRequestOutcome.class, OUTCOME);
+        assertEquals("NOK", outcome.currency);
+        assertEquals(2000, outcome.status_code);
+        assertTrue(outcome.credit);
+        assertTrue(Data.isNull(outcome.customer));
+        assertEquals(2, outcome.captures.size());
+        assertEquals("c2", outcome.captures.get(1).id);
+        ReportInfo report = readCodec(ReportInfo.class, REPORT);
+        assertEquals(2, report.transaction_log_uris.size());
+        assertTrue(report.scope_log_uris.isEmpty());
+        assertNotNull(report.report_summary);
+        assertEquals(-1, report.payment_capture_count);
+    }
+
+    public void testWriteMatchesGenericSerializer() throws IOException {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.amount = "12.50";
+        request.currency = "NOK";
+        request.customer = "msisdn:4712345678";
+        request.allow_credit = true;
+        request.expires_in = 21600;
+        request.text = "line\nbreak æ";
+        PaymentRequestLink link = new PaymentRequestLink();
+        link.uri = "https://example.com/";
+        link.show_on = java.util.Arrays.asList("pending", "fail");
+        request.links = java.util.Collections.singletonList(link);
+        assertEquals(JSON_FACTORY.toString(request), writeCodec(request));
+        assertEquals(JSON_FACTORY.toString(new LedgerDetail()), writeCodec(new LedgerDetail()));
+    }
+
+    public void testRoundTrip() throws IOException {
+        for (String json : new String[]{OUTCOME, LEDGER}) {
+            PaymentRequestOutcome outcome = readCodec(PaymentRequestOutcome.class, json);
+            String written = writeCodec(outcome);
+            assertEquals(written, writeCodec(readCodec(PaymentRequestOutcome.class, written)));
+            assertEquals(JSON_FACTORY.toString(readGeneric(PaymentRequestOutcome.class, written)), written);
+        }
+    }
+
+    public void testUnsupportedTypes() {
+        assertNull(ResourceCodec.of(String.class));
+        assertNull(ResourceCodec.of(java.util.HashMap.class));
+        assertNull(ResourceCodec.of(java.util.List.class));
+        assertNotNull(ResourceCodec.of(LedgerDetail.class));
+    }
+
+    public void testRejectsMismatchedValue() throws IOException {
+        try {
+            readCodec(PaymentRequestOutcome.class, "{\"status_code\":\"abc\"}");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("status_code"));
+        }
+    }
+
+    private static <T> void assertSameAsGeneric(Class<T> type, String json) throws IOException {
+        assertEquals(JSON_FACTORY.toString(readGeneric(type, json)), JSON_FACTORY.toString(readCodec(type, json)));
+    }
+
+    private static <T> T readGeneric(Class<T> type, String json) throws IOException {
+        return new JsonObjectParser(JSON_FACTORY).parseAndClose(new StringReader(json), type);
+    }
+
+    private static <T> T readCodec(Class<T> type, String json) throws IOException {
+        return new ResourceObjectParser(JSON_FACTORY).parseAndClose(new StringReader(json), type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> String writeCodec(T resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = JSON_FACTORY.createJsonGenerator(out, StandardCharsets.UTF_8);
+        ResourceCodec.of((Class<T>) resource.getClass()).write(generator, resource);
+        generator.flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class ListenerDispatcherTest extends TestCase {
+
+    private static final List<Object> ONE_LISTENER = Collections.singletonList(new Object());
+
+    public void testEventsOfOneKeyArriveInOrder() throws Exception {
+        ListenerDispatcher dispatcher = ListenerDispatcher.builder().threads(4).build();
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(dispatcher.dispatch("ticket", ONE_LISTENER, i, (listener, event) -> received.add(event)));
+        }
+        dispatcher.close();
+        assertEquals(1000, received.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), received.get(i));
+        }
+        assertEquals(0, dispatcher.getPending());
+        assertEquals(1000, dispatcher.getDelivered());
+    }
+
+    public void testFailingListenerDoesNotStopOthers() throws Exception {
+        ListenerDispatcher dispatcher = ListenerDispatcher.builder().slowListenerMillis(10).build();
+        final CountDownLatch last = new CountDownLatch(1);
+        List<Runnable> listeners = Arrays.<Runnable>asList(
+                () -> {
+                    throw new IllegalStateException("listener bug");
+                },
+                () -> sleep(30),
+                last::countDown);
+        dispatcher.dispatch("ticket", listeners, null, (listener, event) -> listener.run());
+        assertTrue(last.await(5, TimeUnit.SECONDS));
+        dispatcher.close();
+        assertEquals(1, dispatcher.getFailedCalls());
+        assertEquals(1, dispatcher.getSlowCalls());
+    }
+
+    public void testErrorDoesNotWedgeKey() throws Exception {
+        ListenerDispatcher dispatcher = new ListenerDispatcher();
+        final CountDownLatch delivered = new CountDownLatch(1);
+        dispatcher.dispatch("ticket", ONE_LISTENER, "first", (listener, event) -> {
+            throw new AssertionError(event);
+        });
+        dispatcher.dispatch("ticket", ONE_LISTENER, "second", (listener, event) -> delivered.countDown());
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        dispatcher.close();
+        assertEquals(1, dispatcher.getFailedCalls());
+        assertEquals(0, dispatcher.getPending());
+    }
+
+    public void testCloseReleasesBlockedProducer() throws Exception {
+        final ListenerDispatcher dispatcher = ListenerDispatcher.builder()
+                .threads(1)
+                .queueCapacity(2)
+                .overflowPolicy(OverflowPolicy.BLOCK)
+                .drainTimeoutMillis(0)
+                .build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch never = new CountDownLatch(1);
+        dispatcher.dispatch("first", ONE_LISTENER, null, (listener, event) -> {
+            started.countDown();
+            try {
+                never.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.dispatch("second", ONE_LISTENER, null, (listener, event) -> fail("delivered after close")));
+        final boolean[] accepted = {true};
+        Thread producer = new Thread(() -> accepted[0] = dispatcher.dispatch("third", ONE_LISTENER, null, (listener, event) -> {
+        }));
+        producer.start();
+        while (producer.getState() != Thread.State.WAITING) {
+            assertTrue(producer.isAlive());
+            Thread.sleep(1);
+        }
+        dispatcher.close();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertFalse(accepted[0]);
+        for (int i = 0; i < 500 && dispatcher.getPending() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, dispatcher.getPending());
+        assertEquals(2, dispatcher.getDropped());
+    }
+
+    public void testCallerRunsByDefault() {
+        ListenerDispatcher dispatcher = new ListenerDispatcher();
+        assertEquals(OverflowPolicy.CALLER_RUNS, dispatcher.getOverflowPolicy());
+        dispatcher.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
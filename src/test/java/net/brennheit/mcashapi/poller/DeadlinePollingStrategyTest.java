@@ -0,0 +1,51 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.poller;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class DeadlinePollingStrategyTest extends TestCase {
+
+    private final PollingStrategy strategy = new DeadlinePollingStrategy(new FixedPollingStrategy(2000), 0);
+
+    public void testWaitsForDeadline() {
+        assertEquals(500, strategy.nextDelay(1, 0, 500));
+        assertEquals(2000, strategy.nextDelay(1, 0, 5000));
+    }
+
+    public void testNoDeadline() {
+        assertEquals(2000, strategy.nextDelay(1, 0, PollingStrategy.NO_DEADLINE));
+    }
+
+    public void testPastDeadlineKeepsDelegateDelay() {
+        assertEquals(2000, strategy.nextDelay(2, 500, 0));
+        assertEquals(2000, strategy.nextDelay(3, 2500, 0));
+    }
+}
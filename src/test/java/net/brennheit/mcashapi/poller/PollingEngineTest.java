@@ -0,0 +1,77 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.poller;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class PollingEngineTest extends TestCase {
+
+    public void testScheduleAfterCloseIsRejected() {
+        PollingEngine engine = new PollingEngine(1);
+        engine.close();
+        try {
+            engine.schedule(() -> {
+            }, 0, TimeUnit.MILLISECONDS);
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException ex) {
+            assertTrue(engine.isShutdown());
+        }
+    }
+
+    public void testCloseFromPollDoesNotWait() throws Exception {
+        final PollingEngine engine = new PollingEngine(1, 5000);
+        final AtomicLong closeMillis = new AtomicLong(-1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        engine.schedule(() -> {
+            long start = System.nanoTime();
+            engine.close();
+            closeMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            closed.countDown();
+        }, 0, TimeUnit.MILLISECONDS);
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertTrue("close took " + closeMillis.get() + " ms", closeMillis.get() < 1000);
+        assertTrue(engine.isShutdown());
+    }
+
+    public void testFailingPollKeepsThread() throws Exception {
+        PollingEngine engine = new PollingEngine(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        engine.schedule(() -> {
+            throw new IllegalStateException("poll bug");
+        }, 0, TimeUnit.MILLISECONDS);
+        engine.schedule(ran::countDown, 10, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        engine.close();
+    }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.resilience;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class CircuitBreakerTest extends TestCase {
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", CircuitBreakerConfig.builder()
+            .window(4, 2)
+            .failureRateThreshold(0.5)
+            .openDurationMillis(0)
+            .halfOpenCalls(2)
+            .build());
+
+    public void testOpensOnFailureRate() {
+        breaker.onSuccess(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    public void testRejectsWhileOpen() {
+        CircuitBreaker slow = new CircuitBreaker("slow", CircuitBreakerConfig.builder()
+                .window(1, 1)
+                .openDurationMillis(60000)
+                .build());
+        slow.onFailure(slow.tryAcquire());
+        assertNull(slow.tryAcquire());
+        assertEquals(1, slow.getRejected());
+    }
+
+    public void testClosesAfterHalfOpenSuccesses() {
+        open();
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    public void testHalfOpenFailureReopens() {
+        open();
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        breaker.onFailure(trial);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    public void testStaleOutcomeIsIgnored() {
+        CircuitBreaker.Permit stale = breaker.tryAcquire();
+        open();
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        // a call started while closed must not count as a trial call
+        breaker.onSuccess(stale);
+        breaker.onSuccess(first);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    public void testIgnoredPermitIsReleasedOnce() {
+        open();
+        CircuitBreaker.Permit first = breaker.tryAcquire();
+        CircuitBreaker.Permit second = breaker.tryAcquire();
+        breaker.onIgnored(first);
+        breaker.onIgnored(first);
+        breaker.onIgnored(second);
+        // both slots are free again, but no more than that
+        assertNotNull(breaker.tryAcquire());
+        assertNotNull(breaker.tryAcquire());
+        assertNull(breaker.tryAcquire());
+    }
+
+    public void testOutcomeAfterIgnoredIsDropped() {
+        open();
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        breaker.onSuccess(trial);
+        breaker.onIgnored(trial);
+        breaker.onFailure(trial);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    public void testDisabledNeverOpens() {
+        CircuitBreaker disabled = new CircuitBreaker("disabled", CircuitBreakerConfig.disabled());
+        for (int i = 0; i < 100; i++) {
+            disabled.onFailure(disabled.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, disabled.getState());
+    }
+
+    private void open() {
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,131 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.resource;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class DateTimeTest extends TestCase {
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    public void testParse() {
+        DateTime dateTime = DateTime.parseMCashFormat("2014-02-03 04:05:06");
+        assertEquals(calendarMillis(2014, 2, 3, 4, 5, 6), dateTime.getValue());
+        assertFalse(dateTime.isDateOnly());
+        assertEquals(dateTime, new DateTime("2014-02-03 04:05:06"));
+    }
+
+    public void testFormat() {
+        assertEquals("1970-01-01 00:00:00", new DateTime(0).toStringMCashDateTime());
+        assertEquals("2000-02-29 23:59:59", new DateTime(calendarMillis(2000, 2, 29, 23, 59, 59)).toString());
+        assertEquals("2000-02-29", new DateTime(true, calendarMillis(2000, 2, 29, 23, 59, 59)).toString());
+    }
+
+    public void testMatchesCalendar() {
+        Random random = new Random(7);
+        long min = calendarMillis(1583, 1, 1, 0, 0, 0);
+        long max = calendarMillis(9999, 12, 31, 23, 59, 59);
+        for (int i = 0; i < 20000; i++) {
+            long value = (min + (long) (random.nextDouble() * (max - min))) / 1000 * 1000;
+            String formatted = new DateTime(value).toStringMCashDateTime();
+            assertEquals(calendarFormat(value), formatted);
+            assertEquals(formatted, value, DateTime.parseMCashFormat(formatted).getValue());
+        }
+    }
+
+    public void testEdgesMatchCalendar() {
+        String[] values = {
+            "1582-10-04 23:59:59", "1582-10-15 00:00:00", "1583-01-01 00:00:00", "1600-02-29 12:00:00",
+            "1900-02-28 23:59:59", "1900-03-01 00:00:00", "1969-12-31 23:59:59", "2100-03-01 00:00:00",
+            "9999-12-31 23:59:59", "0001-01-01 00:00:00"
+        };
+        for (String value : values) {
+            long millis = DateTime.parseMCashFormat(value).getValue();
+            assertEquals(value, calendarParse(value), millis);
+            assertEquals(value, new DateTime(millis).toStringMCashDateTime());
+        }
+        long afterFastRange = calendarMillis(10000, 1, 1, 0, 0, 0);
+        assertEquals(calendarFormat(afterFastRange), new DateTime(afterFastRange).toStringMCashDateTime());
+    }
+
+    public void testOutOfRangeFieldsRollOver() {
+        String[] values = {"2014-13-01 00:00:00", "2014-00-31 00:00:00", "2014-02-30 00:00:00",
+            "2014-01-01 24:00:00", "2014-01-01 23:60:60", "2016-12-32 99:99:99"};
+        for (String value : values) {
+            assertEquals(value, calendarParse(value), DateTime.parseMCashFormat(value).getValue());
+        }
+    }
+
+    public void testRejectsInvalidFormat() {
+        String[] values = {"2014-01-01", "2014-01-01T00:00:00", "2014-01-01 00:00", "2014/01/01 00:00:00",
+            "2014-01-01 0a:00:00", "2014-01-01 00:00:00Z", ""};
+        for (String value : values) {
+            try {
+                DateTime.parseMCashFormat(value);
+                fail("Expected NumberFormatException for " + value);
+            } catch (NumberFormatException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testWritesIntoBuffer() {
+        char[] buf = new char[2 + DateTime.MCASH_DATETIME_LENGTH];
+        buf[0] = '[';
+        int end = DateTime.parseMCashFormat("2015-06-07 08:09:10").writeMCashDateTime(buf, 1);
+        buf[end] = ']';
+        assertEquals("[2015-06-07 08:09:10]", new String(buf));
+    }
+
+    private static long calendarMillis(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = new GregorianCalendar(GMT);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long calendarParse(String value) {
+        return calendarMillis(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(5, 7)),
+                Integer.parseInt(value.substring(8, 10)), Integer.parseInt(value.substring(11, 13)),
+                Integer.parseInt(value.substring(14, 16)), Integer.parseInt(value.substring(17, 19)));
+    }
+
+    private static String calendarFormat(long value) {
+        Calendar calendar = new GregorianCalendar(GMT);
+        calendar.setTimeInMillis(value);
+        return String.format("%04d-%02d-%02d %02d:%02d:%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+    }
+}
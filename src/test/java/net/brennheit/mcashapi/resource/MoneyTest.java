@@ -0,0 +1,121 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.resource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MoneyTest extends TestCase {
+
+    public void testFormat() {
+        assertEquals("0.00", Money.of(0, "NOK").toStringMCashAmount());
+        assertEquals("0.05", Money.of(5, "NOK").toStringMCashAmount());
+        assertEquals("-0.50", Money.of(-50, "NOK").toStringMCashAmount());
+        assertEquals("1234.50", Money.of(123450, "NOK").toStringMCashAmount());
+        assertEquals("-92233720368547758.08", Money.of(Long.MIN_VALUE, null).toStringMCashAmount());
+        assertEquals("92233720368547758.07", Money.of(Long.MAX_VALUE, null).toStringMCashAmount());
+    }
+
+    public void testParse() {
+        assertEquals(12345, Money.parseMinorUnits("123.45"));
+        assertEquals(12340, Money.parseMinorUnits("123.4"));
+        assertEquals(12300, Money.parseMinorUnits("123"));
+        assertEquals(-5, Money.parseMinorUnits("-0.05"));
+        assertEquals(Long.MIN_VALUE, Money.parseMinorUnits("-92233720368547758.08"));
+        assertEquals(Long.MAX_VALUE, Money.parseMinorUnits("92233720368547758.07"));
+        assertEquals(Money.of(100, "NOK"), Money.parseMCashAmount("1.00", "NOK"));
+    }
+
+    public void testRejectsInvalidAmount() {
+        String[] values = {"", "-", ".5", "1.", "1.234", "1,00", "1.0.0", "+1", "1e3", "92233720368547758.08",
+            "-92233720368547758.09", "100000000000000000000"};
+        for (String value : values) {
+            try {
+                Money.parseMinorUnits(value);
+                fail("Expected NumberFormatException for " + value);
+            } catch (NumberFormatException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testRoundTripMatchesBigDecimal() {
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            long units = random.nextLong() >> random.nextInt(64);
+            String formatted = Money.of(units, null).toStringMCashAmount();
+            assertEquals(BigDecimal.valueOf(units, Money.SCALE).toPlainString(), formatted);
+            assertEquals(formatted, units, Money.parseMinorUnits(formatted));
+        }
+    }
+
+    public void testOfMajorMatchesDecimalFormat() {
+        DecimalFormat format = new DecimalFormat("#0.00", DecimalFormatSymbols.getInstance(Locale.ROOT));
+        format.setRoundingMode(RoundingMode.HALF_EVEN);
+        Random random = new Random(13);
+        double[] values = {0, 0.005, 0.015, 0.125, 1.005, 2.675, 1234.5, -0.125, 1e9 + 0.995};
+        for (double value : values) {
+            assertEquals(String.valueOf(value), format.format(value), Money.ofMajor(value, "NOK").toStringMCashAmount());
+        }
+        for (int i = 0; i < 20000; i++) {
+            double value = Math.round(random.nextDouble() * 1e8) / 1000.0;
+            assertEquals(String.valueOf(value), format.format(value), Money.ofMajor(value, "NOK").toStringMCashAmount());
+        }
+    }
+
+    public void testArithmeticNeedsSameCurrency() {
+        assertEquals(Money.of(150, "NOK"), Money.of(100, "NOK").plus(Money.of(50, "NOK")));
+        assertEquals(-1, Money.of(100, "NOK").minus(Money.of(150, "NOK")).signum());
+        try {
+            Money.of(100, "NOK").plus(Money.of(100, "EUR"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            Money.of(Long.MAX_VALUE, "NOK").plus(Money.of(1, "NOK"));
+            fail("Expected ArithmeticException");
+        } catch (ArithmeticException ex) {
+            // expected
+        }
+    }
+
+    public void testWritesIntoBuffer() {
+        char[] buf = new char[Money.MAX_MCASH_AMOUNT_LENGTH + 1];
+        buf[0] = '=';
+        int end = Money.of(-1, null).writeMCashAmount(buf, 1);
+        assertEquals("=-0.01", new String(buf, 0, end));
+    }
+}
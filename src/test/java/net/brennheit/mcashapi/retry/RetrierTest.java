@@ -0,0 +1,87 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.retry;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class RetrierTest extends TestCase {
+
+    public void testParseRetryAfterSeconds() {
+        assertEquals(120000, Retrier.parseRetryAfter(" 120 "));
+        assertEquals(0, Retrier.parseRetryAfter("-5"));
+    }
+
+    public void testParseRetryAfterDoesNotOverflow() {
+        assertEquals(Long.MAX_VALUE, Retrier.parseRetryAfter(String.valueOf(Long.MAX_VALUE / 10)));
+        Retrier retrier = new Retrier(RetryPolicy.builder().honourRetryAfter(true, 30000).build());
+        assertEquals(30000, retrier.backoffMillis(1, "9223372036854775"));
+    }
+
+    public void testParseRetryAfterDate() {
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+        long millis = Retrier.parseRetryAfter(date);
+        assertTrue(millis > 50000 && millis <= 60000);
+        assertEquals(-1, Retrier.parseRetryAfter("soon"));
+    }
+
+    public void testBackoffGrowsUpToMax() {
+        Retrier retrier = new Retrier(RetryPolicy.builder().backoff(100, 300, 2).jitter(0).build());
+        assertEquals(100, retrier.backoffMillis(1, null));
+        assertEquals(200, retrier.backoffMillis(2, null));
+        assertEquals(300, retrier.backoffMillis(3, null));
+        assertEquals(300, retrier.backoffMillis(30, null));
+    }
+
+    public void testRetriesAreLimited() {
+        Retrier retrier = new Retrier(RetryPolicy.builder().maxAttempts(3).budget(0, 1).build());
+        assertFalse(retrier.tryRetry(3));
+        assertTrue(retrier.tryRetry(1));
+        // budget of one token used up
+        assertFalse(retrier.tryRetry(1));
+        assertEquals(1, retrier.getStats().getBudgetExhausted());
+    }
+
+    public void testOnlySafeRequestsAreRetryable() {
+        Retrier retrier = new Retrier(RetryPolicy.defaults());
+        assertTrue(retrier.isRetryable("GET", false));
+        assertFalse(retrier.isRetryable("POST", false));
+        assertFalse(retrier.isRetryable("POST", true));
+        Retrier posting = new Retrier(RetryPolicy.builder().retryPostWithDedupeKey(true).build());
+        assertTrue(posting.isRetryable("POST", true));
+        assertFalse(posting.isRetryable("POST", false));
+        assertTrue(retrier.isRetryableStatus(503));
+        assertTrue(retrier.isRetryableStatus(429));
+        assertFalse(retrier.isRetryableStatus(501));
+        assertFalse(retrier.isRetryableStatus(409));
+    }
+}
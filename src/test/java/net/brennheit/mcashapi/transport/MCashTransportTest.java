@@ -0,0 +1,171 @@
+/* 
+ * Copyright (c) 2014, fiLLLip
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.brennheit.mcashapi.transport;
+
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import junit.framework.TestCase;
+import net.brennheit.mcashapi.MCashClient;
+import net.brennheit.mcashapi.retry.RetryPolicy;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+
+/**
+ *
+ * @author fiLLLip
+ */
+public class MCashTransportTest extends TestCase {
+
+    public void testDefaults() {
+        TransportConfig config = TransportConfig.defaults();
+        assertEquals(TransportType.NET_HTTP, config.getType());
+        assertEquals(20000, config.getConnectTimeoutMillis());
+        assertEquals(20000, config.getReadTimeoutMillis());
+        MCashTransport transport = MCashTransport.create(config);
+        try {
+            assertTrue(transport.getHttpTransport() instanceof NetHttpTransport);
+            assertSame(config, transport.getConfig());
+        } finally {
+            transport.close();
+        }
+    }
+
+    public void testPooledSettings() throws IOException {
+        TransportConfig config = TransportConfig.builder()
+                .type(TransportType.APACHE_POOLED)
+                .maxConnections(7)
+                .maxConnectionsPerRoute(3)
+                .connectTimeoutMillis(1234)
+                .readTimeoutMillis(2345)
+                .build();
+        MCashTransport transport = MCashTransport.create(config);
+        try {
+            DefaultHttpClient httpClient = (DefaultHttpClient) ((ApacheHttpTransport) transport.getHttpTransport()).getHttpClient();
+            HttpParams params = httpClient.getParams();
+            assertEquals(7, ConnManagerParams.getMaxTotalConnections(params));
+            assertEquals(3, ConnManagerParams.getMaxConnectionsPerRoute(params).getMaxForRoute(new HttpRoute(new HttpHost("api.mca.sh", 443, "https"))));
+            assertEquals(1234, HttpConnectionParams.getConnectionTimeout(params));
+            assertEquals(2345, HttpConnectionParams.getSoTimeout(params));
+            assertTrue(HttpConnectionParams.isStaleCheckingEnabled(params));
+            // retries are left to the client
+            assertFalse(httpClient.getHttpRequestRetryHandler().retryRequest(new IOException(), 1, new BasicHttpContext()));
+        } finally {
+            transport.close();
+        }
+    }
+
+    public void testInvalidConfig() {
+        try {
+            TransportConfig.builder().maxConnections(2).maxConnectionsPerRoute(3).build();
+            fail("Expected more connections per route than in total to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+        try {
+            TransportConfig.builder().readTimeoutMillis(-1);
+            fail("Expected a negative timeout to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+    }
+
+    public void testPooledTransportReusesConnection() throws IOException {
+        final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "{\"id\":\"m1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            MCashClient client = client("http://127.0.0.1:" + server.getAddress().getPort(), TransportConfig.builder()
+                    .type(TransportType.APACHE_POOLED)
+                    .maxConnections(1)
+                    .maxConnectionsPerRoute(1)
+                    .build());
+            try {
+                for (int i = 0; i < 3; i++) {
+                    assertNotNull(client.getMerchant());
+                }
+            } finally {
+                client.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+        assertEquals(3, clientPorts.size());
+        assertEquals(1, new HashSet<>(clientPorts).size());
+    }
+
+    public void testReadTimeout() throws IOException {
+        for (TransportType type : TransportType.values()) {
+            // connections are accepted by the backlog, but never answered
+            try (ServerSocket silent = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+                MCashClient client = client("http://127.0.0.1:" + silent.getLocalPort(), TransportConfig.builder()
+                        .type(type)
+                        .readTimeoutMillis(200)
+                        .build());
+                try {
+                    long start = System.nanoTime();
+                    assertNull(client.getMerchant());
+                    long millis = (System.nanoTime() - start) / 1000000;
+                    assertTrue(type + " took " + millis + " ms", millis >= 150 && millis < 5000);
+                } finally {
+                    client.close();
+                }
+            }
+        }
+    }
+
+    private static MCashClient client(String host, TransportConfig config) {
+        return MCashClient.builder()
+                .baseUrl(host + "/merchant/v1").merchantId("m1").userId("u").authKey("k").posId("p").ledger("l")
+                .transportConfig(config)
+                .retryPolicy(RetryPolicy.builder().maxAttempts(1).build())
+                .build();
+    }
+}